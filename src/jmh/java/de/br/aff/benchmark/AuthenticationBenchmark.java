@@ -0,0 +1,61 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.security.CachingPasswordEncoder;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+/**
+ * Authentication of a request carrying username and password, as done for every HTTP Basic request, with plain BCrypt
+ * and with verified credentials cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark
+{
+    @Param({"bcrypt", "cached"})
+    private String encoder;
+
+    private DaoAuthenticationProvider provider;
+
+
+    @Setup
+    public void setUp()
+    {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        PasswordEncoder passwordEncoder = "cached".equals(encoder) ? new CachingPasswordEncoder(bcrypt, 10_000, Duration.ofMinutes(5)) : bcrypt;
+
+        provider = new DaoAuthenticationProvider();
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserDetailsService(new InMemoryUserDetailsManager(
+            User.withUsername("user").password(passwordEncoder.encode("user123")).roles("USER").build()));
+    }
+
+
+    @Benchmark
+    public Authentication authenticate()
+    {
+        return provider.authenticate(new UsernamePasswordAuthenticationToken("user", "user123"));
+    }
+}
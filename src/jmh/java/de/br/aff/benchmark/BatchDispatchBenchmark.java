@@ -0,0 +1,119 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.RideAssignment;
+import de.br.aff.domainvalue.RideRequirements;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.dispatch.BatchAssignmentSolver;
+import de.br.aff.service.dispatch.DefaultDispatchService;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.location.DriverLocationIndex;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One batch window of the batched dispatch mode: the given number of ride requests against a fleet spread over a city of
+ * 30 x 30 km. The score is the time to solve and reserve the whole batch, it has to stay below the batch window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class BatchDispatchBenchmark
+{
+    private static final double CENTER_LATITUDE = 52.52;
+    private static final double CENTER_LONGITUDE = 13.405;
+    private static final double SPAN_DEGREES = 0.27;
+
+    @Param({"5000"})
+    private int requests;
+
+    @Param({"20000"})
+    private int drivers;
+
+    private DefaultDispatchService dispatchService;
+    private final List<CompletableFuture<RideAssignment>> rides = new ArrayList<>();
+    private final Random random = new Random(42);
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        DriverLocationIndex driverLocationIndex = new DriverLocationIndex(0.01);
+        DispatchCandidateIndex dispatchCandidateIndex = new DispatchCandidateIndex();
+        dispatchService = new DefaultDispatchService(driverLocationIndex, dispatchCandidateIndex,
+            new BatchAssignmentSolver(driverLocationIndex, dispatchCandidateIndex, 0.05, 3, 16, 0), DefaultDispatchService.Mode.BATCH, 50, 25, 200);
+
+        EngineType[] engineTypes = EngineType.values();
+        for (long driverId = 1; driverId <= drivers; driverId++)
+        {
+            driverLocationIndex.update(driverId, randomLatitude(), randomLongitude());
+            dispatchCandidateIndex.update(driverId, new CarDO(driverId, ZonedDateTime.now(), "BENCH-" + driverId, 4 + random.nextInt(4), random.nextBoolean(),
+                random.nextInt(BenchmarkFleet.CAR_RATINGS), engineTypes[random.nextInt(engineTypes.length)], "Tesla", "3", null));
+        }
+    }
+
+
+    @Setup(Level.Invocation)
+    public void submitRequests()
+    {
+        for (int i = 0; i < requests; i++)
+        {
+            rides.add(dispatchService.submit(new GeoCoordinate(randomLatitude(), randomLongitude()), RideRequirements.NONE));
+        }
+    }
+
+
+    @TearDown(Level.Invocation)
+    public void completeRides() throws EntityNotFoundException
+    {
+        for (CompletableFuture<RideAssignment> ride : rides)
+        {
+            if (!ride.isCompletedExceptionally())
+            {
+                dispatchService.complete(ride.join().getRideId());
+            }
+        }
+        rides.clear();
+    }
+
+
+    @Benchmark
+    public int dispatchBatch()
+    {
+        return dispatchService.dispatchBatch();
+    }
+
+
+    private double randomLatitude()
+    {
+        return CENTER_LATITUDE + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+    }
+
+
+    private double randomLongitude()
+    {
+        return CENTER_LONGITUDE + (random.nextDouble() - 0.5) * SPAN_DEGREES * 1.6;
+    }
+}
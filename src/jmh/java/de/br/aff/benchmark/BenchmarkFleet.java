@@ -0,0 +1,110 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.MyApplication;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Starts the application, without the web tier unless asked for, against the in-memory H2 database and seeds it with a
+ * fleet of the given size. Every tenth driver is ONLINE and drives its own car, car ratings are spread over 0..99.
+ */
+public final class BenchmarkFleet
+{
+    public static final int CAR_RATINGS = 100;
+    private static final int BATCH_SIZE = 10000;
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+
+    private BenchmarkFleet()
+    {
+    }
+
+
+    public static ConfigurableApplicationContext start(int drivers, String... arguments)
+    {
+        return start(drivers, WebApplicationType.NONE, arguments);
+    }
+
+
+    /**
+     * Starts the web tier as well, on a random port, with the given additional arguments.
+     */
+    public static ConfigurableApplicationContext startWeb(int drivers, String... arguments)
+    {
+        return start(drivers, WebApplicationType.SERVLET, arguments);
+    }
+
+
+    private static ConfigurableApplicationContext start(int drivers, WebApplicationType webApplicationType, String... arguments)
+    {
+        List<String> allArguments = new ArrayList<>(Arrays.asList(
+            "--server.port=0",
+            "--spring.jpa.show-sql=false",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_ON_EXIT=FALSE",
+            "--logging.level.root=WARN"));
+        allArguments.addAll(Arrays.asList(arguments));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MyApplication.class)
+            .web(webApplicationType)
+            .run(allArguments.toArray(new String[0]));
+
+        seed(context.getBean(JdbcTemplate.class), drivers);
+        return context;
+    }
+
+
+    public static String username(long driverId)
+    {
+        return "driver" + driverId;
+    }
+
+
+    public static long cars(int drivers)
+    {
+        return drivers / 10;
+    }
+
+
+    private static void seed(JdbcTemplate jdbcTemplate, int drivers)
+    {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        long cars = cars(drivers);
+
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (long carId = 1; carId <= cars; carId++)
+        {
+            rows.add(new Object[] {carId, now, "BENCH-" + carId, 4, false, (int) (carId % CAR_RATINGS), "ELECTRIC", "Tesla", "3"});
+            flushIfFull(jdbcTemplate, rows, carId == cars,
+                "insert into car(id, date_created, license_plate, seat_count, convertible, rating, engine_type, manufacturer, model) values (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        for (long driverId = 1; driverId <= drivers; driverId++)
+        {
+            boolean online = driverId % 10 == 0;
+            Long carId = online && driverId / 10 < cars ? driverId / 10 : null;
+            rows.add(new Object[] {driverId, now, false, online ? "ONLINE" : "OFFLINE", "pw", username(driverId), carId});
+            flushIfFull(jdbcTemplate, rows, driverId == drivers,
+                "insert into driver(id, date_created, deleted, online_status, password, username, car_id) values (?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        // the pooled id optimizer hands out the allocation below the sequence value, so skip one allocation
+        jdbcTemplate.execute("alter sequence car_sequence restart with " + (cars + ID_ALLOCATION_SIZE + 1));
+        jdbcTemplate.execute("alter sequence driver_sequence restart with " + (drivers + ID_ALLOCATION_SIZE + 1));
+    }
+
+
+    private static void flushIfFull(JdbcTemplate jdbcTemplate, List<Object[]> rows, boolean last, String sql)
+    {
+        if (rows.size() == BATCH_SIZE || last)
+        {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+}
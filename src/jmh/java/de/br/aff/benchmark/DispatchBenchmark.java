@@ -0,0 +1,118 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.RideAssignment;
+import de.br.aff.domainvalue.RideRequirements;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.exception.NoDriverAvailableException;
+import de.br.aff.service.dispatch.BatchAssignmentSolver;
+import de.br.aff.service.dispatch.DefaultDispatchService;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.dispatch.DispatchService;
+import de.br.aff.service.location.DriverLocationIndex;
+import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load generator for the matching engine: concurrent ride requests against a fleet of dispatchable drivers spread over a
+ * city of 30 x 30 km. Every matched ride is completed right away, so the score is matches per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class DispatchBenchmark
+{
+    private static final double CENTER_LATITUDE = 52.52;
+    private static final double CENTER_LONGITUDE = 13.405;
+    private static final double SPAN_DEGREES = 0.27;
+
+    private static final RideRequirements PREMIUM = RideRequirements.builder().minRating(80).minSeatCount(5).build();
+
+    @Param({"1000", "10000", "100000"})
+    private int drivers;
+
+    private DispatchService dispatchService;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        DriverLocationIndex driverLocationIndex = new DriverLocationIndex(0.01);
+        DispatchCandidateIndex dispatchCandidateIndex = new DispatchCandidateIndex();
+        dispatchService = new DefaultDispatchService(driverLocationIndex, dispatchCandidateIndex,
+            new BatchAssignmentSolver(driverLocationIndex, dispatchCandidateIndex, 0.05, 3, 16, 0), DefaultDispatchService.Mode.IMMEDIATE, 50, 25, 200);
+
+        Random random = new Random(42);
+        EngineType[] engineTypes = EngineType.values();
+        for (long driverId = 1; driverId <= drivers; driverId++)
+        {
+            driverLocationIndex.update(driverId, randomLatitude(random), randomLongitude(random));
+            dispatchCandidateIndex.update(driverId, new CarDO(driverId, ZonedDateTime.now(), "BENCH-" + driverId, 4 + random.nextInt(4), random.nextBoolean(),
+                random.nextInt(BenchmarkFleet.CAR_RATINGS), engineTypes[random.nextInt(engineTypes.length)], "Tesla", "3", null));
+        }
+    }
+
+
+    @Benchmark
+    public Object requestAnyCar() throws EntityNotFoundException
+    {
+        return requestAndComplete(RideRequirements.NONE);
+    }
+
+
+    @Benchmark
+    public Object requestPremiumCar() throws EntityNotFoundException
+    {
+        return requestAndComplete(PREMIUM);
+    }
+
+
+    private Object requestAndComplete(RideRequirements requirements) throws EntityNotFoundException
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        GeoCoordinate pickup = new GeoCoordinate(randomLatitude(random), randomLongitude(random));
+        try
+        {
+            RideAssignment ride = dispatchService.request(pickup, requirements);
+            dispatchService.complete(ride.getRideId());
+            return ride;
+        }
+        catch (NoDriverAvailableException e)
+        {
+            return e;
+        }
+    }
+
+
+    private static double randomLatitude(Random random)
+    {
+        return CENTER_LATITUDE + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+    }
+
+
+    private static double randomLongitude(Random random)
+    {
+        return CENTER_LONGITUDE + (random.nextDouble() - 0.5) * SPAN_DEGREES * 1.6;
+    }
+}
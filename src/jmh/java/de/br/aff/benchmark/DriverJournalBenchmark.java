@@ -0,0 +1,76 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.driver.DriverService;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Burst of status and coordinate changes from many threads, saved synchronously or journaled and written in the
+ * background.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Threads(32)
+public class DriverJournalBenchmark
+{
+    @Param({"false", "true"})
+    private boolean journal;
+
+    @Param({"100000"})
+    private int drivers;
+
+    private ConfigurableApplicationContext context;
+    private DriverService driverService;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        context = BenchmarkFleet.start(drivers,
+            "--dispatch.driver-journal.enabled=" + journal,
+            "--dispatch.driver-journal.directory=" + Files.createTempDirectory("driver-journal"));
+        driverService = context.getBean(DriverService.class);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        context.close();
+    }
+
+
+    @Benchmark
+    public void updateStatusAndCoordinate() throws EntityNotFoundException
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        DriverDO newDriverData = new DriverDO();
+        newDriverData.setOnlineStatus(random.nextBoolean() ? OnlineStatus.ONLINE : OnlineStatus.OFFLINE);
+        newDriverData.setCoordinate(new GeoCoordinate(52.4 + random.nextDouble() * 0.2, 13.3 + random.nextDouble() * 0.2));
+        driverService.updatePartially(random.nextLong(1, drivers + 1), newDriverData);
+    }
+}
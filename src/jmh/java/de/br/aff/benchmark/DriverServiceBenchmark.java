@@ -0,0 +1,103 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.exception.CarAlreadyInUseException;
+import de.br.aff.exception.ConstraintsViolationException;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.driver.DriverQueryService;
+import de.br.aff.service.driver.DriverService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Service read and write paths against a seeded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class DriverServiceBenchmark
+{
+    @Param({"10000", "100000", "1000000"})
+    private int drivers;
+
+    private ConfigurableApplicationContext context;
+    private DriverService driverService;
+    private DriverQueryService driverQueryService;
+    private long selectingDriverId;
+    private long freeCarId;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        context = BenchmarkFleet.start(drivers);
+        driverService = context.getBean(DriverService.class);
+        driverQueryService = context.getBean(DriverQueryService.class);
+
+        // the last car is never assigned during seeding, the last driver is ONLINE and has no car
+        freeCarId = BenchmarkFleet.cars(drivers);
+        selectingDriverId = drivers;
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        context.close();
+    }
+
+
+    @Benchmark
+    public Object findByUsernameAndOnlineStatus()
+    {
+        long driverId = ThreadLocalRandom.current().nextLong(1, drivers + 1);
+        return driverService.find(BenchmarkFleet.username(driverId), OnlineStatus.ONLINE);
+    }
+
+
+    @Benchmark
+    public Object findByUsername()
+    {
+        long driverId = ThreadLocalRandom.current().nextLong(1, drivers + 1);
+        return driverService.find(BenchmarkFleet.username(driverId), null);
+    }
+
+
+    @Benchmark
+    public Object findByCarRating()
+    {
+        return driverService.findByCarRating(ThreadLocalRandom.current().nextInt(BenchmarkFleet.CAR_RATINGS));
+    }
+
+
+    @Benchmark
+    public Object findByCarRatingProjected()
+    {
+        return driverQueryService.findByCarRating(ThreadLocalRandom.current().nextInt(BenchmarkFleet.CAR_RATINGS));
+    }
+
+
+    @Benchmark
+    public void selectAndDeselectCar() throws EntityNotFoundException, ConstraintsViolationException, CarAlreadyInUseException
+    {
+        driverService.selectCar(selectingDriverId, freeCarId);
+        driverService.deselectCar(selectingDriverId);
+    }
+}
@@ -0,0 +1,146 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.service.driver.DriverStateStore;
+import java.lang.management.ManagementFactory;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup, position update and online count over all drivers, kept as a map of {@link DriverDO}s and in the
+ * {@link DriverStateStore}. The heap retained by either is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class DriverStateStoreBenchmark
+{
+    @Param({"objects", "store"})
+    private String representation;
+
+    @Param({"1000000"})
+    private int size;
+
+    private Map<Long, DriverDO> drivers;
+    private DriverStateStore store;
+
+
+    @Setup
+    public void setUp()
+    {
+        long before = usedHeap();
+        if ("store".equals(representation))
+        {
+            store = new DriverStateStore(size);
+            for (long id = 1; id <= size; id++)
+            {
+                store.put(driver(id));
+            }
+        }
+        else
+        {
+            drivers = new HashMap<>();
+            for (long id = 1; id <= size; id++)
+            {
+                drivers.put(id, driver(id));
+            }
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%n%s retain %d MB for %d drivers, %d bytes per driver%n",
+            representation, retained >> 20, size, retained / size);
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        drivers = null;
+        store = null;
+    }
+
+
+    @Benchmark
+    public Object find()
+    {
+        long id = 1 + ThreadLocalRandom.current().nextInt(size);
+        return store != null ? store.find(id).orElse(null) : drivers.get(id);
+    }
+
+
+    @Benchmark
+    public void updatePosition()
+    {
+        long id = 1 + ThreadLocalRandom.current().nextInt(size);
+        double latitude = 52.52 + id * 1e-7;
+        if (store != null)
+        {
+            store.updatePosition(id, latitude, 13.405, System.currentTimeMillis());
+        }
+        else
+        {
+            DriverDO driver = drivers.get(id);
+            driver.setCoordinate(new GeoCoordinate(latitude, 13.405));
+            driver.setDateCoordinateUpdated(ZonedDateTime.now());
+        }
+    }
+
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long countOnline()
+    {
+        if (store != null)
+        {
+            return store.count(OnlineStatus.ONLINE);
+        }
+        return drivers.values().stream().filter(driver -> driver.getOnlineStatus() == OnlineStatus.ONLINE).count();
+    }
+
+
+    private static DriverDO driver(long id)
+    {
+        DriverDO driver = new DriverDO(BenchmarkFleet.username(id), "pw", new GeoCoordinate(52.52 + id * 1e-7, 13.405 - id * 1e-7));
+        driver.setId(id);
+        driver.setDateCoordinateUpdated(ZonedDateTime.now());
+        driver.setOnlineStatus(id % 2 == 0 ? OnlineStatus.ONLINE : OnlineStatus.OFFLINE);
+        if (id % 2 == 0)
+        {
+            CarDO car = new CarDO("BENCH-" + id, 4, false, (int) (id % 5), EngineType.ELECTRIC, "Tesla", "3");
+            car.setId(id);
+            driver.setCar(car);
+        }
+        return driver;
+    }
+
+
+    private static long usedHeap()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,58 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Construction and range validation of coordinates, done for every location update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoCoordinateBenchmark
+{
+    private double latitude = 52.52;
+    private double longitude = 13.405;
+
+
+    @Benchmark
+    public GeoCoordinate construct()
+    {
+        return new GeoCoordinate(latitude, longitude);
+    }
+
+
+    @Benchmark
+    public void validateOnly(Blackhole blackhole)
+    {
+        GeoCoordinate.checkLatitudeAndLongitude(latitude, longitude);
+        blackhole.consume(latitude);
+    }
+
+
+    @Benchmark
+    public Object constructInvalid()
+    {
+        try
+        {
+            return new GeoCoordinate(latitude + 90, longitude);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return e;
+        }
+    }
+}
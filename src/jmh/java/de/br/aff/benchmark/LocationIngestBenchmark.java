@@ -0,0 +1,79 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.domainvalue.DriverPosition;
+import de.br.aff.service.location.DriverLocationIndex;
+import de.br.aff.service.location.LatestPositionStore;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The in-memory part of a position ping: the latest position store and the dispatch grid index, without the database
+ * flush. Run with -prof gc to see the allocation per ping, and -jvmArgsAppend -verbose:gc for the collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class LocationIngestBenchmark
+{
+    @Param({"100000"})
+    private int drivers;
+
+    private LatestPositionStore latestPositionStore;
+    private DriverLocationIndex driverLocationIndex;
+
+
+    @Setup
+    public void setUp()
+    {
+        latestPositionStore = new LatestPositionStore();
+        driverLocationIndex = new DriverLocationIndex(0.01);
+        for (long id = 1; id <= drivers; id++)
+        {
+            latestPositionStore.offer(new DriverPosition(id, latitude(id, 0), 13.405, 0));
+            driverLocationIndex.update(id, latitude(id, 0), 13.405);
+        }
+    }
+
+
+    /**
+     * A ping of a random driver, a little further north than its last one.
+     */
+    @Benchmark
+    public boolean ping()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = 1 + random.nextInt(drivers);
+        long timestamp = System.nanoTime();
+        DriverPosition position = new DriverPosition(id, latitude(id, random.nextInt(100)), 13.405, timestamp);
+        return latestPositionStore.offer(position) && driverLocationIndex.updateIfPresent(id, position.getLatitude(), position.getLongitude());
+    }
+
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Long> findNearest()
+    {
+        return driverLocationIndex.findNearest(52.52 + ThreadLocalRandom.current().nextDouble(0.5), 13.405, 2, 10);
+    }
+
+
+    private static double latitude(long id, int step)
+    {
+        return 52.52 + (id % 1000) * 5e-4 + step * 1e-5;
+    }
+}
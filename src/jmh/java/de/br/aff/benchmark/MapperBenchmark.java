@@ -0,0 +1,73 @@
+package de.br.aff.benchmark;
+
+import de.br.aff.controller.mapper.CarMapper;
+import de.br.aff.controller.mapper.DriverMapper;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Entity to DTO list mapping as done by the listing endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class MapperBenchmark
+{
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private List<DriverDO> drivers;
+    private List<CarDO> cars;
+
+
+    @Setup
+    public void setUp()
+    {
+        drivers = new ArrayList<>(size);
+        cars = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++)
+        {
+            CarDO car = new CarDO("BENCH-" + id, 4, false, (int) (id % 100), EngineType.ELECTRIC, "Tesla", "3");
+            car.setId(id);
+            cars.add(car);
+
+            DriverDO driver = new DriverDO(BenchmarkFleet.username(id), "pw", new GeoCoordinate(52.52, 13.405));
+            driver.setId(id);
+            driver.setCar(id % 2 == 0 ? car : null);
+            drivers.add(driver);
+        }
+    }
+
+
+    @Benchmark
+    public Object makeDriverDTOList()
+    {
+        return DriverMapper.makeDriverDTOList(drivers);
+    }
+
+
+    @Benchmark
+    public Object makeCarDTOList()
+    {
+        return CarMapper.makeCarDTOList(cars);
+    }
+}
@@ -0,0 +1,119 @@
+package de.br.aff.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Load test of the web tier in BLOCKING and ASYNC execution mode: many concurrent clients over HTTP with keep-alive, either
+ * all reading pages of cars from the database, or half of them doing that and the other half searching cars in memory.
+ * Throughput is the sustained requests per second, sample time gives the p99 latency.
+ * <p/>
+ * The Tomcat thread pool is kept smaller than the number of clients, so the clients queue for request threads in BLOCKING
+ * mode like under a burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class WebExecutionModeBenchmark
+{
+    private static final int DRIVERS = 100_000;
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder().encodeToString("user:user123".getBytes(StandardCharsets.UTF_8));
+
+    @Param({"BLOCKING", "ASYNC"})
+    private String mode;
+
+    @Param({"16"})
+    private int tomcatThreads;
+
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+    private long cars;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        context = BenchmarkFleet.startWeb(DRIVERS,
+            "--dispatch.web.execution-mode=" + mode,
+            "--server.tomcat.max-threads=" + tomcatThreads,
+            "--dispatch.logging.request-sample-rate=0");
+        baseUrl = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        cars = BenchmarkFleet.cars(DRIVERS);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        context.close();
+    }
+
+
+    @Benchmark
+    public int carPages() throws IOException
+    {
+        return get("/v1/cars?limit=50&after=" + ThreadLocalRandom.current().nextLong(cars - 50));
+    }
+
+
+    @Benchmark
+    public int mixedPagesAndSearches() throws IOException
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return random.nextBoolean()
+            ? get("/v1/cars?limit=50&after=" + random.nextLong(cars - 50))
+            : get("/v1/cars/search?limit=50&minRating=" + random.nextInt(BenchmarkFleet.CAR_RATINGS) + "&after=" + random.nextLong(cars - 50));
+    }
+
+
+    /**
+     * Reads the whole response, so the connection is kept alive and reused by the next request of this thread.
+     */
+    private int get(String path) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestProperty("Authorization", AUTHORIZATION);
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK)
+        {
+            throw new IllegalStateException(path + " answered with " + status);
+        }
+
+        int length = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream body = connection.getInputStream())
+        {
+            for (int read = body.read(buffer); read >= 0; read = body.read(buffer))
+            {
+                length += read;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,123 @@
+package de.br.aff.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.datatransferobject.DriverLocationDTO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Encoding and decoding of the DTO lists sent by the listing and location endpoints, as JSON and as Smile. The payload
+ * sizes are printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark
+{
+    private static final TypeReference<List<DriverDTO>> DRIVERS = new TypeReference<List<DriverDTO>>()
+    {
+    };
+    private static final TypeReference<List<CarDTO>> CARS = new TypeReference<List<CarDTO>>()
+    {
+    };
+    private static final TypeReference<List<DriverLocationDTO>> LOCATIONS = new TypeReference<List<DriverLocationDTO>>()
+    {
+    };
+
+    @Param({"json", "smile"})
+    private String format;
+
+    @Param({"1000"})
+    private int size;
+
+    private ObjectMapper mapper;
+    private List<DriverDTO> drivers;
+    private List<CarDTO> cars;
+    private List<DriverLocationDTO> locations;
+    private byte[] encodedDrivers;
+    private byte[] encodedCars;
+    private byte[] encodedLocations;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        mapper = "smile".equals(format) ? new ObjectMapper(new SmileFactory()) : new ObjectMapper();
+        Jackson2ObjectMapperBuilder.json().findModulesViaServiceLoader(true).configure(mapper);
+
+        drivers = new ArrayList<>(size);
+        cars = new ArrayList<>(size);
+        locations = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++)
+        {
+            double latitude = 52.52 + id * 1e-5;
+            double longitude = 13.405 - id * 1e-5;
+            drivers.add(new DriverDTO(id, BenchmarkFleet.username(id), "pw", new GeoCoordinate(latitude, longitude), id % 2 == 0 ? id : null));
+            cars.add(new CarDTO(id, "BENCH-" + id, 4, false, (int) (id % 5), "ELECTRIC", "Tesla", "3"));
+            locations.add(new DriverLocationDTO(id, latitude, longitude, 1_500_000_000_000L + id));
+        }
+
+        encodedDrivers = mapper.writeValueAsBytes(drivers);
+        encodedCars = mapper.writeValueAsBytes(cars);
+        encodedLocations = mapper.writeValueAsBytes(locations);
+        System.out.printf("%n%s payload for %d DTOs: drivers %d bytes, cars %d bytes, locations %d bytes%n",
+            format, size, encodedDrivers.length, encodedCars.length, encodedLocations.length);
+    }
+
+
+    @Benchmark
+    public byte[] encodeDrivers() throws IOException
+    {
+        return mapper.writeValueAsBytes(drivers);
+    }
+
+
+    @Benchmark
+    public List<DriverDTO> decodeDrivers() throws IOException
+    {
+        return mapper.readValue(encodedDrivers, DRIVERS);
+    }
+
+
+    @Benchmark
+    public byte[] encodeCars() throws IOException
+    {
+        return mapper.writeValueAsBytes(cars);
+    }
+
+
+    @Benchmark
+    public List<CarDTO> decodeCars() throws IOException
+    {
+        return mapper.readValue(encodedCars, CARS);
+    }
+
+
+    @Benchmark
+    public List<DriverLocationDTO> decodeLocations() throws IOException
+    {
+        return mapper.readValue(encodedLocations, LOCATIONS);
+    }
+}
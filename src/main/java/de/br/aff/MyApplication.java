@@ -1,9 +1,10 @@
 package de.br.aff;
 
-import de.br.aff.util.LoggingInterceptor;
+import de.br.aff.util.InFlightRequestsInterceptor;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -16,6 +17,7 @@ import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @EnableSwagger2
+@EnableScheduling
 @SpringBootApplication
 public class MyApplication implements WebMvcConfigurer
 {
@@ -29,7 +31,7 @@ public class MyApplication implements WebMvcConfigurer
     @Override
     public void addInterceptors(InterceptorRegistry registry)
     {
-        registry.addInterceptor(new LoggingInterceptor()).addPathPatterns("/**");
+        registry.addInterceptor(new InFlightRequestsInterceptor()).addPathPatterns("/**");
     }
 
 
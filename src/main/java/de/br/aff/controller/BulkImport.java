@@ -0,0 +1,109 @@
+package de.br.aff.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.br.aff.datatransferobject.BulkResultDTO;
+import de.br.aff.exception.ConstraintsViolationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+/**
+ * Reading and validation of bulk create requests. The rows are sent either as a JSON array or as newline delimited JSON,
+ * invalid rows are reported back instead of failing the whole request.
+ */
+public final class BulkImport
+{
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final int MAX_ROWS = 50000;
+
+
+    private BulkImport()
+    {
+    }
+
+
+    /**
+     * @throws IllegalArgumentException if a row is not valid JSON or there are more than {@link #MAX_ROWS} rows
+     */
+    public static <T> List<T> readRows(ObjectMapper objectMapper, InputStream body, Class<T> rowType) throws IOException
+    {
+        List<T> rows = new ArrayList<>();
+        try (MappingIterator<T> iterator = objectMapper.readerFor(rowType).readValues(body))
+        {
+            while (iterator.hasNextValue())
+            {
+                if (rows.size() == MAX_ROWS)
+                {
+                    throw new IllegalArgumentException("At most " + MAX_ROWS + " rows can be sent at once");
+                }
+                rows.add(iterator.nextValue());
+            }
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalArgumentException("Row " + rows.size() + " can not be read: " + e.getOriginalMessage());
+        }
+        return rows;
+    }
+
+
+    /**
+     * Validates and maps every row, passes the valid ones to the creator and merges its results with the rejected rows.
+     *
+     * @return one result per row, the index is the position of the row in the request
+     */
+    public static <D, E> List<BulkResultDTO> importRows(List<D> rows, Validator validator, Function<D, E> mapper, Creator<E> creator)
+        throws ConstraintsViolationException
+    {
+        BulkResultDTO[] results = new BulkResultDTO[rows.size()];
+        List<E> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+
+        for (int i = 0; i < rows.size(); i++)
+        {
+            Set<ConstraintViolation<D>> violations = validator.validate(rows.get(i));
+            if (!violations.isEmpty())
+            {
+                results[i] = BulkResultDTO.rejected(i, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+                continue;
+            }
+
+            try
+            {
+                accepted.add(mapper.apply(rows.get(i)));
+                acceptedIndexes.add(i);
+            }
+            catch (IllegalArgumentException e)
+            {
+                results[i] = BulkResultDTO.rejected(i, e.getMessage());
+            }
+        }
+
+        List<BulkResultDTO> created = creator.createAll(accepted);
+        for (int i = 0; i < created.size(); i++)
+        {
+            int index = acceptedIndexes.get(i);
+            results[index] = created.get(i).toBuilder().index(index).build();
+        }
+        return Arrays.asList(results);
+    }
+
+
+    @FunctionalInterface
+    public interface Creator<E>
+    {
+        List<BulkResultDTO> createAll(List<E> entities) throws ConstraintsViolationException;
+    }
+}
@@ -0,0 +1,28 @@
+package de.br.aff.controller;
+
+import de.br.aff.datatransferobject.CacheStatsDTO;
+import de.br.aff.service.cache.FleetCache;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Hit and miss counters of the lookup caches.
+ * <p/>
+ */
+@RestController
+@RequestMapping("internal/v1/caches")
+@RequiredArgsConstructor
+public class CacheController
+{
+    private final FleetCache fleetCache;
+
+
+    @GetMapping
+    public List<CacheStatsDTO> getCacheStats()
+    {
+        return fleetCache.stats();
+    }
+}
@@ -1,16 +1,27 @@
 package de.br.aff.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.br.aff.controller.mapper.CarMapper;
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.datatransferobject.CarDTO;
 import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.CarSearchCriteria;
+import de.br.aff.domainvalue.EngineType;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.car.CarQueryService;
 import de.br.aff.service.car.CarService;
 import de.br.aff.util.Utils;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Set;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,9 +30,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
 
 @RestController
@@ -30,19 +44,73 @@ import static org.springframework.http.HttpStatus.NO_CONTENT;
 public class CarController
 {
     private final CarService carService;
+    private final CarQueryService carQueryService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
 
     @GetMapping("{carId}")
     public CarDTO getCar(@PathVariable long carId) throws EntityNotFoundException
     {
-        return CarMapper.makeCarDTO(carService.find(carId).orElseThrow(() -> new EntityNotFoundException("Car with this id not found")));
+        return carQueryService.find(carId);
     }
 
 
+    /**
+     * Returns all cars, or a single page of cars ordered by id if after or limit is given. The next page starts after the
+     * id of the last car returned.
+     * <p/>
+     * The ETag is the version of the car listing. A poll with a matching If-None-Match is answered with 304 without
+     * reading the cars. It is weak, the listing is sent as JSON or Smile and may be compressed, all of them equivalent.
+     */
     @GetMapping
-    public List<CarDTO> getAllCars()
+    public ResponseEntity<List<CarDTO>> getAllCars(
+        @RequestParam(value = "after", required = false) Long after,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        WebRequest webRequest)
     {
-        return CarMapper.makeCarDTOList(carService.findAll());
+        // the version has to be read before the cars, a write in between must not be hidden behind the older version
+        String eTag = "W/\"" + carQueryService.getCarsVersion() + '"';
+        if (webRequest.checkNotModified(eTag))
+        {
+            return ResponseEntity.status(NOT_MODIFIED).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        List<CarDTO> cars = after == null && limit == null
+            ? carQueryService.findAll()
+            : carQueryService.findAll(after, Utils.checkPageLimit(limit));
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).eTag(eTag).body(cars);
+    }
+
+
+    /**
+     * Returns the cars matching all given filters, ordered by id and paged like {@link #getAllCars(Long, Integer)}.
+     * Several engine types can be given, a car has to have one of them.
+     */
+    @GetMapping("search")
+    public List<CarDTO> searchCars(
+        @RequestParam(value = "minSeatCount", required = false) Integer minSeatCount,
+        @RequestParam(value = "convertible", required = false) Boolean convertible,
+        @RequestParam(value = "engineType", required = false) Set<EngineType> engineTypes,
+        @RequestParam(value = "manufacturer", required = false) String manufacturer,
+        @RequestParam(value = "minRating", required = false) Integer minRating,
+        @RequestParam(value = "maxRating", required = false) Integer maxRating,
+        @RequestParam(value = "withDriver", required = false) Boolean withDriver,
+        @RequestParam(value = "after", required = false) Long after,
+        @RequestParam(value = "limit", required = false) Integer limit)
+    {
+        CarSearchCriteria criteria = CarSearchCriteria.builder()
+            .minSeatCount(minSeatCount)
+            .convertible(convertible)
+            .engineTypes(engineTypes)
+            .manufacturer(manufacturer)
+            .minRating(minRating)
+            .maxRating(maxRating)
+            .withDriver(withDriver)
+            .build();
+
+        return carQueryService.search(criteria, after, Utils.checkPageLimit(limit));
     }
 
 
@@ -58,6 +126,19 @@ public class CarController
     }
 
 
+    /**
+     * Creates the cars sent as JSON array or newline delimited JSON. License plates that are taken or repeated within the
+     * request are reported per row, the other cars are created.
+     */
+    @PostMapping(value = "bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkImport.APPLICATION_NDJSON_VALUE})
+    public List<BulkResultDTO> createCars(InputStream body) throws IOException, ConstraintsViolationException
+    {
+        List<CarDTO> cars = BulkImport.readRows(objectMapper, body, CarDTO.class);
+
+        return BulkImport.importRows(cars, validator, CarMapper::makeCarDO, carService::createAll);
+    }
+
+
     @PutMapping("{carId}")
     public ResponseEntity updateCar(@PathVariable Long carId, @Valid @RequestBody CarDTO carDTOSent) throws EntityNotFoundException, ConstraintsViolationException
     {
@@ -1,10 +1,10 @@
 package de.br.aff.controller;
 
-import de.br.aff.controller.mapper.DriverMapper;
 import de.br.aff.datatransferobject.DriverDTO;
 import de.br.aff.exception.CarAlreadyInUseException;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.driver.DriverQueryService;
 import de.br.aff.service.driver.DriverService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -26,12 +26,13 @@ import org.springframework.web.bind.annotation.RestController;
 public class DriverController
 {
     private final DriverService driverService;
+    private final DriverQueryService driverQueryService;
 
 
     @GetMapping("/{driverId}")
     public DriverDTO findDriver(@PathVariable long driverId) throws EntityNotFoundException
     {
-        return DriverMapper.makeDriverDTO(driverService.find(driverId));
+        return driverQueryService.find(driverId);
     }
 
 
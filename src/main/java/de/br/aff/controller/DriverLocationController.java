@@ -0,0 +1,46 @@
+package de.br.aff.controller;
+
+import de.br.aff.controller.mapper.DriverMapper;
+import de.br.aff.datatransferobject.DriverLocationDTO;
+import de.br.aff.service.location.DriverLocationService;
+import java.util.List;
+import javax.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.ACCEPTED;
+
+/**
+ * Ingest endpoint for position pings sent by the driver apps. Positions are acknowledged once they are in memory and are
+ * written to the database asynchronously.
+ * <p/>
+ */
+@RestController
+@Validated
+@RequestMapping("internal/v1/drivers/locations")
+@RequiredArgsConstructor
+public class DriverLocationController
+{
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    private final DriverLocationService driverLocationService;
+
+
+    @PostMapping
+    public ResponseEntity ingestLocations(@RequestBody List<@Valid DriverLocationDTO> locations)
+    {
+        if (locations.size() > MAX_BATCH_SIZE)
+        {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " locations can be sent at once");
+        }
+
+        driverLocationService.ingest(DriverMapper.makeDriverPositionList(locations, System.currentTimeMillis()));
+
+        return ResponseEntity.status(ACCEPTED).build();
+    }
+}
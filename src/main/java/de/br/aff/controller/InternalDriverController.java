@@ -1,18 +1,30 @@
 package de.br.aff.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.br.aff.controller.mapper.DriverMapper;
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.datatransferobject.DriverDTO;
 import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.DriverChangeFilter;
+import de.br.aff.domainvalue.GeoCoordinate;
 import de.br.aff.domainvalue.OnlineStatus;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.driver.DriverChangeBroadcaster;
+import de.br.aff.service.driver.DriverQueryService;
 import de.br.aff.service.driver.DriverService;
 import de.br.aff.util.Utils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,6 +35,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
@@ -33,46 +47,147 @@ import static org.springframework.http.HttpStatus.NO_CONTENT;
 public class InternalDriverController
 {
     private final DriverService driverService;
+    private final DriverQueryService driverQueryService;
+    private final DriverChangeBroadcaster driverChangeBroadcaster;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
 
+    /**
+     * Searches drivers by online status and username. Without any filter a single page of drivers ordered by id is
+     * returned if after or limit is given, the next page starts after the id of the last driver returned.
+     */
     @GetMapping("/drivers")
     public List<DriverDTO> findDrivers(
         @RequestParam(value = "onlinestatus", required = false) String onlineStatus,
-        @RequestParam(value = "username", required = false) String username)
+        @RequestParam(value = "username", required = false) String username,
+        @RequestParam(value = "after", required = false) Long after,
+        @RequestParam(value = "limit", required = false) Integer limit)
     {
-        List<DriverDO> drivers = driverService.find(username, onlineStatus != null ? OnlineStatus.valueOf(onlineStatus.toUpperCase()) : null);
+        if (after != null || limit != null)
+        {
+            if (onlineStatus != null || username != null)
+            {
+                throw new IllegalArgumentException("after and limit can not be combined with onlinestatus or username");
+            }
+            return driverQueryService.findAll(after, Utils.checkPageLimit(limit));
+        }
+
+        return driverQueryService.find(username, onlineStatus != null ? OnlineStatus.valueOf(onlineStatus.toUpperCase()) : null);
+    }
 
-        drivers = filterDeletedDriversOut(drivers);
 
-        return DriverMapper.makeDriverDTOList(drivers);
+    /**
+     * Writes all drivers as a JSON array while they are read from the database, without building the whole list in
+     * memory first.
+     */
+    @GetMapping("/drivers/stream")
+    public ResponseEntity<StreamingResponseBody> streamDrivers()
+    {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream))
+            {
+                generator.writeStartArray();
+                driverQueryService.forEachDriver(driver -> {
+                    try
+                    {
+                        generator.writeObject(driver);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+
+    /**
+     * Subscribes to the changes of drivers as server-sent events instead of polling all drivers: status, car and
+     * coordinate changes made through the API, deletions and position pings. The changes can be filtered by a bounding
+     * box and by online status. A subscriber that can not keep up is disconnected and has to subscribe again.
+     */
+    @GetMapping("/drivers/changes")
+    public SseEmitter subscribeToDriverChanges(
+        @RequestParam(value = "minlatitude", required = false) Double minLatitude,
+        @RequestParam(value = "maxlatitude", required = false) Double maxLatitude,
+        @RequestParam(value = "minlongitude", required = false) Double minLongitude,
+        @RequestParam(value = "maxlongitude", required = false) Double maxLongitude,
+        @RequestParam(value = "onlinestatus", required = false) Set<OnlineStatus> onlineStatuses)
+    {
+        return driverChangeBroadcaster.subscribe(DriverChangeFilter.builder()
+            .minLatitude(minLatitude)
+            .maxLatitude(maxLatitude)
+            .minLongitude(minLongitude)
+            .maxLongitude(maxLongitude)
+            .onlineStatuses(onlineStatuses)
+            .build());
     }
 
 
     @GetMapping("/cars/rating/{carRating}/drivers")
     public List<DriverDTO> findDriversByCarRatings(@PathVariable int carRating)
     {
-        List<DriverDO> drivers = driverService.findByCarRating(carRating);
+        return driverQueryService.findByCarRating(carRating);
+    }
 
-        drivers = filterDeletedDriversOut(drivers);
 
-        return DriverMapper.makeDriverDTOList(drivers);
+    /**
+     * Returns the drivers whose car is rated at least minrating, best rated first.
+     */
+    @GetMapping("/cars/rating/drivers")
+    public List<DriverDTO> findDriversByMinCarRating(
+        @RequestParam("minrating") int minRating,
+        @RequestParam(value = "limit", required = false) Integer limit)
+    {
+        return driverQueryService.findByMinCarRating(minRating, Utils.checkPageLimit(limit));
     }
 
 
     @GetMapping("/cars/licenseplate/{licensePlate}/drivers")
     public DriverDTO findDriverByLicensePlate(@PathVariable String licensePlate) throws EntityNotFoundException
     {
-        DriverDO driver = driverService.findByLicensePlate(licensePlate);
+        return driverQueryService.findByLicensePlate(licensePlate);
+    }
+
+
+    @GetMapping("/drivers/nearby")
+    public List<DriverDTO> findNearbyDrivers(
+        @RequestParam("latitude") double latitude,
+        @RequestParam("longitude") double longitude,
+        @RequestParam(value = "radiuskm", defaultValue = "5") double radiusKm,
+        @RequestParam(value = "limit", defaultValue = "10") int limit)
+    {
+        if (radiusKm <= 0)
+        {
+            throw new IllegalArgumentException("radiuskm has to be positive");
+        }
 
-        return DriverMapper.makeDriverDTO(driver);
+        return driverQueryService.findNearby(new GeoCoordinate(latitude, longitude), radiusKm, Utils.checkPageLimit(limit));
     }
 
 
-    private List<DriverDO> filterDeletedDriversOut(List<DriverDO> drivers)
+    /**
+     * Returns the drivers available for dispatch around the given point with the best rated cars.
+     */
+    @GetMapping("/drivers/nearby/toprated")
+    public List<DriverDTO> findTopRatedNearbyDrivers(
+        @RequestParam("latitude") double latitude,
+        @RequestParam("longitude") double longitude,
+        @RequestParam(value = "radiuskm", defaultValue = "5") double radiusKm,
+        @RequestParam(value = "minrating", defaultValue = "0") int minRating,
+        @RequestParam(value = "limit", defaultValue = "10") int limit)
     {
-        return drivers.stream().filter(driverDO ->
-            !driverDO.getDeleted()
-        ).collect(Collectors.toList());
+        if (radiusKm <= 0)
+        {
+            throw new IllegalArgumentException("radiuskm has to be positive");
+        }
+
+        return driverQueryService.findTopRatedNearby(new GeoCoordinate(latitude, longitude), radiusKm, minRating, Utils.checkPageLimit(limit));
     }
 
 
@@ -86,6 +201,19 @@ public class InternalDriverController
     }
 
 
+    /**
+     * Creates the drivers sent as JSON array or newline delimited JSON. Usernames that are taken or repeated within the
+     * request are reported per row, the other drivers are created.
+     */
+    @PostMapping(value = "/drivers/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkImport.APPLICATION_NDJSON_VALUE})
+    public List<BulkResultDTO> createDrivers(InputStream body) throws IOException, ConstraintsViolationException
+    {
+        List<DriverDTO> drivers = BulkImport.readRows(objectMapper, body, DriverDTO.class);
+
+        return BulkImport.importRows(drivers, validator, DriverMapper::makeDriverDO, driverService::createAll);
+    }
+
+
     @DeleteMapping("/drivers/{driverId}")
     public ResponseEntity deleteDriver(@PathVariable long driverId) throws EntityNotFoundException
     {
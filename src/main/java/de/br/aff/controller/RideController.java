@@ -0,0 +1,79 @@
+package de.br.aff.controller;
+
+import de.br.aff.controller.mapper.RideMapper;
+import de.br.aff.datatransferobject.RideDTO;
+import de.br.aff.datatransferobject.RideRequestDTO;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.dispatch.DispatchService;
+import de.br.aff.util.Utils;
+import javax.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+
+/**
+ * Ride requests: a request is answered with the driver reserved for it, the driver stays reserved until the ride is
+ * completed.
+ * <p/>
+ */
+@RestController
+@RequestMapping("v1/rides")
+@RequiredArgsConstructor
+public class RideController
+{
+    private final DispatchService dispatchService;
+
+
+    /**
+     * Answers asynchronously, in batch mode the ride is assigned when the current batch window closes.
+     */
+    @PostMapping
+    public DeferredResult<ResponseEntity<RideDTO>> requestRide(@Valid @RequestBody RideRequestDTO rideRequestDTO)
+    {
+        UriComponentsBuilder requestUri = ServletUriComponentsBuilder.fromCurrentRequest();
+        DeferredResult<ResponseEntity<RideDTO>> result = new DeferredResult<>();
+
+        dispatchService.submit(rideRequestDTO.getPickup(), RideMapper.makeRideRequirements(rideRequestDTO)).whenComplete((ride, ex) -> {
+            if (ex != null)
+            {
+                result.setErrorResult(ex);
+            }
+            else
+            {
+                result.setResult(ResponseEntity.status(CREATED)
+                    .header(HttpHeaders.LOCATION, Utils.getRideResourceLocation(requestUri, ride))
+                    .body(RideMapper.makeRideDTO(ride)));
+            }
+        });
+        return result;
+    }
+
+
+    @GetMapping("{rideId}")
+    public RideDTO getRide(@PathVariable long rideId) throws EntityNotFoundException
+    {
+        return RideMapper.makeRideDTO(dispatchService.find(rideId));
+    }
+
+
+    @DeleteMapping("{rideId}")
+    public ResponseEntity completeRide(@PathVariable long rideId) throws EntityNotFoundException
+    {
+        dispatchService.complete(rideId);
+
+        return ResponseEntity.status(NO_CONTENT).build();
+    }
+}
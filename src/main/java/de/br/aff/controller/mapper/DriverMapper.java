@@ -1,7 +1,10 @@
 package de.br.aff.controller.mapper;
 
+import com.google.common.base.Preconditions;
 import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.datatransferobject.DriverLocationDTO;
 import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.DriverPosition;
 import de.br.aff.domainvalue.GeoCoordinate;
 import java.util.Collection;
 import java.util.List;
@@ -39,4 +42,23 @@ public class DriverMapper
             .map(DriverMapper::makeDriverDTO)
             .collect(Collectors.toList());
     }
+
+
+    public static DriverPosition makeDriverPosition(DriverLocationDTO driverLocationDTO, long receivedAt)
+    {
+        Preconditions.checkArgument(driverLocationDTO.getDriverId() != null, "driverId can not be null");
+        Preconditions.checkArgument(driverLocationDTO.getLatitude() != null, "latitude can not be null");
+        Preconditions.checkArgument(driverLocationDTO.getLongitude() != null, "longitude can not be null");
+
+        return new DriverPosition(driverLocationDTO.getDriverId(), driverLocationDTO.getLatitude(), driverLocationDTO.getLongitude(),
+            driverLocationDTO.getTimestamp() != null ? driverLocationDTO.getTimestamp() : receivedAt);
+    }
+
+
+    public static List<DriverPosition> makeDriverPositionList(Collection<DriverLocationDTO> locations, long receivedAt)
+    {
+        return locations.stream()
+            .map(location -> makeDriverPosition(location, receivedAt))
+            .collect(Collectors.toList());
+    }
 }
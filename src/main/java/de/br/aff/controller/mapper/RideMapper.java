@@ -0,0 +1,33 @@
+package de.br.aff.controller.mapper;
+
+import de.br.aff.datatransferobject.RideDTO;
+import de.br.aff.datatransferobject.RideRequestDTO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.RideAssignment;
+import de.br.aff.domainvalue.RideRequirements;
+
+public class RideMapper
+{
+
+    public static RideRequirements makeRideRequirements(RideRequestDTO rideRequestDTO)
+    {
+        return RideRequirements.builder()
+            .minRating(rideRequestDTO.getMinRating() != null ? rideRequestDTO.getMinRating() : 0)
+            .minSeatCount(rideRequestDTO.getMinSeatCount() != null ? rideRequestDTO.getMinSeatCount() : 0)
+            .engineType(rideRequestDTO.getEngineType() != null ? EngineType.valueOf(rideRequestDTO.getEngineType().toUpperCase()) : null)
+            .convertible(rideRequestDTO.getConvertible())
+            .build();
+    }
+
+
+    public static RideDTO makeRideDTO(RideAssignment ride)
+    {
+        return RideDTO.builder()
+            .id(ride.getRideId())
+            .driverId(ride.getDriverId())
+            .carId(ride.getCarId())
+            .pickup(ride.getPickup())
+            .distanceKm(ride.getDistanceKm())
+            .build();
+    }
+}
@@ -0,0 +1,43 @@
+package de.br.aff.dataaccessobject;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Inserts new entities in JDBC batches. The persistence context is flushed and cleared after every batch, so the memory
+ * used does not grow with the number of rows.
+ * <p/>
+ */
+@Repository
+public class BulkInsertRepository
+{
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
+
+
+    /**
+     * Inserts all entities in one transaction, the ids are assigned to the given instances.
+     */
+    @Transactional
+    public <T> void insertAll(List<T> entities)
+    {
+        for (int i = 0; i < entities.size(); i++)
+        {
+            entityManager.persist(entities.get(i));
+            if ((i + 1) % batchSize == 0)
+            {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
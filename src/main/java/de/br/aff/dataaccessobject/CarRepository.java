@@ -1,13 +1,42 @@
 package de.br.aff.dataaccessobject;
 
+import de.br.aff.datatransferobject.CarDTO;
 import de.br.aff.domainobject.CarDO;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface CarRepository extends JpaRepository<CarDO, Long>
 {
     Optional<CarDO> findByLicensePlate(String licensePlate);
 
     List<CarDO> findByRating(int rating);
+
+    List<CarDO> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    boolean existsByLicensePlate(String licensePlate);
+
+    @Query("select c.licensePlate from CarDO c where c.licensePlate in :licensePlates")
+    List<String> findLicensePlatesIn(@Param("licensePlates") Collection<String> licensePlates);
+
+    @Query("select d.car.id from DriverDO d where d.car is not null")
+    List<Long> findIdsWithDriver();
+
+    // Projections for the read path: the rows are turned into DTOs directly, no entity is loaded into the persistence context.
+
+    String SELECT_CAR_DTO = "select new de.br.aff.datatransferobject.CarDTO(c.id, c.licensePlate, c.seatCount, c.convertible, c.rating, "
+        + "str(c.engineType), c.manufacturer, c.model) from CarDO c";
+
+    @Query(SELECT_CAR_DTO + " where c.id = :id")
+    Optional<CarDTO> findDTOById(@Param("id") Long id);
+
+    @Query(SELECT_CAR_DTO)
+    List<CarDTO> findDTOs();
+
+    @Query(SELECT_CAR_DTO + " where c.id > :id order by c.id")
+    List<CarDTO> findDTOsByIdGreaterThan(@Param("id") Long id, Pageable pageable);
 }
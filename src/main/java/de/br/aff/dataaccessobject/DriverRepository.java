@@ -1,26 +1,102 @@
 package de.br.aff.dataaccessobject;
 
+import de.br.aff.datatransferobject.DriverDTO;
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.domainobject.DriverDO;
 import de.br.aff.domainvalue.OnlineStatus;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Database Access Object for driver table.
  * <p/>
+ * Drivers are soft deleted, finders used by the API only return drivers which are not deleted. The car of a driver is
+ * fetched in the same statement, otherwise the eager one-to-one would be loaded with an extra select per driver.
  */
-public interface DriverRepository extends CrudRepository<DriverDO, Long>
+public interface DriverRepository extends CrudRepository<DriverDO, Long>, DriverRepositoryCustom
 {
 
-    List<DriverDO> findByOnlineStatus(OnlineStatus onlineStatus);
+    @EntityGraph(attributePaths = "car")
+    Optional<DriverDO> findByIdAndDeletedFalse(Long id);
+
+    @EntityGraph(attributePaths = "car")
+    List<DriverDO> findByDeletedFalse();
+
+    @EntityGraph(attributePaths = "car")
+    List<DriverDO> findByOnlineStatusAndDeletedFalse(OnlineStatus onlineStatus);
 
     Optional<DriverDO> findByCar(CarDO car);
 
-    List<DriverDO> findByUsername(String username);
+    /**
+     * Usernames are unique among deleted drivers as well.
+     */
+    @Query("select d.username from DriverDO d where d.username in :usernames")
+    List<String> findUsernamesIn(@Param("usernames") Collection<String> usernames);
+
+    @EntityGraph(attributePaths = "car")
+    List<DriverDO> findByUsernameAndDeletedFalse(String username);
+
+    @EntityGraph(attributePaths = "car")
+    List<DriverDO> findByUsernameAndOnlineStatusAndDeletedFalse(String username, OnlineStatus onlineStatus);
+
+    /**
+     * Loads the drivers together with their cars in one statement.
+     */
+    @Query("select d from DriverDO d join fetch d.car c where c.rating = :rating and d.deleted = false")
+    List<DriverDO> findByCarRatingAndDeletedFalse(@Param("rating") int rating);
+
+    /**
+     * Loads the driver together with its car in one statement.
+     */
+    @Query("select d from DriverDO d join fetch d.car c where c.licensePlate = :licensePlate and d.deleted = false")
+    Optional<DriverDO> findByCarLicensePlateAndDeletedFalse(@Param("licensePlate") String licensePlate);
+
+    @EntityGraph(attributePaths = "car")
+    List<DriverDO> findByIdGreaterThanAndDeletedFalseOrderByIdAsc(Long id, Pageable pageable);
+
+    // Projections for the read path: the rows are turned into DTOs directly, no entity is loaded into the persistence context.
+
+    String SELECT_DRIVER_DTO = "select new de.br.aff.datatransferobject.DriverDTO(d.id, d.username, d.password, d.coordinate, c.id) "
+        + "from DriverDO d left join d.car c where d.deleted = false";
+
+    @Query(SELECT_DRIVER_DTO + " and d.id = :id")
+    Optional<DriverDTO> findDTOById(@Param("id") Long id);
+
+    @Query(SELECT_DRIVER_DTO)
+    List<DriverDTO> findDTOs();
+
+    @Query(SELECT_DRIVER_DTO + " and d.onlineStatus = :onlineStatus")
+    List<DriverDTO> findDTOsByOnlineStatus(@Param("onlineStatus") OnlineStatus onlineStatus);
+
+    @Query(SELECT_DRIVER_DTO + " and d.username = :username")
+    List<DriverDTO> findDTOsByUsername(@Param("username") String username);
+
+    @Query(SELECT_DRIVER_DTO + " and d.username = :username and d.onlineStatus = :onlineStatus")
+    List<DriverDTO> findDTOsByUsernameAndOnlineStatus(@Param("username") String username, @Param("onlineStatus") OnlineStatus onlineStatus);
+
+    @Query(SELECT_DRIVER_DTO + " and c.rating = :rating")
+    List<DriverDTO> findDTOsByCarRating(@Param("rating") int rating);
+
+    /**
+     * Best rated cars first, answered by the index on the car rating.
+     */
+    @Query(SELECT_DRIVER_DTO + " and c.rating >= :minRating order by c.rating desc, d.id")
+    List<DriverDTO> findDTOsByMinCarRating(@Param("minRating") int minRating, Pageable pageable);
+
+    @Query(SELECT_DRIVER_DTO + " and c.licensePlate = :licensePlate")
+    Optional<DriverDTO> findDTOByCarLicensePlate(@Param("licensePlate") String licensePlate);
+
+    @Query(SELECT_DRIVER_DTO + " and d.id > :id order by d.id")
+    List<DriverDTO> findDTOsByIdGreaterThan(@Param("id") Long id, Pageable pageable);
 
-    List<DriverDO> findByUsernameAndOnlineStatus(String username, OnlineStatus onlineStatus);
+    @Query(SELECT_DRIVER_DTO + " and d.id in :ids and d.onlineStatus = :onlineStatus")
+    List<DriverDTO> findDTOsByIdInAndOnlineStatus(@Param("ids") Collection<Long> ids, @Param("onlineStatus") OnlineStatus onlineStatus);
 }
 
 
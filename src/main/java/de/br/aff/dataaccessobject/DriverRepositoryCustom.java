@@ -0,0 +1,25 @@
+package de.br.aff.dataaccessobject;
+
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.datatransferobject.DriverStateDTO;
+import java.util.function.Consumer;
+
+/**
+ * Driver table access that can not be expressed with derived queries.
+ * <p/>
+ */
+public interface DriverRepositoryCustom
+{
+
+    /**
+     * Streams all drivers that are not deleted ordered by id. The rows are projected to DTOs which are not managed by the
+     * persistence context, so the memory used does not grow with the size of the table.
+     */
+    void forEachNotDeleted(Consumer<DriverDTO> consumer);
+
+
+    /**
+     * Streams the dispatch relevant state of all drivers that are not deleted, like {@link #forEachNotDeleted(Consumer)}.
+     */
+    void forEachNotDeletedState(Consumer<DriverStateDTO> consumer);
+}
@@ -0,0 +1,49 @@
+package de.br.aff.dataaccessobject;
+
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.datatransferobject.DriverStateDTO;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+public class DriverRepositoryImpl implements DriverRepositoryCustom
+{
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String SELECT_DRIVER_STATE_DTO = "select new de.br.aff.datatransferobject.DriverStateDTO("
+        + "d.id, d.onlineStatus, d.coordinate, d.dateCoordinateUpdated, c.id, c.rating, c.seatCount) "
+        + "from DriverDO d left join d.car c where d.deleted = false";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachNotDeleted(Consumer<DriverDTO> consumer)
+    {
+        try (Stream<DriverDTO> drivers = entityManager.unwrap(Session.class)
+            .createQuery(DriverRepository.SELECT_DRIVER_DTO + " order by d.id", DriverDTO.class)
+            .setFetchSize(STREAM_FETCH_SIZE)
+            .stream())
+        {
+            drivers.forEach(consumer);
+        }
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachNotDeletedState(Consumer<DriverStateDTO> consumer)
+    {
+        try (Stream<DriverStateDTO> drivers = entityManager.unwrap(Session.class)
+            .createQuery(SELECT_DRIVER_STATE_DTO, DriverStateDTO.class)
+            .setFetchSize(STREAM_FETCH_SIZE)
+            .stream())
+        {
+            drivers.forEach(consumer);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package de.br.aff.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Outcome of a single row of a bulk create request: either the id of the created entity or the reason it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder(toBuilder = true)
+@Getter
+public class BulkResultDTO
+{
+    private int index;
+    private Long id;
+    private String error;
+
+
+    public static BulkResultDTO created(int index, Long id)
+    {
+        return BulkResultDTO.builder().index(index).id(id).build();
+    }
+
+
+    public static BulkResultDTO rejected(int index, String error)
+    {
+        return BulkResultDTO.builder().index(index).error(error).build();
+    }
+}
@@ -0,0 +1,16 @@
+package de.br.aff.datatransferobject;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class CacheStatsDTO
+{
+    private String name;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+}
@@ -1,11 +1,13 @@
 package de.br.aff.datatransferobject;
 
 import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
+@AllArgsConstructor
 @Builder(toBuilder = true)
 @Getter
 @EqualsAndHashCode
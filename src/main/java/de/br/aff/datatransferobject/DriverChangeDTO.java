@@ -0,0 +1,38 @@
+package de.br.aff.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of a driver after a change, pushed to the subscribers of the driver change stream.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Builder
+public class DriverChangeDTO
+{
+    private Long driverId;
+
+    /**
+     * missing for position pings of drivers that can not be dispatched
+     */
+    private OnlineStatus onlineStatus;
+
+    private GeoCoordinate coordinate;
+
+    private Long carId;
+
+    private boolean deleted;
+
+    /**
+     * epoch millis of the change
+     */
+    private long timestamp;
+}
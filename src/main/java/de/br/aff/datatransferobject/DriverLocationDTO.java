@@ -0,0 +1,28 @@
+package de.br.aff.datatransferobject;
+
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Builder
+public class DriverLocationDTO
+{
+    @NotNull(message = "Driver id can not be null!")
+    private Long driverId;
+
+    @NotNull(message = "Latitude can not be null!")
+    private Double latitude;
+
+    @NotNull(message = "Longitude can not be null!")
+    private Double longitude;
+
+    /**
+     * epoch millis, the time of receiving is used when missing
+     */
+    private Long timestamp;
+}
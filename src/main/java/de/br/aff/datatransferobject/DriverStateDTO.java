@@ -0,0 +1,29 @@
+package de.br.aff.datatransferobject;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import java.time.ZonedDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The fields of a driver and its car that dispatch works with, projected by a query without loading the entities.
+ */
+@AllArgsConstructor
+@Getter
+public class DriverStateDTO
+{
+    private Long id;
+
+    private OnlineStatus onlineStatus;
+
+    private GeoCoordinate coordinate;
+
+    private ZonedDateTime dateCoordinateUpdated;
+
+    private Long carId;
+
+    private Integer carRating;
+
+    private Integer carSeatCount;
+}
@@ -0,0 +1,24 @@
+package de.br.aff.datatransferobject;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Builder
+public class RideDTO
+{
+    private Long id;
+
+    private Long driverId;
+
+    private Long carId;
+
+    private GeoCoordinate pickup;
+
+    private double distanceKm;
+}
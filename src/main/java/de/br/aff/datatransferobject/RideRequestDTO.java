@@ -0,0 +1,26 @@
+package de.br.aff.datatransferobject;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Builder
+public class RideRequestDTO
+{
+    @NotNull(message = "Pickup can not be null!")
+    private GeoCoordinate pickup;
+
+    private Integer minRating;
+
+    private Integer minSeatCount;
+
+    private String engineType;
+
+    private Boolean convertible;
+}
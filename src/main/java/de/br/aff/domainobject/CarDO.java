@@ -7,8 +7,11 @@ import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
@@ -27,12 +30,14 @@ import org.springframework.format.annotation.DateTimeFormat;
 @Entity
 @Table(
     name = "car",
-    uniqueConstraints = @UniqueConstraint(name = "license_plate", columnNames = {"licensePlate"})
+    uniqueConstraints = @UniqueConstraint(name = "license_plate", columnNames = {"licensePlate"}),
+    indexes = @Index(name = "car_rating", columnList = "rating")
 )
 public class CarDO
 {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_sequence")
+    @SequenceGenerator(name = "car_sequence", sequenceName = "car_sequence", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
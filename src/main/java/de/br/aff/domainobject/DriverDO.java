@@ -10,9 +10,12 @@ import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
@@ -21,12 +24,18 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.format.annotation.DateTimeFormat;
 
 @Entity
+@DynamicUpdate
 @Table(
     name = "driver",
-    uniqueConstraints = @UniqueConstraint(name = "uc_username", columnNames = {"username"})
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uc_username", columnNames = {"username"}),
+        @UniqueConstraint(name = "uc_car", columnNames = {"car_id"})
+    },
+    indexes = @Index(name = "idx_deleted_online_status", columnList = "deleted, onlineStatus")
 )
 @NoArgsConstructor
 @Getter
@@ -35,7 +44,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 public class DriverDO
 {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "driver_sequence")
+    @SequenceGenerator(name = "driver_sequence", sequenceName = "driver_sequence", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,27 @@
+package de.br.aff.domainvalue;
+
+import java.util.Set;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Filter of a car search. Criteria that are not given accept every car.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+@ToString
+public class CarSearchCriteria
+{
+    public static final CarSearchCriteria NONE = CarSearchCriteria.builder().build();
+
+    private final Integer minSeatCount;
+    private final Boolean convertible;
+    private final Set<EngineType> engineTypes;
+    private final String manufacturer;
+    private final Integer minRating;
+    private final Integer maxRating;
+    private final Boolean withDriver;
+}
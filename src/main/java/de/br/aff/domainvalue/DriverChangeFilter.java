@@ -0,0 +1,76 @@
+package de.br.aff.domainvalue;
+
+import java.util.Set;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Filter of a driver change subscription. Criteria that are not given accept every change, a bounding box is given with
+ * all four bounds or not at all.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+@ToString
+public class DriverChangeFilter
+{
+    public static final DriverChangeFilter NONE = DriverChangeFilter.builder().build();
+
+    private final Double minLatitude;
+    private final Double maxLatitude;
+    private final Double minLongitude;
+    private final Double maxLongitude;
+    private final Set<OnlineStatus> onlineStatuses;
+
+
+    /**
+     * @throws IllegalArgumentException if the bounding box is incomplete or a minimum is greater than its maximum
+     */
+    public void check()
+    {
+        int bounds = (minLatitude != null ? 1 : 0) + (maxLatitude != null ? 1 : 0) + (minLongitude != null ? 1 : 0) + (maxLongitude != null ? 1 : 0);
+        if (bounds != 0 && bounds != 4)
+        {
+            throw new IllegalArgumentException("A bounding box needs min and max latitude and min and max longitude");
+        }
+        if (bounds == 4 && (minLatitude > maxLatitude || minLongitude > maxLongitude))
+        {
+            throw new IllegalArgumentException("Minimum latitude and longitude must not be greater than the maximum");
+        }
+    }
+
+
+    /**
+     * @return whether every change matches, so no driver can ever leave the filter
+     */
+    public boolean acceptsAll()
+    {
+        return onlineStatuses == null && minLatitude == null;
+    }
+
+
+    /**
+     * A change without coordinate never lies within a bounding box, one without status never has one of the statuses.
+     */
+    public boolean matches(OnlineStatus onlineStatus, GeoCoordinate coordinate)
+    {
+        return (onlineStatuses == null || onlineStatuses.contains(onlineStatus)) && contains(coordinate);
+    }
+
+
+    /**
+     * @return whether the coordinate lies within the bounding box, any coordinate does if there is none
+     */
+    public boolean contains(GeoCoordinate coordinate)
+    {
+        if (minLatitude == null)
+        {
+            return true;
+        }
+        return coordinate != null
+            && coordinate.getLatitude() >= minLatitude && coordinate.getLatitude() <= maxLatitude
+            && coordinate.getLongitude() >= minLongitude && coordinate.getLongitude() <= maxLongitude;
+    }
+}
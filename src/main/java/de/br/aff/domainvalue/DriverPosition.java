@@ -0,0 +1,33 @@
+package de.br.aff.domainvalue;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Position of a driver reported at a given point in time.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class DriverPosition
+{
+    private final long driverId;
+    private final double latitude;
+    private final double longitude;
+    private final long timestamp;
+
+
+    /**
+     * @param timestamp - epoch millis of the moment the position was recorded
+     */
+    public DriverPosition(long driverId, double latitude, double longitude, long timestamp)
+    {
+        GeoCoordinate.checkLatitudeAndLongitude(latitude, longitude);
+
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+}
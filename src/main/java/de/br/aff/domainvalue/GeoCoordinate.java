@@ -32,13 +32,24 @@ public class GeoCoordinate
      */
     @JsonCreator
     public GeoCoordinate(final double latitude, final double longitude)
+    {
+        checkLatitudeAndLongitude(latitude, longitude);
+
+        this.point = new Point(longitude, latitude);
+    }
+
+
+    /**
+     * Validates raw coordinate values without creating an instance.
+     *
+     * @throws IllegalArgumentException if latitude or longitude is out of range
+     */
+    public static void checkLatitudeAndLongitude(final double latitude, final double longitude)
     {
         Preconditions.checkArgument(latitude >= MIN_LATITUDE, "latitude is lower than min_latitude: " + MIN_LATITUDE);
         Preconditions.checkArgument(latitude <= MAX_LATITUDE, "latitude is higher than max_latitude: " + MAX_LATITUDE);
         Preconditions.checkArgument(longitude >= MIN_LONGITUDE, "longitude is lower than min_longitude: " + MIN_LONGITUDE);
         Preconditions.checkArgument(longitude <= MAX_LONGITUDE, "longitude is higher than max_longitude: " + MAX_LONGITUDE);
-
-        this.point = new Point(longitude, latitude);
     }
 
 
@@ -0,0 +1,26 @@
+package de.br.aff.domainvalue;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A ride request and the driver reserved for it.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class RideAssignment
+{
+    private final long rideId;
+    private final long driverId;
+    private final long carId;
+    private final GeoCoordinate pickup;
+
+    /**
+     * distance between the driver and the pickup when the driver was assigned
+     */
+    private final double distanceKm;
+}
@@ -0,0 +1,32 @@
+package de.br.aff.domainvalue;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Constraints a ride request puts on the car. Constraints that are not given accept every car.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+@ToString
+public class RideRequirements
+{
+    public static final RideRequirements NONE = RideRequirements.builder().build();
+
+    private final int minRating;
+    private final int minSeatCount;
+    private final EngineType engineType;
+    private final Boolean convertible;
+
+
+    public boolean isSatisfiedBy(int rating, int seatCount, EngineType engineType, boolean convertible)
+    {
+        return rating >= minRating
+            && seatCount >= minSeatCount
+            && (this.engineType == null || this.engineType == engineType)
+            && (this.convertible == null || this.convertible == convertible);
+    }
+}
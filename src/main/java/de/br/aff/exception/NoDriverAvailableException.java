@@ -0,0 +1,10 @@
+package de.br.aff.exception;
+
+public class NoDriverAvailableException extends Exception
+{
+    public NoDriverAvailableException(String message)
+    {
+        super(message);
+    }
+
+}
@@ -1,28 +1,41 @@
 package de.br.aff.exception;
 
 import de.br.aff.datatransferobject.ErrorMessage;
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import de.br.aff.util.AsyncLog;
+import de.br.aff.util.StackTraceThrottle;
+import io.micrometer.core.instrument.Metrics;
+import java.util.concurrent.RejectedExecutionException;
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 @ControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class RestControllerExceptionHandler
 {
+    private final AsyncLog asyncLog;
+
+    private final StackTraceThrottle stackTraceThrottle;
+
+
     @ExceptionHandler({ConstraintsViolationException.class, IllegalArgumentException.class, MethodArgumentNotValidException.class, MethodArgumentTypeMismatchException.class,
-        CarAlreadyInUseException.class})
+        CarAlreadyInUseException.class, ConstraintViolationException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ResponseBody
     public ErrorMessage bedRequestHandler(Exception ex, HttpServletRequest request)
     {
+        countError(ex);
         logWarning(ex, request, "constraints violated exception");
         return ErrorMessage.builder(ex.getMessage()).build();
     }
@@ -33,22 +46,52 @@ public class RestControllerExceptionHandler
     @ResponseBody
     public ErrorMessage notFoundHandler(EntityNotFoundException ex, HttpServletRequest request)
     {
+        countError(ex);
         logError(ex, request, "entity not found");
         return ErrorMessage.builder(ex.getMessage()).build();
     }
 
 
+    @ExceptionHandler(NoDriverAvailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public ErrorMessage noDriverAvailableHandler(NoDriverAvailableException ex, HttpServletRequest request)
+    {
+        countError(ex);
+        logWarning(ex, request, "no driver available");
+        return ErrorMessage.builder(ex.getMessage()).build();
+    }
+
+
+    /**
+     * The handler pool or the database connections are exhausted, or the request waited longer than the async timeout.
+     */
+    @ExceptionHandler({RejectedExecutionException.class, CannotCreateTransactionException.class, AsyncRequestTimeoutException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public ErrorMessage overloadedHandler(Exception ex, HttpServletRequest request)
+    {
+        countError(ex);
+        logWarning(ex, request, "overloaded");
+        return ErrorMessage.builder("The service is overloaded, please retry later").build();
+    }
+
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ResponseBody
     public ErrorMessage generalError(Exception ex, HttpServletRequest request)
     {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintStream ps = new PrintStream(baos);
-        ex.printStackTrace(ps);
-        ps.close();
-
-        logError(ex, request, "generalError: " + baos.toString());
+        countError(ex);
+        long suppressed = stackTraceThrottle.admit(ex);
+        if (suppressed == StackTraceThrottle.SUPPRESSED)
+        {
+            asyncLog.error(log, null, "{}, generalError (stack trace suppressed): {}", request.getRequestURI(), ex.toString());
+        }
+        else
+        {
+            asyncLog.error(log, ex, "{}, generalError ({} similar stack traces suppressed before)", request.getRequestURI(), suppressed);
+        }
         return ErrorMessage.builder(ex.getLocalizedMessage() != null ?
             ex.getLocalizedMessage() : ex.getMessage() != null ?
             ex.getMessage() : ex.toString())
@@ -56,14 +99,23 @@ public class RestControllerExceptionHandler
     }
 
 
+    /**
+     * Errors are counted per exception type, the counters are available on the metrics endpoint as api.errors.
+     */
+    private static void countError(Exception ex)
+    {
+        Metrics.counter("api.errors", "exception", ex.getClass().getSimpleName()).increment();
+    }
+
+
     private void logError(Exception ex, HttpServletRequest request, String identifier)
     {
-        log.error(request.getRequestURL().toString() + ", " + identifier + ": " + ex.getMessage());
+        asyncLog.error(log, null, "{}, {}: {}", request.getRequestURI(), identifier, ex.getMessage());
     }
 
 
     private void logWarning(Exception ex, HttpServletRequest request, String identifier)
     {
-        log.warn(request.getRequestURL().toString() + ", " + identifier + ": " + ex.getMessage());
+        asyncLog.warn(log, "{}, {}: {}", request.getRequestURI(), identifier, ex.getMessage());
     }
 }
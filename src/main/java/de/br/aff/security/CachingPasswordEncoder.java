@@ -0,0 +1,99 @@
+package de.br.aff.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Remembers successfully verified passwords for a short time, so API clients sending their credentials with every request
+ * pay the deliberately slow BCrypt compare only once per time to live.
+ * <p/>
+ * Only successful verifications are cached, a wrong password always costs the full compare. The cache key is an HMAC of
+ * the stored hash and the raw password under a random key generated at startup, so the cache holds neither passwords nor
+ * anything that could be attacked offline. A changed password has a different stored hash and is verified again.
+ */
+public class CachingPasswordEncoder implements PasswordEncoder
+{
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final PasswordEncoder delegate;
+    private final Cache<String, Boolean> verified;
+    private final ThreadLocal<Mac> macs;
+
+
+    public CachingPasswordEncoder(PasswordEncoder delegate, long maximumSize, Duration timeToLive)
+    {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        SecretKeySpec key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+
+        this.delegate = delegate;
+        this.verified = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+        this.macs = ThreadLocal.withInitial(() -> newMac(key));
+    }
+
+
+    @Override
+    public String encode(CharSequence rawPassword)
+    {
+        return delegate.encode(rawPassword);
+    }
+
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword)
+    {
+        if (rawPassword == null || encodedPassword == null)
+        {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+
+        String cacheKey = cacheKey(rawPassword, encodedPassword);
+        if (verified.getIfPresent(cacheKey) != null)
+        {
+            return true;
+        }
+
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        if (matches)
+        {
+            verified.put(cacheKey, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+
+    private String cacheKey(CharSequence rawPassword, String encodedPassword)
+    {
+        Mac mac = macs.get();
+        mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return Base64.getEncoder().encodeToString(mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    private static Mac newMac(SecretKeySpec key)
+    {
+        try
+        {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException(HMAC_ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package de.br.aff.security;
 
+import java.time.Duration;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -17,6 +19,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter
 {
     private final AuthEntryPoint authEntryPoint;
 
+    @Value("${dispatch.security.verified-credentials.maximum-size:10000}")
+    private long verifiedCredentialsMaximumSize;
+
+    @Value("${dispatch.security.verified-credentials.time-to-live-seconds:300}")
+    private long verifiedCredentialsTimeToLiveSeconds;
+
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception
@@ -39,9 +47,14 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter
             .authorizeRequests()
             .antMatchers("/v1/**").authenticated()
             .antMatchers("/internal/**").hasRole("ADMIN")
+            .antMatchers("/actuator/health").permitAll()
+            .antMatchers("/actuator/**").hasRole("ADMIN")
             .and()
             .formLogin()
             .and()
+            .httpBasic()
+            .authenticationEntryPoint(authEntryPoint)
+            .and()
             .logout();
 
         //        http.headers().frameOptions().disable()
@@ -52,9 +65,13 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter
     }
 
 
+    /**
+     * BCrypt, with verified credentials cached so API clients using HTTP Basic pay the BCrypt cost only once.
+     */
     @Bean
     public PasswordEncoder encoder()
     {
-        return new BCryptPasswordEncoder();
+        return new CachingPasswordEncoder(new BCryptPasswordEncoder(), verifiedCredentialsMaximumSize,
+            Duration.ofSeconds(verifiedCredentialsTimeToLiveSeconds));
     }
 }
\ No newline at end of file
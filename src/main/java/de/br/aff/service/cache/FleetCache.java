@@ -0,0 +1,97 @@
+package de.br.aff.service.cache;
+
+import de.br.aff.datatransferobject.CacheStatsDTO;
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches of the single car and driver lookups of the API. Driver lookups by license plate are cached under the plate as a
+ * secondary key, so every write that changes a driver or the car assigned to it has to evict both keys.
+ * <p/>
+ * The version of the car listing changes with every write to a car, so clients polling the listing can be answered
+ * without a query as long as it did not change. It is kept in memory and prefixed with the startup time, versions handed
+ * out before a restart never match again.
+ */
+@Component
+@Getter
+public class FleetCache
+{
+    private final LookupCache<Long, CarDTO> cars;
+    private final LookupCache<Long, DriverDTO> drivers;
+    private final LookupCache<String, DriverDTO> driversByLicensePlate;
+
+    private final String carsVersionPrefix = Long.toString(System.currentTimeMillis(), 36) + '-';
+    private final AtomicLong carsVersion = new AtomicLong();
+
+
+    public FleetCache(
+        @Value("${dispatch.cache.maximum-size:10000}") long maximumSize,
+        @Value("${dispatch.cache.time-to-live-seconds:60}") long timeToLiveSeconds)
+    {
+        Duration timeToLive = Duration.ofSeconds(timeToLiveSeconds);
+
+        this.cars = new LookupCache<>("cars", maximumSize, timeToLive);
+        this.drivers = new LookupCache<>("drivers", maximumSize, timeToLive);
+        this.driversByLicensePlate = new LookupCache<>("driversByLicensePlate", maximumSize, timeToLive);
+    }
+
+
+    public void evictCar(CarDO car)
+    {
+        cars.evict(car.getId());
+        driversByLicensePlate.evict(car.getLicensePlate());
+        carsChanged();
+    }
+
+
+    /**
+     * Has to be called for every write to cars that does not evict a car, e.g. when cars are created.
+     */
+    public void carsChanged()
+    {
+        carsVersion.incrementAndGet();
+    }
+
+
+    public String getCarsVersion()
+    {
+        return carsVersionPrefix + carsVersion.get();
+    }
+
+
+    /**
+     * Evicts the driver and the license plate of the car it is currently assigned to.
+     */
+    public void evictDriver(DriverDO driver)
+    {
+        drivers.evict(driver.getId());
+        if (driver.getCar() != null)
+        {
+            driversByLicensePlate.evict(driver.getCar().getLicensePlate());
+        }
+    }
+
+
+    public void evictAll()
+    {
+        cars.evictAll();
+        drivers.evictAll();
+        driversByLicensePlate.evictAll();
+        carsChanged();
+    }
+
+
+    public List<CacheStatsDTO> stats()
+    {
+        return Arrays.asList(cars.stats(), drivers.stats(), driversByLicensePlate.stats());
+    }
+}
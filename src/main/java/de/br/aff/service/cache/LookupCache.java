@@ -0,0 +1,111 @@
+package de.br.aff.service.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import de.br.aff.datatransferobject.CacheStatsDTO;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded read-through cache with a time to live for lookups by a single key.
+ * <p/>
+ * A value loaded while an entry was evicted is not put into the cache, it could have been read before the write that
+ * caused the eviction. Evictions inside a transaction are repeated once the transaction has committed, so a reader can
+ * not cache the old state between the eviction and the commit.
+ */
+public class LookupCache<K, V>
+{
+    private final String name;
+    private final Cache<K, V> cache;
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    public LookupCache(String name, long maximumSize, Duration timeToLive)
+    {
+        this.name = name;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+
+
+    /**
+     * Returns the cached value or loads it. Nothing is cached if the loader returns null or throws.
+     */
+    public <E extends Exception> V get(K key, Loader<V, E> loader) throws E
+    {
+        V value = cache.getIfPresent(key);
+        if (value != null)
+        {
+            return value;
+        }
+
+        long evictionsBeforeLoad = evictions.get();
+        value = loader.load();
+        if (value != null && evictions.get() == evictionsBeforeLoad)
+        {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+
+    public void evict(K key)
+    {
+        invalidate(key);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    invalidate(key);
+                }
+            });
+        }
+    }
+
+
+    public void evictAll()
+    {
+        evictions.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+
+    public CacheStatsDTO stats()
+    {
+        CacheStats stats = cache.stats();
+
+        return CacheStatsDTO.builder()
+            .name(name)
+            .size(cache.size())
+            .hitCount(stats.hitCount())
+            .missCount(stats.missCount())
+            .hitRate(stats.hitRate())
+            .evictionCount(stats.evictionCount() + evictions.get())
+            .build();
+    }
+
+
+    private void invalidate(K key)
+    {
+        evictions.incrementAndGet();
+        cache.invalidate(key);
+    }
+
+
+    @FunctionalInterface
+    public interface Loader<V, E extends Exception>
+    {
+        V load() throws E;
+    }
+}
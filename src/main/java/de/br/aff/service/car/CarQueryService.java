@@ -0,0 +1,23 @@
+package de.br.aff.service.car;
+
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainvalue.CarSearchCriteria;
+import de.br.aff.exception.EntityNotFoundException;
+import java.util.List;
+
+/**
+ * Read-only access to cars for the API, answered with DTOs instead of managed entities.
+ */
+public interface CarQueryService
+{
+
+    CarDTO find(Long carId) throws EntityNotFoundException;
+
+    List<CarDTO> findAll();
+
+    List<CarDTO> findAll(Long afterId, int limit);
+
+    String getCarsVersion();
+
+    List<CarDTO> search(CarSearchCriteria criteria, Long afterId, int limit);
+}
@@ -0,0 +1,399 @@
+package de.br.aff.service.car;
+
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainvalue.CarSearchCriteria;
+import de.br.aff.domainvalue.EngineType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory column index over all cars, so car searches never hit the database.
+ * <p/>
+ * Every car gets a row number. Per attribute value a bitmap holds the rows of the cars with that value: one per engine
+ * type, manufacturer, seat count and rating, and one for convertibles and for cars that have a driver. A search combines
+ * the bitmaps of the requested values, ranges are the union of the bitmaps of all values within the range, kept sorted
+ * in a tree map.
+ * <p/>
+ * Rows are kept in the order of the car ids, so a page is read by combining the bitmaps into one and taking its set bits
+ * from the row after the last id of the previous page. New cars usually have the highest id and get a new row at the
+ * end. A car with a lower id, or too many rows left empty by deleted cars, makes the index number all rows again.
+ */
+@Component
+public class CarSearchIndex
+{
+    private static final BitSet NO_ROWS = new BitSet();
+    private static final int MIN_EMPTY_ROWS_TO_RENUMBER = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<Long, Integer> rowsByCarId = new TreeMap<>();
+    private final List<CarDTO> cars = new ArrayList<>();
+    private final BitSet liveRows = new BitSet();
+
+    private final Map<EngineType, BitSet> engineTypes = new EnumMap<>(EngineType.class);
+    private final Map<String, BitSet> manufacturers = new HashMap<>();
+    private final NavigableMap<Integer, BitSet> seatCounts = new TreeMap<>();
+    private final NavigableMap<Integer, BitSet> ratings = new TreeMap<>();
+    private final BitSet convertibles = new BitSet();
+    private final BitSet withDriver = new BitSet();
+
+
+    /**
+     * Replaces the whole index, e.g. when the application starts.
+     */
+    public void rebuild(Collection<CarDTO> allCars, Collection<Long> carIdsWithDriver)
+    {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try
+        {
+            clear();
+            allCars.stream().sorted(Comparator.comparing(CarDTO::getId)).forEach(this::index);
+            for (Long carId : carIdsWithDriver)
+            {
+                Integer row = rowsByCarId.get(carId);
+                if (row != null)
+                {
+                    withDriver.set(row);
+                }
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+
+    /**
+     * Adds the car or takes over its changed attributes. Whether the car has a driver is kept.
+     */
+    public void put(CarDTO car)
+    {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try
+        {
+            index(car);
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+
+    public void remove(long carId)
+    {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try
+        {
+            Integer row = rowsByCarId.remove(carId);
+            if (row == null)
+            {
+                return;
+            }
+            clearAttributes(row);
+            withDriver.clear(row);
+            liveRows.clear(row);
+            cars.set(row, null);
+
+            int emptyRows = cars.size() - rowsByCarId.size();
+            if (emptyRows >= MIN_EMPTY_ROWS_TO_RENUMBER && emptyRows > rowsByCarId.size())
+            {
+                renumber(null);
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+
+    public void setDriver(long carId, boolean hasDriver)
+    {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try
+        {
+            Integer row = rowsByCarId.get(carId);
+            if (row != null)
+            {
+                withDriver.set(row, hasDriver);
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+
+    /**
+     * Keyset pagination: returns up to limit cars matching the criteria with an id greater than afterId, ordered by id.
+     *
+     * @throws IllegalArgumentException if the minimum rating is greater than the maximum rating
+     */
+    public List<CarDTO> search(CarSearchCriteria criteria, long afterId, int limit)
+    {
+        int minRating = criteria.getMinRating() != null ? criteria.getMinRating() : Integer.MIN_VALUE;
+        int maxRating = criteria.getMaxRating() != null ? criteria.getMaxRating() : Integer.MAX_VALUE;
+        if (minRating > maxRating)
+        {
+            throw new IllegalArgumentException("minRating must not be greater than maxRating");
+        }
+
+        List<CarDTO> found = new ArrayList<>();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try
+        {
+            Map.Entry<Long, Integer> first = rowsByCarId.higherEntry(afterId);
+            if (first == null)
+            {
+                return found;
+            }
+
+            BitSet matching = null;
+            if (criteria.getEngineTypes() != null)
+            {
+                matching = and(matching, union(criteria.getEngineTypes().stream().map(engineTypes::get).collect(Collectors.toList())));
+            }
+            if (criteria.getManufacturer() != null)
+            {
+                matching = and(matching, manufacturers.getOrDefault(manufacturerKey(criteria.getManufacturer()), NO_ROWS));
+            }
+            if (criteria.getMinSeatCount() != null)
+            {
+                matching = and(matching, union(seatCounts.tailMap(criteria.getMinSeatCount(), true).values()));
+            }
+            if (criteria.getMinRating() != null || criteria.getMaxRating() != null)
+            {
+                matching = and(matching, union(ratings.subMap(minRating, true, maxRating, true).values()));
+            }
+            if (Boolean.TRUE.equals(criteria.getConvertible()))
+            {
+                matching = and(matching, convertibles);
+            }
+            if (Boolean.TRUE.equals(criteria.getWithDriver()))
+            {
+                matching = and(matching, withDriver);
+            }
+            if (matching == null)
+            {
+                matching = (BitSet) liveRows.clone();
+            }
+            if (Boolean.FALSE.equals(criteria.getConvertible()))
+            {
+                matching.andNot(convertibles);
+            }
+            if (Boolean.FALSE.equals(criteria.getWithDriver()))
+            {
+                matching.andNot(withDriver);
+            }
+
+            for (int row = matching.nextSetBit(first.getValue()); row >= 0 && found.size() < limit; row = matching.nextSetBit(row + 1))
+            {
+                found.add(cars.get(row));
+            }
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+        return found;
+    }
+
+
+    /**
+     * Passes every car and whether it has a driver to the consumer in the order of their ids, e.g. to write a snapshot of
+     * the index. The index can not be changed until all cars are passed.
+     */
+    public void forEach(BiConsumer<CarDTO, Boolean> consumer)
+    {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try
+        {
+            for (int row : rowsByCarId.values())
+            {
+                consumer.accept(cars.get(row), withDriver.get(row));
+            }
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+    }
+
+
+    public int size()
+    {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try
+        {
+            return rowsByCarId.size();
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+    }
+
+
+    private void index(CarDTO car)
+    {
+        Integer row = rowsByCarId.get(car.getId());
+        if (row != null)
+        {
+            clearAttributes(row);
+        }
+        else if (rowsByCarId.isEmpty() || car.getId() > rowsByCarId.lastKey())
+        {
+            row = cars.size();
+            cars.add(null);
+            rowsByCarId.put(car.getId(), row);
+            liveRows.set(row);
+        }
+        else
+        {
+            renumber(car);
+            return;
+        }
+
+        cars.set(row, car);
+        engineTypes.computeIfAbsent(EngineType.valueOf(car.getEngineType()), engineType -> new BitSet()).set(row);
+        if (car.getManufacturer() != null)
+        {
+            manufacturers.computeIfAbsent(manufacturerKey(car.getManufacturer()), manufacturer -> new BitSet()).set(row);
+        }
+        seatCounts.computeIfAbsent(car.getSeatCount(), seatCount -> new BitSet()).set(row);
+        ratings.computeIfAbsent(car.getRating(), rating -> new BitSet()).set(row);
+        convertibles.set(row, car.isConvertible());
+    }
+
+
+    /**
+     * Indexes all cars, and the added one if given, again in the order of their ids, which also drops the empty rows.
+     */
+    private void renumber(CarDTO added)
+    {
+        List<CarDTO> ordered = new ArrayList<>(rowsByCarId.size() + 1);
+        Set<Long> carIdsWithDriver = new HashSet<>();
+        rowsByCarId.forEach((carId, row) -> {
+            ordered.add(cars.get(row));
+            if (withDriver.get(row))
+            {
+                carIdsWithDriver.add(carId);
+            }
+        });
+        if (added != null)
+        {
+            ordered.add(added);
+            ordered.sort(Comparator.comparing(CarDTO::getId));
+        }
+
+        clear();
+        ordered.forEach(this::index);
+        carIdsWithDriver.forEach(carId -> withDriver.set(rowsByCarId.get(carId)));
+    }
+
+
+    private void clear()
+    {
+        rowsByCarId.clear();
+        cars.clear();
+        liveRows.clear();
+        engineTypes.clear();
+        manufacturers.clear();
+        seatCounts.clear();
+        ratings.clear();
+        convertibles.clear();
+        withDriver.clear();
+    }
+
+
+    private void clearAttributes(int row)
+    {
+        CarDTO car = cars.get(row);
+        clear(engineTypes, EngineType.valueOf(car.getEngineType()), row);
+        if (car.getManufacturer() != null)
+        {
+            clear(manufacturers, manufacturerKey(car.getManufacturer()), row);
+        }
+        clear(seatCounts, car.getSeatCount(), row);
+        clear(ratings, car.getRating(), row);
+        convertibles.clear(row);
+    }
+
+
+    /**
+     * Drops bitmaps that became empty, so values no car has any longer do not pile up.
+     */
+    private static <K> void clear(Map<K, BitSet> bitmaps, K value, int row)
+    {
+        BitSet rows = bitmaps.get(value);
+        if (rows != null)
+        {
+            rows.clear(row);
+            if (rows.isEmpty())
+            {
+                bitmaps.remove(value);
+            }
+        }
+    }
+
+
+    private static BitSet union(Collection<BitSet> bitmaps)
+    {
+        BitSet union = new BitSet();
+        for (BitSet rows : bitmaps)
+        {
+            if (rows != null)
+            {
+                union.or(rows);
+            }
+        }
+        return union;
+    }
+
+
+    /**
+     * Intersects the matching rows with the bitmap. The bitmaps of the index are copied before they are changed.
+     */
+    private static BitSet and(BitSet matching, BitSet rows)
+    {
+        if (matching == null)
+        {
+            return (BitSet) rows.clone();
+        }
+        matching.and(rows);
+        return matching;
+    }
+
+
+    private static String manufacturerKey(String manufacturer)
+    {
+        return manufacturer.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,5 +1,6 @@
 package de.br.aff.service.car;
 
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
@@ -13,8 +14,12 @@ public interface CarService
 
     List<CarDO> findAll();
 
+    List<CarDO> findAll(Long afterId, int limit);
+
     CarDO create(CarDO carDO) throws ConstraintsViolationException;
 
+    List<BulkResultDTO> createAll(List<CarDO> cars) throws ConstraintsViolationException;
+
     void update(Long carId, CarDO carDOSent) throws EntityNotFoundException, ConstraintsViolationException;
 
     void delete(Long carId) throws EntityNotFoundException;
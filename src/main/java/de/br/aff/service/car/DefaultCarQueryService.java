@@ -0,0 +1,71 @@
+package de.br.aff.service.car;
+
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainvalue.CarSearchCriteria;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.cache.FleetCache;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Read path for cars. The queries select the DTOs directly and run in read-only transactions, single cars are cached.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class DefaultCarQueryService implements CarQueryService
+{
+
+    private final CarRepository carRepository;
+    private final FleetCache fleetCache;
+    private final CarSearchIndex carSearchIndex;
+
+
+    @Override
+    public CarDTO find(Long carId) throws EntityNotFoundException
+    {
+        return fleetCache.getCars().get(carId, () -> carRepository.findDTOById(carId)
+            .orElseThrow(() -> new EntityNotFoundException("Car with this id not found")));
+    }
+
+
+    @Override
+    public List<CarDTO> findAll()
+    {
+        return carRepository.findDTOs();
+    }
+
+
+    /**
+     * Keyset pagination: returns up to limit cars with an id greater than afterId, ordered by id.
+     */
+    @Override
+    public List<CarDTO> findAll(Long afterId, int limit)
+    {
+        return carRepository.findDTOsByIdGreaterThan(afterId != null ? afterId : Long.MIN_VALUE, PageRequest.of(0, limit));
+    }
+
+
+    /**
+     * @return version of the car listing, changes with every write to a car
+     */
+    @Override
+    public String getCarsVersion()
+    {
+        return fleetCache.getCarsVersion();
+    }
+
+
+    /**
+     * Answered by the in-memory {@link CarSearchIndex}, ordered by id like {@link #findAll(Long, int)}.
+     */
+    @Override
+    public List<CarDTO> search(CarSearchCriteria criteria, Long afterId, int limit)
+    {
+        return carSearchIndex.search(criteria, afterId != null ? afterId : Long.MIN_VALUE, limit);
+    }
+}
@@ -1,13 +1,29 @@
 package de.br.aff.service.car;
 
+import com.google.common.collect.Lists;
+import de.br.aff.controller.mapper.CarMapper;
+import de.br.aff.dataaccessobject.BulkInsertRepository;
 import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.driver.DriverStateStore;
+import de.br.aff.service.snapshot.DispatchSnapshot;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -16,7 +32,31 @@ import org.springframework.stereotype.Service;
 public class DefaultCarService implements CarService
 {
 
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
     private final CarRepository carRepository;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final FleetCache fleetCache;
+    private final DispatchCandidateIndex dispatchCandidateIndex;
+    private final CarSearchIndex carSearchIndex;
+    private final DispatchSnapshot dispatchSnapshot;
+    private final DriverStateStore driverStateStore;
+
+
+    /**
+     * Fills the search index with all cars once the application has started, unless it was restored from a snapshot
+     * written on shutdown.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initSearchIndex()
+    {
+        if (dispatchSnapshot.isRestoredFromShutdown())
+        {
+            return;
+        }
+        carSearchIndex.rebuild(carRepository.findDTOs(), carRepository.findIdsWithDriver());
+        log.info("Search index initialized with {} cars", carSearchIndex.size());
+    }
 
 
     @Override
@@ -33,6 +73,16 @@ public class DefaultCarService implements CarService
     }
 
 
+    /**
+     * Keyset pagination: returns up to limit cars with an id greater than afterId, ordered by id.
+     */
+    @Override
+    public List<CarDO> findAll(Long afterId, int limit)
+    {
+        return carRepository.findByIdGreaterThanOrderByIdAsc(afterId != null ? afterId : Long.MIN_VALUE, PageRequest.of(0, limit));
+    }
+
+
     @Override
     public CarDO create(CarDO carDO) throws ConstraintsViolationException
     {
@@ -41,7 +91,57 @@ public class DefaultCarService implements CarService
             throw new ConstraintsViolationException("Car with this license plate number already exists");
         }
 
-        return carRepository.save(carDO);
+        CarDO car = carRepository.save(carDO);
+        fleetCache.carsChanged();
+        carSearchIndex.put(CarMapper.makeCarDTO(car));
+        return car;
+    }
+
+
+    /**
+     * Creates all cars whose license plate is neither taken nor used by an earlier car of the list. License plates are
+     * checked with one query per chunk and the cars are inserted in JDBC batches.
+     *
+     * @return one result per given car, in the same order
+     * @throws ConstraintsViolationException if a license plate was taken concurrently, nothing is created then
+     */
+    @Override
+    public List<BulkResultDTO> createAll(List<CarDO> cars) throws ConstraintsViolationException
+    {
+        Set<String> takenLicensePlates = new HashSet<>();
+        for (List<CarDO> chunk : Lists.partition(cars, LOOKUP_CHUNK_SIZE))
+        {
+            takenLicensePlates.addAll(carRepository.findLicensePlatesIn(chunk.stream().map(CarDO::getLicensePlate).collect(Collectors.toList())));
+        }
+
+        List<CarDO> carsToInsert = new ArrayList<>();
+        for (CarDO car : cars)
+        {
+            if (takenLicensePlates.add(car.getLicensePlate()))
+            {
+                carsToInsert.add(car);
+            }
+        }
+
+        try
+        {
+            bulkInsertRepository.insertAll(carsToInsert);
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            log.warn("ConstraintsViolationException while creating {} cars", carsToInsert.size(), e);
+            throw new ConstraintsViolationException(e.getMessage());
+        }
+        fleetCache.carsChanged();
+        carsToInsert.forEach(car -> carSearchIndex.put(CarMapper.makeCarDTO(car)));
+
+        List<BulkResultDTO> results = new ArrayList<>(cars.size());
+        for (int i = 0; i < cars.size(); i++)
+        {
+            Long id = cars.get(i).getId();
+            results.add(id != null ? BulkResultDTO.created(i, id) : BulkResultDTO.rejected(i, "Car with this license plate number already exists"));
+        }
+        return results;
     }
 
 
@@ -72,6 +172,10 @@ public class DefaultCarService implements CarService
         carDOSent.setId(existingCar.getId());
 
         carRepository.save(carDOSent);
+        fleetCache.evictCar(existingCar);
+        dispatchCandidateIndex.updateCar(carDOSent);
+        driverStateStore.updateCar(carDOSent);
+        carSearchIndex.put(CarMapper.makeCarDTO(carDOSent));
     }
 
 
@@ -86,5 +190,9 @@ public class DefaultCarService implements CarService
         }
 
         carRepository.delete(carToDelete.get());
+        fleetCache.evictCar(carToDelete.get());
+        dispatchCandidateIndex.removeCar(carId);
+        driverStateStore.removeCar(carId);
+        carSearchIndex.remove(carId);
     }
 }
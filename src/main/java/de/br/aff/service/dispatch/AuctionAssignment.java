@@ -0,0 +1,101 @@
+package de.br.aff.service.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Auction algorithm for the sparse assignment of ride requests to drivers with minimal total cost.
+ * <p/>
+ * Requests bid for their cheapest driver, raising its price by the margin to their second best option plus epsilon, and
+ * outbid requests bid again. Every request can also stay unassigned at a fixed cost, so the auction ends even if there
+ * are fewer drivers than requests. The assignment is within requests * epsilon of the optimum.
+ */
+final class AuctionAssignment
+{
+    static final int UNASSIGNED = -1;
+
+    private AuctionAssignment()
+    {
+    }
+
+
+    /**
+     * @param candidates     per request the indexes of the drivers it may be assigned
+     * @param costs          per request the cost of every candidate, in the same order as the candidates
+     * @param drivers        number of drivers, driver indexes are in range [0, drivers)
+     * @param unassignedCost cost of leaving a request unassigned, higher than any candidate cost
+     * @param epsilon        minimal price increase of a bid
+     * @return per request the index of the assigned driver or {@link #UNASSIGNED}
+     */
+    static int[] solve(int[][] candidates, double[][] costs, int drivers, double unassignedCost, double epsilon)
+    {
+        int requests = candidates.length;
+        double[] prices = new double[drivers];
+        int[] ownerOf = new int[drivers];
+        int[] assignment = new int[requests];
+        Deque<Integer> unassigned = new ArrayDeque<>(requests);
+
+        Arrays.fill(ownerOf, UNASSIGNED);
+        Arrays.fill(assignment, UNASSIGNED);
+        for (int request = 0; request < requests; request++)
+        {
+            unassigned.add(request);
+        }
+
+        while (!unassigned.isEmpty())
+        {
+            int request = unassigned.poll();
+            int outbid = bid(request, candidates[request], costs[request], prices, ownerOf, assignment, unassignedCost, epsilon);
+            if (outbid != UNASSIGNED)
+            {
+                unassigned.add(outbid);
+            }
+        }
+        return assignment;
+    }
+
+
+    /**
+     * @return the request that lost its driver to this bid, or {@link #UNASSIGNED}
+     */
+    private static int bid(int request, int[] candidates, double[] costs, double[] prices, int[] ownerOf, int[] assignment, double unassignedCost,
+        double epsilon)
+    {
+        int best = UNASSIGNED;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        double secondValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < candidates.length; i++)
+        {
+            double value = -costs[i] - prices[candidates[i]];
+            if (value > bestValue)
+            {
+                secondValue = bestValue;
+                bestValue = value;
+                best = candidates[i];
+            }
+            else if (value > secondValue)
+            {
+                secondValue = value;
+            }
+        }
+
+        // staying unassigned is an option nobody else competes for, its price never rises
+        double unassignedValue = -unassignedCost;
+        if (best == UNASSIGNED || unassignedValue >= bestValue)
+        {
+            assignment[request] = UNASSIGNED;
+            return UNASSIGNED;
+        }
+
+        prices[best] += bestValue - Math.max(secondValue, unassignedValue) + epsilon;
+        int previousOwner = ownerOf[best];
+        ownerOf[best] = request;
+        assignment[request] = best;
+        if (previousOwner != UNASSIGNED)
+        {
+            assignment[previousOwner] = UNASSIGNED;
+        }
+        return previousOwner;
+    }
+}
@@ -0,0 +1,178 @@
+package de.br.aff.service.dispatch;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.service.location.DriverLocationIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Proposes drivers for a batch of ride requests so that the total pickup distance is minimal.
+ * <p/>
+ * The requests are split into geographic partitions of a fixed size in degrees, and the partitions are solved in parallel
+ * on a fork-join pool with the {@link AuctionAssignment}. Every request only competes for its nearest matching drivers.
+ * Partitions do not know each other, so a driver near a partition border can be proposed twice; reserving the proposals
+ * sorts that out.
+ */
+@Component
+public class BatchAssignmentSolver
+{
+    private static final double EPSILON_KM = 0.001;
+    private static final double SEARCH_RADIUS_STEPS = 4;
+
+    private final DriverLocationIndex driverLocationIndex;
+    private final DispatchCandidateIndex dispatchCandidateIndex;
+    private final double partitionSize;
+    private final double candidateRadiusKm;
+    private final int candidatesPerRequest;
+    private final ForkJoinPool pool;
+
+
+    public BatchAssignmentSolver(
+        DriverLocationIndex driverLocationIndex,
+        DispatchCandidateIndex dispatchCandidateIndex,
+        @Value("${dispatch.batch.partition-size-degrees:0.05}") double partitionSize,
+        @Value("${dispatch.batch.candidate-radius-km:3}") double candidateRadiusKm,
+        @Value("${dispatch.batch.candidates-per-request:16}") int candidatesPerRequest,
+        @Value("${dispatch.batch.parallelism:0}") int parallelism)
+    {
+        if (partitionSize <= 0 || candidateRadiusKm <= 0 || candidatesPerRequest <= 0)
+        {
+            throw new IllegalArgumentException("partition size, candidate radius and candidates per request have to be positive");
+        }
+        this.driverLocationIndex = driverLocationIndex;
+        this.dispatchCandidateIndex = dispatchCandidateIndex;
+        this.partitionSize = partitionSize;
+        this.candidateRadiusKm = candidateRadiusKm;
+        this.candidatesPerRequest = candidatesPerRequest;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /**
+     * @return per ride the proposed driver id, null if no driver could be proposed
+     */
+    public Long[] solve(List<PendingRide> rides)
+    {
+        Map<Long, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < rides.size(); i++)
+        {
+            partitions.computeIfAbsent(partitionKey(rides.get(i).getPickup()), key -> new ArrayList<>()).add(i);
+        }
+
+        Long[] proposals = new Long[rides.size()];
+        pool.invoke(new PartitionTask(rides, new ArrayList<>(partitions.values()), proposals));
+        return proposals;
+    }
+
+
+    @PreDestroy
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+
+    private void solvePartition(List<PendingRide> rides, List<Integer> rideIndexes, Long[] proposals)
+    {
+        Map<Long, Integer> driverIndexes = new HashMap<>();
+        List<Long> driverIds = new ArrayList<>();
+        int[][] candidates = new int[rideIndexes.size()][];
+        double[][] costs = new double[rideIndexes.size()][];
+
+        for (int request = 0; request < rideIndexes.size(); request++)
+        {
+            PendingRide ride = rides.get(rideIndexes.get(request));
+            double latitude = ride.getPickup().getLatitude();
+            double longitude = ride.getPickup().getLongitude();
+
+            int[] requestCandidates = new int[candidatesPerRequest];
+            double[] requestCosts = new double[candidatesPerRequest];
+            int count = 0;
+            // most requests find enough drivers close by, scanning the whole candidate radius is the expensive part
+            for (double radiusKm : new double[] {candidateRadiusKm / SEARCH_RADIUS_STEPS, candidateRadiusKm})
+            {
+                count = 0;
+                for (Long driverId : driverLocationIndex.findNearest(latitude, longitude, radiusKm, candidatesPerRequest,
+                    driverId -> dispatchCandidateIndex.findMatching(driverId, ride.getRequirements()) != null))
+                {
+                    requestCandidates[count] = driverIndexes.computeIfAbsent(driverId, id -> {
+                        driverIds.add(id);
+                        return driverIds.size() - 1;
+                    });
+                    requestCosts[count] = driverLocationIndex.distanceKm(driverId, latitude, longitude).orElse(radiusKm);
+                    if (++count == candidatesPerRequest)
+                    {
+                        break;
+                    }
+                }
+                if (count == candidatesPerRequest)
+                {
+                    break;
+                }
+            }
+            candidates[request] = Arrays.copyOf(requestCandidates, count);
+            costs[request] = Arrays.copyOf(requestCosts, count);
+        }
+
+        int[] assignment = AuctionAssignment.solve(candidates, costs, driverIds.size(), 2 * candidateRadiusKm + 1, EPSILON_KM);
+        for (int request = 0; request < assignment.length; request++)
+        {
+            if (assignment[request] != AuctionAssignment.UNASSIGNED)
+            {
+                proposals[rideIndexes.get(request)] = driverIds.get(assignment[request]);
+            }
+        }
+    }
+
+
+    private long partitionKey(GeoCoordinate pickup)
+    {
+        long latitudeIndex = (long) Math.floor((pickup.getLatitude() + 90) / partitionSize);
+        long longitudeIndex = (long) Math.floor((pickup.getLongitude() + 180) / partitionSize);
+        return (latitudeIndex << 32) | (longitudeIndex & 0xffffffffL);
+    }
+
+
+    /**
+     * Splits the partitions in halves until a single one is left and solves that one.
+     */
+    private final class PartitionTask extends RecursiveAction
+    {
+        private final List<PendingRide> rides;
+        private final List<List<Integer>> partitions;
+        private final Long[] proposals;
+
+
+        private PartitionTask(List<PendingRide> rides, List<List<Integer>> partitions, Long[] proposals)
+        {
+            this.rides = rides;
+            this.partitions = partitions;
+            this.proposals = proposals;
+        }
+
+
+        @Override
+        protected void compute()
+        {
+            if (partitions.size() == 1)
+            {
+                solvePartition(rides, partitions.get(0), proposals);
+            }
+            else if (partitions.size() > 1)
+            {
+                int middle = partitions.size() / 2;
+                invokeAll(new PartitionTask(rides, partitions.subList(0, middle), proposals),
+                    new PartitionTask(rides, partitions.subList(middle, partitions.size()), proposals));
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package de.br.aff.service.dispatch;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.RideAssignment;
+import de.br.aff.domainvalue.RideRequirements;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.exception.NoDriverAvailableException;
+import de.br.aff.service.location.DriverLocationIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.stream.DoubleStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Matches ride requests against the in-memory dispatch indexes without touching the database.
+ * <p/>
+ * In IMMEDIATE mode every request is matched on its own: drivers are looked at nearest first within growing search radii,
+ * up to a fixed number of candidates per radius. Only drivers that are free, have a matching car and were not looked at in
+ * a smaller radius count as candidates. The first driver whose car satisfies the requirements and who can be
+ * reserved gets the ride. Matching gives up once the latency budget is spent.
+ * <p/>
+ * In BATCH mode requests are collected over a window and assigned together by the {@link BatchAssignmentSolver}, which
+ * minimizes the total pickup distance of the batch instead of serving the first request best. Requests the solver could
+ * not serve are matched one by one afterwards.
+ * <p/>
+ * Active rides are kept in memory until they are completed.
+ */
+@Service
+@Slf4j
+public class DefaultDispatchService implements DispatchService
+{
+    public enum Mode
+    {
+        IMMEDIATE, BATCH
+    }
+
+
+    private static final double[] SEARCH_RADII_KM = {1, 3, 10};
+
+    private final DriverLocationIndex driverLocationIndex;
+    private final DispatchCandidateIndex dispatchCandidateIndex;
+    private final BatchAssignmentSolver batchAssignmentSolver;
+    private final Mode mode;
+    private final long latencyBudgetNanos;
+    private final double[] searchRadii;
+    private final int candidatesPerRadius;
+
+    @Value("${dispatch.batch.window-ms:2000}")
+    private long batchWindowMs = 2000;
+
+    private final AtomicLong rideIds = new AtomicLong();
+    private final ConcurrentMap<Long, RideAssignment> activeRides = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingRide> pendingRides = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService batchExecutor;
+
+    private final Counter matched = Metrics.counter("dispatch.requests", "outcome", "matched");
+    private final Counter unavailable = Metrics.counter("dispatch.requests", "outcome", "unavailable");
+    private final Counter timedOut = Metrics.counter("dispatch.requests", "outcome", "timeout");
+    private final Timer batchSolveTime = Metrics.timer("dispatch.batch.solve");
+
+
+    public DefaultDispatchService(
+        DriverLocationIndex driverLocationIndex,
+        DispatchCandidateIndex dispatchCandidateIndex,
+        BatchAssignmentSolver batchAssignmentSolver,
+        @Value("${dispatch.matching.mode:IMMEDIATE}") Mode mode,
+        @Value("${dispatch.matching.latency-budget-ms:50}") long latencyBudgetMs,
+        @Value("${dispatch.matching.max-radius-km:25}") double maxRadiusKm,
+        @Value("${dispatch.matching.candidates-per-radius:200}") int candidatesPerRadius)
+    {
+        if (latencyBudgetMs <= 0 || maxRadiusKm <= 0 || candidatesPerRadius <= 0)
+        {
+            throw new IllegalArgumentException("latency budget, max radius and candidates per radius have to be positive");
+        }
+        this.driverLocationIndex = driverLocationIndex;
+        this.dispatchCandidateIndex = dispatchCandidateIndex;
+        this.batchAssignmentSolver = batchAssignmentSolver;
+        this.mode = mode;
+        this.latencyBudgetNanos = TimeUnit.MILLISECONDS.toNanos(latencyBudgetMs);
+        this.searchRadii = searchRadii(maxRadiusKm);
+        this.candidatesPerRadius = candidatesPerRadius;
+    }
+
+
+    /**
+     * Reserves the nearest available driver whose car satisfies the requirements.
+     *
+     * @throws NoDriverAvailableException if no driver within the max radius matches or the latency budget is spent
+     */
+    @Override
+    public RideAssignment request(GeoCoordinate pickup, RideRequirements requirements) throws NoDriverAvailableException
+    {
+        long deadline = System.nanoTime() + latencyBudgetNanos;
+        Set<Long> triedDriverIds = new HashSet<>();
+        // reserved drivers and cars that do not match are skipped before the nearest ones are picked, as are drivers a
+        // smaller radius already offered, so every radius looks further out
+        LongPredicate candidate = driverId -> !triedDriverIds.contains(driverId) && dispatchCandidateIndex.findMatching(driverId, requirements) != null;
+
+        for (double radiusKm : searchRadii)
+        {
+            for (Long driverId : driverLocationIndex.findNearest(pickup.getLatitude(), pickup.getLongitude(), radiusKm, candidatesPerRadius, candidate))
+            {
+                triedDriverIds.add(driverId);
+                if (System.nanoTime() - deadline > 0)
+                {
+                    timedOut.increment();
+                    throw new NoDriverAvailableException("No driver could be assigned within the latency budget");
+                }
+
+                RideAssignment ride = tryAssign(driverId, pickup, requirements);
+                if (ride != null)
+                {
+                    return ride;
+                }
+            }
+        }
+
+        unavailable.increment();
+        throw new NoDriverAvailableException("No available driver matches the ride request");
+    }
+
+
+    /**
+     * Matches the request right away in IMMEDIATE mode, or with the next batch in BATCH mode.
+     *
+     * @return the assignment, completed with a {@link NoDriverAvailableException} if no driver could be assigned
+     */
+    @Override
+    public CompletableFuture<RideAssignment> submit(GeoCoordinate pickup, RideRequirements requirements)
+    {
+        if (mode == Mode.BATCH)
+        {
+            PendingRide ride = new PendingRide(pickup, requirements);
+            pendingRides.add(ride);
+            return ride.getAssignment();
+        }
+
+        CompletableFuture<RideAssignment> assignment = new CompletableFuture<>();
+        try
+        {
+            assignment.complete(request(pickup, requirements));
+        }
+        catch (NoDriverAvailableException e)
+        {
+            assignment.completeExceptionally(e);
+        }
+        return assignment;
+    }
+
+
+    /**
+     * Starts dispatching batches in BATCH mode. Batches run on a thread of their own, so a slow solve neither stalls nor is
+     * delayed by the other scheduled jobs.
+     */
+    @PostConstruct
+    public void startBatches()
+    {
+        if (mode == Mode.BATCH)
+        {
+            batchExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("dispatch-batch").setDaemon(true).build());
+            batchExecutor.scheduleWithFixedDelay(this::dispatchBatchLogged, batchWindowMs, batchWindowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    @PreDestroy
+    public void stopBatches()
+    {
+        if (batchExecutor != null)
+        {
+            batchExecutor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Assigns the requests collected since the last batch. The proposals of the solver are reserved first, requests left
+     * over are matched one by one afterwards, so the fallback can not take a driver the solver proposed for another request.
+     *
+     * @return number of requests that got a driver
+     */
+    public int dispatchBatch()
+    {
+        List<PendingRide> batch = new ArrayList<>();
+        for (PendingRide ride = pendingRides.poll(); ride != null; ride = pendingRides.poll())
+        {
+            batch.add(ride);
+        }
+        if (batch.isEmpty())
+        {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        Long[] proposals = batchAssignmentSolver.solve(batch);
+        long solveNanos = System.nanoTime() - start;
+        batchSolveTime.record(solveNanos, TimeUnit.NANOSECONDS);
+
+        int solved = 0;
+        List<PendingRide> leftovers = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++)
+        {
+            PendingRide pendingRide = batch.get(i);
+            RideAssignment ride = proposals[i] != null ? tryAssign(proposals[i], pendingRide.getPickup(), pendingRide.getRequirements()) : null;
+            if (ride != null)
+            {
+                solved++;
+                pendingRide.getAssignment().complete(ride);
+            }
+            else
+            {
+                leftovers.add(pendingRide);
+            }
+        }
+
+        int fallback = 0;
+        for (PendingRide pendingRide : leftovers)
+        {
+            // the driver was proposed in a neighbouring partition as well, or the solver found none nearby
+            try
+            {
+                pendingRide.getAssignment().complete(request(pendingRide.getPickup(), pendingRide.getRequirements()));
+                fallback++;
+            }
+            catch (NoDriverAvailableException e)
+            {
+                pendingRide.getAssignment().completeExceptionally(e);
+            }
+        }
+
+        long solveMs = TimeUnit.NANOSECONDS.toMillis(solveNanos);
+        log.info("Dispatched batch of {} rides, solved in {} ms: {} assigned by the solver, {} one by one, {} without driver",
+            batch.size(), solveMs, solved, fallback, batch.size() - solved - fallback);
+        if (solveMs > batchWindowMs)
+        {
+            log.warn("Solving a batch of {} rides took {} ms, longer than the batch window of {} ms", batch.size(), solveMs, batchWindowMs);
+        }
+        return solved + fallback;
+    }
+
+
+    private void dispatchBatchLogged()
+    {
+        try
+        {
+            dispatchBatch();
+        }
+        catch (RuntimeException e)
+        {
+            // an exception would end the scheduled batches
+            log.error("Dispatching a batch failed", e);
+        }
+    }
+
+
+    @Override
+    public RideAssignment find(long rideId) throws EntityNotFoundException
+    {
+        RideAssignment ride = activeRides.get(rideId);
+        if (ride == null)
+        {
+            throw new EntityNotFoundException("Could not find ride with id: " + rideId);
+        }
+        return ride;
+    }
+
+
+    /**
+     * Ends the ride and makes its driver available again.
+     */
+    @Override
+    public void complete(long rideId) throws EntityNotFoundException
+    {
+        RideAssignment ride = activeRides.remove(rideId);
+        if (ride == null)
+        {
+            throw new EntityNotFoundException("Could not find ride with id: " + rideId);
+        }
+        dispatchCandidateIndex.release(ride.getDriverId(), rideId);
+    }
+
+
+    /**
+     * @return the new ride if the driver matches the requirements and could be reserved, otherwise null
+     */
+    private RideAssignment tryAssign(long driverId, GeoCoordinate pickup, RideRequirements requirements)
+    {
+        DispatchCandidateIndex.Vehicle vehicle = dispatchCandidateIndex.findMatching(driverId, requirements);
+        OptionalDouble distanceKm = driverLocationIndex.distanceKm(driverId, pickup.getLatitude(), pickup.getLongitude());
+        if (vehicle == null || !distanceKm.isPresent())
+        {
+            return null;
+        }
+
+        long rideId = rideIds.incrementAndGet();
+        if (!dispatchCandidateIndex.reserve(driverId, rideId))
+        {
+            return null;
+        }
+
+        RideAssignment ride = new RideAssignment(rideId, driverId, vehicle.getCarId(), pickup, distanceKm.getAsDouble());
+        activeRides.put(rideId, ride);
+        matched.increment();
+        return ride;
+    }
+
+
+    private static double[] searchRadii(double maxRadiusKm)
+    {
+        return DoubleStream.concat(Arrays.stream(SEARCH_RADII_KM).filter(radius -> radius < maxRadiusKm), DoubleStream.of(maxRadiusKm)).toArray();
+    }
+}
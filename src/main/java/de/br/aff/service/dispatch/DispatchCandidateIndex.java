@@ -0,0 +1,193 @@
+package de.br.aff.service.dispatch;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.RideRequirements;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory view of the drivers that can be dispatched: ONLINE drivers with a car, together with the car attributes ride
+ * requests can ask for. Positions are kept by the {@link de.br.aff.service.location.DriverLocationIndex}.
+ * <p/>
+ * A driver is reserved for at most one ride at a time. Reserving is a single compare-and-set on the reservation map, so
+ * concurrent ride requests never get the same driver.
+ */
+@Component
+public class DispatchCandidateIndex
+{
+    private final ConcurrentMap<Long, Vehicle> vehiclesByDriverId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> driverIdsByCarId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> reservations = new ConcurrentHashMap<>();
+
+
+    /**
+     * Adds the driver with the car it drives, or removes it if it has no car.
+     */
+    public void update(long driverId, CarDO car)
+    {
+        if (car == null || car.getId() == null)
+        {
+            remove(driverId);
+            return;
+        }
+
+        Vehicle vehicle = new Vehicle(car.getId(), car.getRating(), car.getSeatCount(), car.getEngineType(), car.isConvertible());
+        vehiclesByDriverId.compute(driverId, (id, old) -> {
+            if (old != null && old.carId != vehicle.carId)
+            {
+                driverIdsByCarId.remove(old.carId, id);
+            }
+            driverIdsByCarId.put(vehicle.carId, id);
+            return vehicle;
+        });
+    }
+
+
+    /**
+     * Takes over changed attributes of a car that is driven by an indexed driver.
+     */
+    public void updateCar(CarDO car)
+    {
+        Long driverId = driverIdsByCarId.get(car.getId());
+        if (driverId != null)
+        {
+            vehiclesByDriverId.computeIfPresent(driverId, (id, old) -> old.carId == car.getId()
+                ? new Vehicle(old.carId, car.getRating(), car.getSeatCount(), car.getEngineType(), car.isConvertible())
+                : old);
+        }
+    }
+
+
+    public void removeCar(long carId)
+    {
+        Long driverId = driverIdsByCarId.get(carId);
+        if (driverId != null)
+        {
+            vehiclesByDriverId.computeIfPresent(driverId, (id, old) -> {
+                if (old.carId != carId)
+                {
+                    return old;
+                }
+                driverIdsByCarId.remove(carId, id);
+                return null;
+            });
+        }
+    }
+
+
+    /**
+     * Removes the driver, e.g. because it went offline or gave up its car. A reservation is kept until it is released.
+     */
+    public void remove(long driverId)
+    {
+        vehiclesByDriverId.computeIfPresent(driverId, (id, old) -> {
+            driverIdsByCarId.remove(old.carId, id);
+            return null;
+        });
+    }
+
+
+    /**
+     * @return the car of the driver if the driver can be dispatched and the car satisfies the requirements, otherwise null
+     */
+    Vehicle findMatching(long driverId, RideRequirements requirements)
+    {
+        Vehicle vehicle = vehiclesByDriverId.get(driverId);
+        return vehicle != null && !reservations.containsKey(driverId) && vehicle.satisfies(requirements) ? vehicle : null;
+    }
+
+
+    /**
+     * Reserves the driver for the ride.
+     *
+     * @return false if the driver is reserved for another ride or can no longer be dispatched
+     */
+    boolean reserve(long driverId, long rideId)
+    {
+        if (reservations.putIfAbsent(driverId, rideId) != null)
+        {
+            return false;
+        }
+        if (!vehiclesByDriverId.containsKey(driverId))
+        {
+            // the driver went offline between the lookup and the reservation
+            reservations.remove(driverId, rideId);
+            return false;
+        }
+        return true;
+    }
+
+
+    void release(long driverId, long rideId)
+    {
+        reservations.remove(driverId, rideId);
+    }
+
+
+    /**
+     * @return rating of the car of the driver, empty if the driver can not be dispatched or is reserved
+     */
+    public OptionalInt availableCarRating(long driverId)
+    {
+        Vehicle vehicle = vehiclesByDriverId.get(driverId);
+        return vehicle != null && !reservations.containsKey(driverId) ? OptionalInt.of(vehicle.rating) : OptionalInt.empty();
+    }
+
+
+    /**
+     * @return id of the car of the driver, empty if the driver can not be dispatched
+     */
+    public OptionalLong carId(long driverId)
+    {
+        Vehicle vehicle = vehiclesByDriverId.get(driverId);
+        return vehicle != null ? OptionalLong.of(vehicle.carId) : OptionalLong.empty();
+    }
+
+
+    public boolean isReserved(long driverId)
+    {
+        return reservations.containsKey(driverId);
+    }
+
+
+    public int size()
+    {
+        return vehiclesByDriverId.size();
+    }
+
+
+    static final class Vehicle
+    {
+        private final long carId;
+        private final int rating;
+        private final int seatCount;
+        private final EngineType engineType;
+        private final boolean convertible;
+
+
+        private Vehicle(long carId, int rating, int seatCount, EngineType engineType, boolean convertible)
+        {
+            this.carId = carId;
+            this.rating = rating;
+            this.seatCount = seatCount;
+            this.engineType = engineType;
+            this.convertible = convertible;
+        }
+
+
+        long getCarId()
+        {
+            return carId;
+        }
+
+
+        private boolean satisfies(RideRequirements requirements)
+        {
+            return requirements.isSatisfiedBy(rating, seatCount, engineType, convertible);
+        }
+    }
+}
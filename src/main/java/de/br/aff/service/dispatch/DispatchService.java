@@ -0,0 +1,23 @@
+package de.br.aff.service.dispatch;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.RideAssignment;
+import de.br.aff.domainvalue.RideRequirements;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.exception.NoDriverAvailableException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Assigns drivers to ride requests.
+ */
+public interface DispatchService
+{
+
+    RideAssignment request(GeoCoordinate pickup, RideRequirements requirements) throws NoDriverAvailableException;
+
+    CompletableFuture<RideAssignment> submit(GeoCoordinate pickup, RideRequirements requirements);
+
+    RideAssignment find(long rideId) throws EntityNotFoundException;
+
+    void complete(long rideId) throws EntityNotFoundException;
+}
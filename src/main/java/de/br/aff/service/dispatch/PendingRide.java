@@ -0,0 +1,25 @@
+package de.br.aff.service.dispatch;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.RideAssignment;
+import de.br.aff.domainvalue.RideRequirements;
+import java.util.concurrent.CompletableFuture;
+import lombok.Getter;
+
+/**
+ * Ride request waiting for the next batch.
+ */
+@Getter
+class PendingRide
+{
+    private final GeoCoordinate pickup;
+    private final RideRequirements requirements;
+    private final CompletableFuture<RideAssignment> assignment = new CompletableFuture<>();
+
+
+    PendingRide(GeoCoordinate pickup, RideRequirements requirements)
+    {
+        this.pickup = pickup;
+        this.requirements = requirements;
+    }
+}
@@ -0,0 +1,230 @@
+package de.br.aff.service.driver;
+
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.journal.DriverJournal;
+import de.br.aff.service.journal.DriverState;
+import de.br.aff.service.location.DriverLocationIndex;
+import de.br.aff.util.TopK;
+import de.br.aff.util.Utils;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Read path for drivers. The queries select the DTOs directly and run in read-only transactions, so neither entity
+ * snapshots are kept nor a dirty check is done at the end of the request. Lookups of a single driver are cached and
+ * show states that are journaled but not written to the database yet.
+ * <p/>
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class DefaultDriverQueryService implements DriverQueryService
+{
+
+    private final DriverRepository driverRepository;
+    private final CarRepository carRepository;
+    private final DriverLocationIndex driverLocationIndex;
+    private final DispatchCandidateIndex dispatchCandidateIndex;
+    private final FleetCache fleetCache;
+    private final DriverJournal driverJournal;
+    private final DriverStateStore driverStateStore;
+
+
+    /**
+     * @throws EntityNotFoundException if no driver with the given id was found or the driver is deleted.
+     */
+    @Override
+    public DriverDTO find(Long driverId) throws EntityNotFoundException
+    {
+        DriverDTO driver = fleetCache.getDrivers().get(driverId, () -> driverRepository.findDTOById(driverId)
+            .orElseThrow(() -> new EntityNotFoundException("Could not find entity with id: " + driverId)));
+
+        Optional<DriverState> journaled = driverJournal.pendingState(driverId);
+        if (!journaled.isPresent())
+        {
+            return driver;
+        }
+        if (journaled.get().isDeleted())
+        {
+            throw new EntityNotFoundException("Could not find entity with id: " + driverId);
+        }
+        GeoCoordinate coordinate = journaled.get().getCoordinate() != null ? journaled.get().getCoordinate() : driver.getCoordinate();
+        return new DriverDTO(driver.getId(), driver.getUsername(), driver.getPassword(), coordinate, journaled.get().getCarId());
+    }
+
+
+    /**
+     * Find all drivers which are not deleted by online status or username or both.
+     */
+    @Override
+    public List<DriverDTO> find(String username, OnlineStatus onlineStatus)
+    {
+        if (username != null && onlineStatus != null)
+        {
+            return driverRepository.findDTOsByUsernameAndOnlineStatus(username, onlineStatus);
+        }
+
+        if (onlineStatus != null)
+        {
+            return driverRepository.findDTOsByOnlineStatus(onlineStatus);
+        }
+
+        if (username != null)
+        {
+            return driverRepository.findDTOsByUsername(username);
+        }
+
+        return driverRepository.findDTOs();
+    }
+
+
+    /**
+     * Keyset pagination over drivers that are not deleted: returns up to limit drivers with an id greater than afterId,
+     * ordered by id.
+     */
+    @Override
+    public List<DriverDTO> findAll(Long afterId, int limit)
+    {
+        return driverRepository.findDTOsByIdGreaterThan(afterId != null ? afterId : Long.MIN_VALUE, PageRequest.of(0, limit));
+    }
+
+
+    /**
+     * Passes every driver that is not deleted to the consumer without loading all of them at once.
+     */
+    @Override
+    public void forEachDriver(Consumer<DriverDTO> consumer)
+    {
+        driverRepository.forEachNotDeleted(consumer);
+    }
+
+
+    @Override
+    public List<DriverDTO> findByCarRating(int carRating)
+    {
+        return driverRepository.findDTOsByCarRating(carRating);
+    }
+
+
+    /**
+     * @return up to limit drivers whose car is rated at least minCarRating, best rated first
+     */
+    @Override
+    public List<DriverDTO> findByMinCarRating(int minCarRating, int limit)
+    {
+        return driverRepository.findDTOsByMinCarRating(minCarRating, PageRequest.of(0, limit));
+    }
+
+
+    @Override
+    public DriverDTO findByLicensePlate(String licensePlate) throws EntityNotFoundException
+    {
+        DriverDTO driver = fleetCache.getDriversByLicensePlate().get(licensePlate, () -> driverRepository.findDTOByCarLicensePlate(licensePlate).orElse(null));
+
+        if (driver != null)
+        {
+            return driver;
+        }
+
+        if (!carRepository.existsByLicensePlate(licensePlate))
+        {
+            throw new EntityNotFoundException("car with license plate submitted doesnt exist");
+        }
+
+        throw new EntityNotFoundException("car with license plate submitted doesnt have driver assigned");
+    }
+
+
+    /**
+     * Finds ONLINE drivers around the given point using the in-memory location index.
+     *
+     * @return drivers within the radius, nearest first
+     */
+    @Override
+    public List<DriverDTO> findNearby(GeoCoordinate center, double radiusKm, int limit)
+    {
+        return findOnline(driverLocationIndex.findNearest(center.getLatitude(), center.getLongitude(), radiusKm, limit));
+    }
+
+
+    /**
+     * Finds the drivers around the given point with the best rated cars among those available for dispatch. Drivers
+     * within the radius are taken from the in-memory indexes, those the state store does not know as ONLINE are skipped
+     * and the best ones are kept in a bounded heap, nothing is sorted but the result.
+     *
+     * @return up to limit drivers within the radius whose car is rated at least minCarRating, best rated first and
+     * nearest first among equally rated ones
+     * @throws IllegalArgumentException if the limit is not between 1 and {@link Utils#MAX_PAGE_SIZE}
+     */
+    @Override
+    public List<DriverDTO> findTopRatedNearby(GeoCoordinate center, double radiusKm, int minCarRating, int limit)
+    {
+        TopK<RatedDriver> topRated = new TopK<>(Utils.checkPageLimit(limit), Comparator.comparingInt((RatedDriver driver) -> driver.carRating)
+            .thenComparing(Comparator.comparingDouble((RatedDriver driver) -> driver.distanceKm).reversed()));
+
+        driverLocationIndex.forEachWithin(center.getLatitude(), center.getLongitude(), radiusKm, (driverId, distanceKm) -> {
+            OptionalInt carRating = dispatchCandidateIndex.availableCarRating(driverId);
+            if (carRating.isPresent() && carRating.getAsInt() >= minCarRating && driverStateStore.isOnline(driverId))
+            {
+                topRated.offer(new RatedDriver(driverId, carRating.getAsInt(), distanceKm));
+            }
+        });
+
+        return findOnline(topRated.toList().stream().map(driver -> driver.driverId).collect(Collectors.toList()));
+    }
+
+
+    /**
+     * @return the ONLINE drivers among the given ones, in the given order
+     */
+    private List<DriverDTO> findOnline(List<Long> driverIds)
+    {
+        if (driverIds.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        Map<Long, DriverDTO> driversById = driverRepository.findDTOsByIdInAndOnlineStatus(driverIds, OnlineStatus.ONLINE).stream()
+            .collect(Collectors.toMap(DriverDTO::getId, Function.identity()));
+
+        return driverIds.stream()
+            .map(driversById::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+
+    private static final class RatedDriver
+    {
+        private final long driverId;
+        private final int carRating;
+        private final double distanceKm;
+
+
+        private RatedDriver(long driverId, int carRating, double distanceKm)
+        {
+            this.driverId = driverId;
+            this.carRating = carRating;
+            this.distanceKm = distanceKm;
+        }
+    }
+}
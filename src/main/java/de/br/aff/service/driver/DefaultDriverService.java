@@ -1,6 +1,10 @@
 package de.br.aff.service.driver;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import de.br.aff.dataaccessobject.BulkInsertRepository;
 import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.domainobject.DriverDO;
 import de.br.aff.domainvalue.GeoCoordinate;
@@ -8,19 +12,38 @@ import de.br.aff.domainvalue.OnlineStatus;
 import de.br.aff.exception.CarAlreadyInUseException;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.car.CarSearchIndex;
 import de.br.aff.service.car.CarService;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.journal.DriverJournal;
+import de.br.aff.service.journal.DriverState;
+import de.br.aff.service.location.DriverLocationIndex;
+import de.br.aff.service.snapshot.DispatchSnapshot;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service to encapsulate the link between DAO and controller and to have business logic for some driver specific things.
  * <p/>
+ * If the {@link DriverJournal} is enabled, changes of status, coordinate, car and soft delete are journaled and written to
+ * the database in the background. Single drivers are read with the journaled state on top, listings and searches see the
+ * change once it is written.
  */
 @Service
 @Slf4j
@@ -28,8 +51,71 @@ import org.springframework.transaction.annotation.Transactional;
 public class DefaultDriverService implements DriverService
 {
 
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
     private final DriverRepository driverRepository;
+    private final BulkInsertRepository bulkInsertRepository;
     private final CarService carService;
+    private final DriverLocationIndex driverLocationIndex;
+    private final DispatchCandidateIndex dispatchCandidateIndex;
+    private final CarSearchIndex carSearchIndex;
+    private final FleetCache fleetCache;
+    private final DriverChangeBroadcaster driverChangeBroadcaster;
+    private final DriverJournal driverJournal;
+    private final DispatchSnapshot dispatchSnapshot;
+    private final DriverStateStore driverStateStore;
+
+    /**
+     * Serialize car selection per driver and per car, so reading the car a driver gives up, checking that the new car is
+     * free and assigning it happen atomically. The driver is locked before its cars and the cars in the order of their
+     * stripes, so selections never wait for each other in a cycle.
+     */
+    private final Striped<Lock> driverSelectionLocks = Striped.lock(64);
+    private final Striped<Lock> carSelectionLocks = Striped.lock(64);
+
+
+    /**
+     * Fills the location and dispatch indexes with the drivers that are available for dispatch once the application has
+     * started. Drivers restored from a periodic snapshot that are no longer available are removed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initDispatchIndexes()
+    {
+        if (dispatchSnapshot.isRestoredFromShutdown())
+        {
+            return;
+        }
+
+        Set<Long> restoredDriverIds = new HashSet<>();
+        driverLocationIndex.forEach((driverId, latitude, longitude) -> restoredDriverIds.add(driverId));
+        driverRepository.findByOnlineStatusAndDeletedFalse(OnlineStatus.ONLINE).forEach(driver -> {
+            restoredDriverIds.remove(driver.getId());
+            refreshDispatchIndexes(driver);
+        });
+        restoredDriverIds.forEach(driverId -> {
+            driverLocationIndex.remove(driverId);
+            dispatchCandidateIndex.remove(driverId);
+        });
+        log.info("Location index initialized with {} drivers, {} of them with a car", driverLocationIndex.size(), dispatchCandidateIndex.size());
+    }
+
+
+    /**
+     * Loads all drivers that are not deleted into the state store once the application has started, unless the store was
+     * restored from a shutdown snapshot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initDriverStateStore()
+    {
+        if (dispatchSnapshot.isRestoredFromShutdown())
+        {
+            return;
+        }
+
+        driverStateStore.ensureCapacity((int) driverRepository.count());
+        driverRepository.forEachNotDeletedState(driverStateStore::put);
+        log.info("Driver state store initialized with {} drivers, {} MB", driverStateStore.size(), driverStateStore.footprintBytes() >> 20);
+    }
 
 
     /**
@@ -37,7 +123,7 @@ public class DefaultDriverService implements DriverService
      *
      * @param driverId
      * @return found driver
-     * @throws EntityNotFoundException if no driver with the given id was found.
+     * @throws EntityNotFoundException if no driver with the given id was found or the driver is deleted.
      */
     @Override
     public DriverDO find(Long driverId) throws EntityNotFoundException
@@ -47,31 +133,42 @@ public class DefaultDriverService implements DriverService
 
 
     /**
-     * Find all drivers by online status or username or both.
+     * Find all drivers which are not deleted by online status or username or both.
      */
     @Override
     public List<DriverDO> find(String username, OnlineStatus onlineStatus)
     {
         if (username != null && onlineStatus != null)
         {
-            return driverRepository.findByUsernameAndOnlineStatus(username, onlineStatus);
+            return driverRepository.findByUsernameAndOnlineStatusAndDeletedFalse(username, onlineStatus);
         }
 
         if (onlineStatus != null)
         {
-            return driverRepository.findByOnlineStatus(onlineStatus);
+            return driverRepository.findByOnlineStatusAndDeletedFalse(onlineStatus);
         }
 
         if (username != null)
         {
-            return driverRepository.findByUsername(username);
+            return driverRepository.findByUsernameAndDeletedFalse(username);
         }
 
-        return (List<DriverDO>) driverRepository.findAll();
+        return driverRepository.findByDeletedFalse();
 
     }
 
 
+    /**
+     * Keyset pagination over drivers that are not deleted: returns up to limit drivers with an id greater than afterId,
+     * ordered by id.
+     */
+    @Override
+    public List<DriverDO> findAll(Long afterId, int limit)
+    {
+        return driverRepository.findByIdGreaterThanAndDeletedFalseOrderByIdAsc(afterId != null ? afterId : Long.MIN_VALUE, PageRequest.of(0, limit));
+    }
+
+
     /**
      * Creates a new driver.
      *
@@ -92,10 +189,57 @@ public class DefaultDriverService implements DriverService
             log.warn("ConstraintsViolationException while creating a driver: {}", driverDO, e);
             throw new ConstraintsViolationException(e.getMessage());
         }
+        refreshDispatchIndexes(driver);
         return driver;
     }
 
 
+    /**
+     * Creates all drivers whose username is neither taken nor used by an earlier driver of the list. Usernames are checked
+     * with one query per chunk and the drivers are inserted in JDBC batches.
+     *
+     * @return one result per given driver, in the same order
+     * @throws ConstraintsViolationException if a username was taken concurrently, nothing is created then
+     */
+    @Override
+    public List<BulkResultDTO> createAll(List<DriverDO> drivers) throws ConstraintsViolationException
+    {
+        Set<String> takenUsernames = new HashSet<>();
+        for (List<DriverDO> chunk : Lists.partition(drivers, LOOKUP_CHUNK_SIZE))
+        {
+            takenUsernames.addAll(driverRepository.findUsernamesIn(chunk.stream().map(DriverDO::getUsername).collect(Collectors.toList())));
+        }
+
+        List<DriverDO> driversToInsert = new ArrayList<>();
+        for (DriverDO driver : drivers)
+        {
+            if (takenUsernames.add(driver.getUsername()))
+            {
+                driversToInsert.add(driver);
+            }
+        }
+
+        try
+        {
+            bulkInsertRepository.insertAll(driversToInsert);
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            log.warn("ConstraintsViolationException while creating {} drivers", driversToInsert.size(), e);
+            throw new ConstraintsViolationException(e.getMessage());
+        }
+        driversToInsert.forEach(this::refreshDispatchIndexes);
+
+        List<BulkResultDTO> results = new ArrayList<>(drivers.size());
+        for (int i = 0; i < drivers.size(); i++)
+        {
+            Long id = drivers.get(i).getId();
+            results.add(id != null ? BulkResultDTO.created(i, id) : BulkResultDTO.rejected(i, "Driver with this username already exists"));
+        }
+        return results;
+    }
+
+
     /**
      * Deletes an existing driver by id.
      *
@@ -103,57 +247,114 @@ public class DefaultDriverService implements DriverService
      * @throws EntityNotFoundException if no driver with the given id was found.
      */
     @Override
-    @Transactional
     public void delete(Long driverId) throws EntityNotFoundException
     {
         DriverDO driverDO = findDriverChecked(driverId);
         driverDO.setDeleted(true);
+        saveState(driverDO);
+        fleetCache.evictDriver(driverDO);
+        refreshDispatchIndexes(driverDO);
+        driverChangeBroadcaster.publish(driverDO);
     }
 
 
     @Override
     public void selectCar(long driverId, long carId) throws EntityNotFoundException, ConstraintsViolationException, CarAlreadyInUseException
     {
-        DriverDO driver = find(driverId);
-
-        if (OnlineStatus.OFFLINE == driver.getOnlineStatus())
+        Lock driverLock = driverSelectionLocks.get(driverId);
+        driverLock.lock();
+        try
         {
-            throw new ConstraintsViolationException("Only ONLINE drivers can select cars");
-        }
+            // the driver has to be read while holding the lock, otherwise the car it gives up could already be outdated
+            DriverDO driver = find(driverId);
 
-        CarDO carToSelect = carService.find(carId).orElseThrow(() -> new ConstraintsViolationException("Car to be assigned not found"));
+            if (OnlineStatus.OFFLINE == driver.getOnlineStatus())
+            {
+                throw new ConstraintsViolationException("Only ONLINE drivers can select cars");
+            }
 
-        if (carToSelect.getDriver() != null)
-        {
-            if (carToSelect.getDriver().getId() == driverId)
+            CarDO previousCar = driver.getCar();
+            List<Lock> carLocks = lockCars(previousCar != null ? Arrays.asList(previousCar.getId(), carId) : Collections.singletonList(carId));
+            try
             {
-                return; //put is idempotent
+                // the car has to be read while holding the lock, otherwise its driver could already be outdated
+                CarDO carToSelect = carService.find(carId).orElseThrow(() -> new ConstraintsViolationException("Car to be assigned not found"));
+
+                Long currentDriverId = currentDriverOf(carToSelect);
+                if (currentDriverId != null)
+                {
+                    if (currentDriverId == driverId)
+                    {
+                        return; //put is idempotent
+                    }
+                    else
+                    {
+                        throw new CarAlreadyInUseException("This car is already taken by another driver");
+                    }
+                }
+
+                // the car the driver gives up has to be evicted as well
+                fleetCache.evictDriver(driver);
+                driver.setCar(carToSelect);
+
+                saveCarSelection(driver);
+                fleetCache.evictDriver(driver);
+                refreshDispatchIndexes(driver);
+                if (previousCar != null)
+                {
+                    carSearchIndex.setDriver(previousCar.getId(), false);
+                }
+                carSearchIndex.setDriver(carId, true);
+                driverChangeBroadcaster.publish(driver);
             }
-            else
+            finally
             {
-                throw new CarAlreadyInUseException("This car is already taken by another driver");
+                unlock(carLocks);
             }
         }
-
-        driver.setCar(carToSelect);
-
-        driverRepository.save(driver);
+        finally
+        {
+            driverLock.unlock();
+        }
     }
 
 
     @Override
     public void deselectCar(long driverId) throws EntityNotFoundException
     {
-        DriverDO driver = find(driverId);
-
-        if (driver.getCar() == null)
+        Lock driverLock = driverSelectionLocks.get(driverId);
+        driverLock.lock();
+        try
         {
-            return;
-        }
+            DriverDO driver = find(driverId);
 
-        driver.setCar(null);
+            if (driver.getCar() == null)
+            {
+                return;
+            }
 
-        driverRepository.save(driver);
+            long carId = driver.getCar().getId();
+            // another driver must not take the car before it is marked as free in the search index
+            List<Lock> carLocks = lockCars(Collections.singletonList(carId));
+            try
+            {
+                fleetCache.evictDriver(driver);
+                driver.setCar(null);
+
+                saveState(driver);
+                refreshDispatchIndexes(driver);
+                carSearchIndex.setDriver(carId, false);
+                driverChangeBroadcaster.publish(driver);
+            }
+            finally
+            {
+                unlock(carLocks);
+            }
+        }
+        finally
+        {
+            driverLock.unlock();
+        }
     }
 
 
@@ -162,6 +363,7 @@ public class DefaultDriverService implements DriverService
     {
         DriverDO existingDriver = find(driverId);
 
+        boolean credentialsChanged = newDriverData.getUsername() != null || newDriverData.getPassword() != null;
         if (newDriverData.getUsername() != null)
         {
             existingDriver.setUsername(newDriverData.getUsername());
@@ -182,48 +384,133 @@ public class DefaultDriverService implements DriverService
             updateLocation(existingDriver, newDriverData.getCoordinate());
         }
 
-        driverRepository.save(existingDriver);
+        // username and password are not journaled
+        if (credentialsChanged && driverJournal.isEnabled())
+        {
+            driverRepository.save(existingDriver);
+        }
+        saveState(existingDriver);
+        fleetCache.evictDriver(existingDriver);
+        refreshDispatchIndexes(existingDriver);
+        driverChangeBroadcaster.publish(existingDriver);
     }
 
 
     @Override
     public List<DriverDO> findByCarRating(int carRating)
     {
-        List<CarDO> cars = carService.findByRating(carRating);
+        return driverRepository.findByCarRatingAndDeletedFalse(carRating);
+    }
 
-        List<DriverDO> drivers = new ArrayList<>();
 
-        cars.forEach(car -> {
-            if (car.getDriver() != null)
-            {
-                drivers.add(car.getDriver());
-            }
+    @Override
+    public DriverDO findByLicensePlate(String licensePlate) throws EntityNotFoundException
+    {
+        Optional<DriverDO> driver = driverRepository.findByCarLicensePlateAndDeletedFalse(licensePlate);
 
-        });
+        if (driver.isPresent())
+        {
+            return driver.get();
+        }
+
+        if (!carService.findByLicensePlate(licensePlate).isPresent())
+        {
+            throw new EntityNotFoundException("car with license plate submitted doesnt exist");
+        }
 
-        return drivers;
+        throw new EntityNotFoundException("car with license plate submitted doesnt have driver assigned");
     }
 
 
-    @Override
-    public DriverDO findByLicensePlate(String licensePlate) throws EntityNotFoundException
+    /**
+     * Locks the stripes of the cars in the order of the stripes.
+     *
+     * @return the locked stripes, to be unlocked with {@link #unlock(List)}
+     */
+    private List<Lock> lockCars(List<Long> carIds)
+    {
+        List<Lock> locks = Lists.newArrayList(carSelectionLocks.bulkGet(carIds));
+        locks.forEach(Lock::lock);
+        return locks;
+    }
+
+
+    private static void unlock(List<Lock> locks)
+    {
+        Lists.reverse(locks).forEach(Lock::unlock);
+    }
+
+
+    /**
+     * The unique constraint on car_id is the last line of defence if another instance of the service assigned the car
+     * concurrently.
+     */
+    private void saveCarSelection(DriverDO driver) throws CarAlreadyInUseException
+    {
+        try
+        {
+            saveState(driver);
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            log.warn("Car {} was taken concurrently by another driver", driver.getCar().getId(), e);
+            throw new CarAlreadyInUseException("This car is already taken by another driver");
+        }
+    }
+
+
+    /**
+     * Journals the state of the driver if the journal is enabled, otherwise saves the driver.
+     */
+    private void saveState(DriverDO driver)
     {
+        if (driverJournal.isEnabled())
+        {
+            driverJournal.append(DriverState.of(driver));
+        }
+        else
+        {
+            driverRepository.save(driver);
+        }
+    }
 
-        CarDO car = carService.findByLicensePlate(licensePlate).orElseThrow(() -> new EntityNotFoundException("car with license plate submitted doesnt exist"));
 
+    /**
+     * @return the driver of the car, taking journaled states into account that are not written to the database yet
+     */
+    private Long currentDriverOf(CarDO car)
+    {
+        Optional<Long> journaledDriverId = driverJournal.pendingDriverOf(car.getId());
+        if (journaledDriverId.isPresent())
+        {
+            return journaledDriverId.get();
+        }
         if (car.getDriver() == null)
         {
-            throw new EntityNotFoundException("car with license plate submitted doesnt have driver assigned");
+            return null;
         }
 
-        return car.getDriver();
+        Optional<DriverState> journaled = driverJournal.pendingState(car.getDriver().getId());
+        boolean givenUp = journaled.isPresent() && !car.getId().equals(journaled.get().getCarId());
+        return givenUp ? null : car.getDriver().getId();
     }
 
 
     private DriverDO findDriverChecked(Long driverId) throws EntityNotFoundException
     {
-        return driverRepository.findById(driverId)
+        DriverDO driver = driverRepository.findByIdAndDeletedFalse(driverId)
             .orElseThrow(() -> new EntityNotFoundException("Could not find entity with id: " + driverId));
+
+        Optional<DriverState> journaled = driverJournal.pendingState(driverId);
+        if (journaled.isPresent())
+        {
+            if (journaled.get().isDeleted())
+            {
+                throw new EntityNotFoundException("Could not find entity with id: " + driverId);
+            }
+            journaled.get().applyTo(driver, carId -> carService.find(carId).orElse(null));
+        }
+        return driver;
     }
 
 
@@ -233,4 +520,29 @@ public class DefaultDriverService implements DriverService
         driver.setDateCoordinateUpdated(ZonedDateTime.now());
     }
 
+
+    private void refreshDispatchIndexes(DriverDO driver)
+    {
+        driverStateStore.put(driver);
+        if (isAvailableForDispatch(driver))
+        {
+            driverLocationIndex.update(driver.getId(), driver.getCoordinate().getLatitude(), driver.getCoordinate().getLongitude());
+            dispatchCandidateIndex.update(driver.getId(), driver.getCar());
+        }
+        else
+        {
+            driverLocationIndex.remove(driver.getId());
+            dispatchCandidateIndex.remove(driver.getId());
+        }
+    }
+
+
+    private boolean isAvailableForDispatch(DriverDO driver)
+    {
+        return OnlineStatus.ONLINE == driver.getOnlineStatus()
+            && !Boolean.TRUE.equals(driver.getDeleted())
+            && driver.getCoordinate() != null
+            && driver.getCoordinate().getPoint() != null;
+    }
+
 }
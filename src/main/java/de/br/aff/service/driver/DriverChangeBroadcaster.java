@@ -0,0 +1,272 @@
+package de.br.aff.service.driver;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.br.aff.datatransferobject.DriverChangeDTO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.DriverChangeFilter;
+import de.br.aff.domainvalue.DriverPosition;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes driver changes to subscribers as server-sent events, so dashboards do not have to poll the whole fleet.
+ * <p/>
+ * Publishing never blocks: a change is only offered to the bounded queue of every subscriber whose filter it matches,
+ * or whose filter the driver leaves with it. For that every subscriber remembers the drivers it was last sent a matching
+ * change of, so a driver going offline, moving out of the bounding box or being deleted is seen once more. A ping
+ * without status only tells whether the driver left the bounding box, the driver keeps the status of its last change.
+ * The queues are written to the clients by a small pool of sender threads, at most one per subscriber at a time. A
+ * subscriber whose queue is full can not keep up and is evicted, its stream is completed and the client has to subscribe
+ * again.
+ */
+@Component
+@Slf4j
+public class DriverChangeBroadcaster
+{
+    private static final String EVENT_NAME = "driver";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int queueCapacity;
+    private final long timeoutMs;
+    private final ExecutorService senders;
+
+    private final Counter evicted = Metrics.counter("driver.changes.evicted");
+
+
+    @Autowired
+    public DriverChangeBroadcaster(
+        @Value("${dispatch.driver-changes.queue-capacity:1024}") int queueCapacity,
+        @Value("${dispatch.driver-changes.timeout-ms:1800000}") long timeoutMs,
+        @Value("${dispatch.driver-changes.sender-threads:2}") int senderThreads)
+    {
+        this(queueCapacity, timeoutMs,
+            Executors.newFixedThreadPool(senderThreads, new ThreadFactoryBuilder().setNameFormat("driver-changes-%d").setDaemon(true).build()));
+    }
+
+
+    DriverChangeBroadcaster(int queueCapacity, long timeoutMs, ExecutorService senders)
+    {
+        if (queueCapacity <= 0 || timeoutMs <= 0)
+        {
+            throw new IllegalArgumentException("queue capacity and timeout have to be positive");
+        }
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+        this.senders = senders;
+        Metrics.gauge("driver.changes.subscribers", subscribers, Set::size);
+    }
+
+
+    /**
+     * @return stream of the changes matching the filter, completed when the subscriber is evicted or times out
+     * @throws IllegalArgumentException if the filter is invalid
+     */
+    public SseEmitter subscribe(DriverChangeFilter filter)
+    {
+        filter.check();
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, filter, queueCapacity);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+
+    /**
+     * Publishes the state of the driver after it was changed through the API.
+     */
+    public void publish(DriverDO driver)
+    {
+        if (subscribers.isEmpty())
+        {
+            return;
+        }
+        publish(DriverChangeDTO.builder()
+            .driverId(driver.getId())
+            .onlineStatus(driver.getOnlineStatus())
+            .coordinate(driver.getCoordinate())
+            .carId(driver.getCar() != null ? driver.getCar().getId() : null)
+            .deleted(driver.getDeleted())
+            .timestamp(System.currentTimeMillis())
+            .build());
+    }
+
+
+    /**
+     * Publishes a position ping with the online status the driver has in the {@link DriverStateStore}, without status if
+     * the driver is not known there.
+     */
+    public void publishPosition(DriverPosition position, OnlineStatus onlineStatus)
+    {
+        if (subscribers.isEmpty())
+        {
+            return;
+        }
+        publish(DriverChangeDTO.builder()
+            .driverId(position.getDriverId())
+            .onlineStatus(onlineStatus)
+            .coordinate(new GeoCoordinate(position.getLatitude(), position.getLongitude()))
+            .timestamp(position.getTimestamp())
+            .build());
+    }
+
+
+    public int subscriberCount()
+    {
+        return subscribers.size();
+    }
+
+
+    @PreDestroy
+    public void shutdown()
+    {
+        subscribers.forEach(this::evict);
+        senders.shutdown();
+    }
+
+
+    private void publish(DriverChangeDTO change)
+    {
+        for (Subscriber subscriber : subscribers)
+        {
+            if (!subscriber.accepts(change))
+            {
+                continue;
+            }
+            if (subscriber.queue.offer(change))
+            {
+                scheduleSend(subscriber);
+            }
+            else
+            {
+                evicted.increment();
+                log.warn("Evicting a driver change subscriber that fell {} changes behind", queueCapacity);
+                evict(subscriber);
+            }
+        }
+    }
+
+
+    /**
+     * Completing the stream has to wait for a send in progress, so it is left to a sender thread.
+     */
+    private void evict(Subscriber subscriber)
+    {
+        subscribers.remove(subscriber);
+        subscriber.evicted = true;
+        subscriber.queue.clear();
+        scheduleSend(subscriber);
+    }
+
+
+    private void close(Subscriber subscriber)
+    {
+        subscribers.remove(subscriber);
+        subscriber.closed.set(true);
+        subscriber.queue.clear();
+    }
+
+
+    private void scheduleSend(Subscriber subscriber)
+    {
+        if (subscriber.sending.compareAndSet(false, true))
+        {
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+
+    private void send(Subscriber subscriber)
+    {
+        try
+        {
+            if (subscriber.evicted)
+            {
+                if (!subscriber.closed.getAndSet(true))
+                {
+                    subscriber.emitter.complete();
+                }
+                return;
+            }
+            for (DriverChangeDTO change = subscriber.queue.poll(); change != null && !subscriber.closed.get(); change = subscriber.queue.poll())
+            {
+                subscriber.emitter.send(SseEmitter.event().name(EVENT_NAME).data(change));
+            }
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            // the client went away or the stream was completed in the meantime
+            close(subscriber);
+        }
+        finally
+        {
+            subscriber.sending.set(false);
+        }
+
+        // a change or the eviction may have come in after the queue was found empty
+        if (!subscriber.closed.get() && (subscriber.evicted || !subscriber.queue.isEmpty()))
+        {
+            scheduleSend(subscriber);
+        }
+    }
+
+
+    private static final class Subscriber
+    {
+        private final SseEmitter emitter;
+        private final DriverChangeFilter filter;
+        private final Queue<DriverChangeDTO> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Set<Long> inside;
+        private volatile boolean evicted;
+
+
+        private Subscriber(SseEmitter emitter, DriverChangeFilter filter, int queueCapacity)
+        {
+            this.emitter = emitter;
+            this.filter = filter;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.inside = filter.acceptsAll() ? null : ConcurrentHashMap.newKeySet();
+        }
+
+
+        /**
+         * @return whether the change matches the filter or the driver leaves it with the change
+         */
+        private boolean accepts(DriverChangeDTO change)
+        {
+            if (inside == null)
+            {
+                return filter.matches(change.getOnlineStatus(), change.getCoordinate());
+            }
+            boolean matches = change.getOnlineStatus() != null || change.isDeleted()
+                ? filter.matches(change.getOnlineStatus(), change.getCoordinate())
+                : (filter.getOnlineStatuses() == null || inside.contains(change.getDriverId())) && filter.contains(change.getCoordinate());
+            if (matches && !change.isDeleted())
+            {
+                inside.add(change.getDriverId());
+                return true;
+            }
+            return inside.remove(change.getDriverId()) || matches;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.br.aff.service.driver;
+
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.exception.EntityNotFoundException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-only access to drivers for the API, answered with DTOs instead of managed entities.
+ */
+public interface DriverQueryService
+{
+
+    DriverDTO find(Long driverId) throws EntityNotFoundException;
+
+    List<DriverDTO> find(String username, OnlineStatus onlineStatus);
+
+    List<DriverDTO> findAll(Long afterId, int limit);
+
+    void forEachDriver(Consumer<DriverDTO> consumer);
+
+    List<DriverDTO> findByCarRating(int carRating);
+
+    List<DriverDTO> findByMinCarRating(int minCarRating, int limit);
+
+    DriverDTO findByLicensePlate(String licensePlate) throws EntityNotFoundException;
+
+    List<DriverDTO> findNearby(GeoCoordinate center, double radiusKm, int limit);
+
+    List<DriverDTO> findTopRatedNearby(GeoCoordinate center, double radiusKm, int minCarRating, int limit);
+}
@@ -1,5 +1,6 @@
 package de.br.aff.service.driver;
 
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.domainobject.DriverDO;
 import de.br.aff.domainvalue.OnlineStatus;
 import de.br.aff.exception.CarAlreadyInUseException;
@@ -14,8 +15,12 @@ public interface DriverService
 
     List<DriverDO> find(String username, OnlineStatus onlineStatus);
 
+    List<DriverDO> findAll(Long afterId, int limit);
+
     DriverDO create(DriverDO driverDO) throws ConstraintsViolationException;
 
+    List<BulkResultDTO> createAll(List<DriverDO> drivers) throws ConstraintsViolationException;
+
     void delete(Long driverId) throws EntityNotFoundException;
 
     void selectCar(long driverId, long carId) throws EntityNotFoundException, ConstraintsViolationException, CarAlreadyInUseException;
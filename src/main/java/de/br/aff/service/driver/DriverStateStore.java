@@ -0,0 +1,524 @@
+package de.br.aff.service.driver;
+
+import com.google.common.base.Preconditions;
+import de.br.aff.datatransferobject.DriverStateDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.util.LongIntHashMap;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compact in-memory view of all drivers that are not deleted, with the fields dispatch works with: position, online
+ * status, car, car rating and seat count, and when the position was updated.
+ * <p/>
+ * The fields are kept in one primitive array each (struct of arrays), a driver is a row in all of them. Rows are found
+ * through a {@link LongIntHashMap} from driver id to row, removing a driver moves the last row into its place. A second map
+ * from car id to row lets car changes touch only the row of the driver of the car. A driver takes 63 bytes in the arrays
+ * and up to 26 bytes in each map, instead of the hundreds of bytes of a {@link DriverDO} with its boxed values, date and
+ * point.
+ * <p/>
+ * Rows are added, moved and removed under the write lock. Position pings only take the read lock and update the position
+ * of their row under its sequence number, like the slots of the driver position table: the writer makes it odd with a
+ * compare-and-set and even again when done, readers read the position again until they saw the same even number before
+ * and after it.
+ */
+@Component
+public class DriverStateStore
+{
+    public static final long NO_CAR = Long.MIN_VALUE;
+    private static final int NO_ROW = -1;
+    private static final OnlineStatus[] ONLINE_STATUSES = OnlineStatus.values();
+
+    private final StampedLock lock = new StampedLock();
+    private final LongIntHashMap rowsByDriverId;
+    private final LongIntHashMap rowsByCarId;
+    private int size;
+
+    private long[] driverIds;
+    private double[] latitudes;
+    private double[] longitudes;
+    private byte[] onlineStatuses;
+    private long[] carIds;
+    private int[] carRatings;
+    private short[] seatCounts;
+    private long[] positionUpdatedAt;
+    private AtomicLongArray sequences;
+
+
+    public DriverStateStore(@Value("${dispatch.driver-state-store.initial-capacity:1024}") int initialCapacity)
+    {
+        if (initialCapacity <= 0)
+        {
+            throw new IllegalArgumentException("initial capacity has to be positive");
+        }
+        rowsByDriverId = new LongIntHashMap(initialCapacity, NO_ROW);
+        rowsByCarId = new LongIntHashMap(initialCapacity, NO_ROW);
+        allocate(initialCapacity);
+        Metrics.gauge("driver.state.store.size", this, DriverStateStore::size);
+        Metrics.gauge("driver.state.store.online", this, store -> store.count(OnlineStatus.ONLINE));
+    }
+
+
+    /**
+     * Grows the store ahead of loading many drivers, so it is not copied over and over.
+     */
+    public void ensureCapacity(int capacity)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            if (capacity > driverIds.length)
+            {
+                allocate(capacity);
+            }
+            rowsByDriverId.ensureCapacity(capacity);
+            rowsByCarId.ensureCapacity(capacity);
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Takes over the state of the driver, a deleted driver is removed. A position the store got later than the one of the
+     * driver is kept.
+     */
+    public void put(DriverDO driver)
+    {
+        if (Boolean.TRUE.equals(driver.getDeleted()))
+        {
+            remove(driver.getId());
+            return;
+        }
+        Preconditions.checkNotNull(driver.getOnlineStatus(), "online status of driver %s is null", driver.getId());
+
+        CarDO car = driver.getCar();
+        put(driver.getId(), driver.getOnlineStatus(),
+            driver.getCoordinate() != null ? driver.getCoordinate().getLatitude() : Double.NaN,
+            driver.getCoordinate() != null ? driver.getCoordinate().getLongitude() : Double.NaN,
+            driver.getDateCoordinateUpdated() != null ? driver.getDateCoordinateUpdated().toInstant().toEpochMilli() : 0,
+            car != null && car.getId() != null ? car.getId() : NO_CAR,
+            car != null ? car.getRating() : 0,
+            car != null ? car.getSeatCount() : 0);
+    }
+
+
+    public void put(DriverStateDTO driver)
+    {
+        Preconditions.checkNotNull(driver.getOnlineStatus(), "online status of driver %s is null", driver.getId());
+        put(driver.getId(), driver.getOnlineStatus(),
+            driver.getCoordinate() != null ? driver.getCoordinate().getLatitude() : Double.NaN,
+            driver.getCoordinate() != null ? driver.getCoordinate().getLongitude() : Double.NaN,
+            driver.getDateCoordinateUpdated() != null ? driver.getDateCoordinateUpdated().toInstant().toEpochMilli() : 0,
+            driver.getCarId() != null ? driver.getCarId() : NO_CAR,
+            driver.getCarRating() != null ? driver.getCarRating() : 0,
+            driver.getCarSeatCount() != null ? driver.getCarSeatCount() : 0);
+    }
+
+
+    /**
+     * Restores a row, e.g. from a snapshot.
+     */
+    public void put(Entry entry)
+    {
+        Preconditions.checkNotNull(entry.getOnlineStatus(), "online status of driver %s is null", entry.getDriverId());
+        put(entry.getDriverId(), entry.getOnlineStatus(), entry.getLatitude(), entry.getLongitude(), entry.getPositionUpdatedAt(),
+            entry.getCarId() != null ? entry.getCarId() : NO_CAR, entry.getCarRating(), entry.getSeatCount());
+    }
+
+
+    /**
+     * Moves the driver if it is known and the position is not older than the one it has.
+     *
+     * @return the online status of the driver, null if it is not known
+     */
+    public OnlineStatus updatePosition(long driverId, double latitude, double longitude, long timestamp)
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            int row = rowsByDriverId.get(driverId);
+            if (row == NO_ROW)
+            {
+                return null;
+            }
+
+            long sequence = acquire(row);
+            try
+            {
+                if (timestamp >= positionUpdatedAt[row])
+                {
+                    latitudes[row] = latitude;
+                    longitudes[row] = longitude;
+                    positionUpdatedAt[row] = timestamp;
+                }
+            }
+            finally
+            {
+                sequences.set(row, sequence + 2);
+            }
+            return ONLINE_STATUSES[onlineStatuses[row]];
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Takes over changed rating and seat count of a car.
+     */
+    public void updateCar(CarDO car)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int row = rowsByCarId.get(car.getId());
+            if (row != NO_ROW)
+            {
+                carRatings[row] = car.getRating();
+                seatCounts[row] = (short) car.getSeatCount();
+            }
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    public void removeCar(long carId)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int row = rowsByCarId.remove(carId);
+            if (row != NO_ROW)
+            {
+                carIds[row] = NO_CAR;
+                carRatings[row] = 0;
+                seatCounts[row] = 0;
+            }
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    public void remove(long driverId)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int row = rowsByDriverId.remove(driverId);
+            if (row == NO_ROW)
+            {
+                return;
+            }
+
+            unindexCar(row);
+            int last = --size;
+            if (row != last)
+            {
+                copyRow(last, row);
+                rowsByDriverId.put(driverIds[row], row);
+                if (carIds[row] != NO_CAR && rowsByCarId.get(carIds[row]) == last)
+                {
+                    rowsByCarId.put(carIds[row], row);
+                }
+            }
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    public Optional<Entry> find(long driverId)
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            int row = rowsByDriverId.get(driverId);
+            return row != NO_ROW ? Optional.of(entry(row)) : Optional.empty();
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    public boolean isOnline(long driverId)
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            int row = rowsByDriverId.get(driverId);
+            return row != NO_ROW && onlineStatuses[row] == OnlineStatus.ONLINE.ordinal();
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Passes a copy of every row to the consumer, position pings are not held up meanwhile.
+     */
+    public void forEach(Consumer<Entry> consumer)
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            for (int row = 0; row < size; row++)
+            {
+                consumer.accept(entry(row));
+            }
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    public int count(OnlineStatus onlineStatus)
+    {
+        Preconditions.checkNotNull(onlineStatus, "online status is null");
+        long stamp = lock.readLock();
+        try
+        {
+            int count = 0;
+            for (int row = 0; row < size; row++)
+            {
+                if (onlineStatuses[row] == onlineStatus.ordinal())
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    public int size()
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            return size;
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * @return bytes taken by the arrays of the store, including the rows allocated ahead
+     */
+    public long footprintBytes()
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            long bytesPerRow = 6L * Long.BYTES + Integer.BYTES + Short.BYTES + 1;
+            return driverIds.length * bytesPerRow + rowsByDriverId.footprintBytes() + rowsByCarId.footprintBytes();
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    private void put(long driverId, OnlineStatus onlineStatus, double latitude, double longitude, long positionUpdated, long carId,
+        int carRating, int seatCount)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int row = rowsByDriverId.get(driverId);
+            if (row == NO_ROW)
+            {
+                if (size == driverIds.length)
+                {
+                    allocate(driverIds.length + (driverIds.length >> 1));
+                }
+                row = size++;
+                rowsByDriverId.put(driverId, row);
+                carIds[row] = NO_CAR;
+            }
+
+            else if (positionUpdatedAt[row] > positionUpdated)
+            {
+                // the position came in through a ping after the state was read
+                latitude = latitudes[row];
+                longitude = longitudes[row];
+                positionUpdated = positionUpdatedAt[row];
+            }
+
+            driverIds[row] = driverId;
+            onlineStatuses[row] = (byte) onlineStatus.ordinal();
+            latitudes[row] = latitude;
+            longitudes[row] = longitude;
+            positionUpdatedAt[row] = positionUpdated;
+            if (carIds[row] != carId)
+            {
+                unindexCar(row);
+                if (carId != NO_CAR)
+                {
+                    // a car taken over from another driver whose row is not updated yet goes with the newer row
+                    rowsByCarId.put(carId, row);
+                }
+            }
+            carIds[row] = carId;
+            carRatings[row] = carRating;
+            seatCounts[row] = (short) seatCount;
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Removes the car of the row from the car index, unless another row took the car over since. Has to be called under
+     * the write lock.
+     */
+    private void unindexCar(int row)
+    {
+        if (carIds[row] != NO_CAR && rowsByCarId.get(carIds[row]) == row)
+        {
+            rowsByCarId.remove(carIds[row]);
+        }
+    }
+
+
+    /**
+     * Has to be called under the read or write lock.
+     */
+    private Entry entry(int row)
+    {
+        double latitude;
+        double longitude;
+        long positionUpdated;
+        while (true)
+        {
+            long sequence = sequences.get(row);
+            if ((sequence & 1) == 0)
+            {
+                latitude = latitudes[row];
+                longitude = longitudes[row];
+                positionUpdated = positionUpdatedAt[row];
+                // the compare-and-set of the unchanged value keeps the reads above in front of it
+                if (sequences.compareAndSet(row, sequence, sequence))
+                {
+                    break;
+                }
+            }
+            Thread.yield();
+        }
+        return new Entry(driverIds[row], ONLINE_STATUSES[onlineStatuses[row]], latitude, longitude, positionUpdated,
+            carIds[row] != NO_CAR ? carIds[row] : null, carRatings[row], seatCounts[row]);
+    }
+
+
+    /**
+     * Waits until no other ping updates the position of the row and makes its sequence number odd.
+     *
+     * @return the even sequence number the row had
+     */
+    private long acquire(int row)
+    {
+        while (true)
+        {
+            long sequence = sequences.get(row);
+            if ((sequence & 1) == 0 && sequences.compareAndSet(row, sequence, sequence + 1))
+            {
+                return sequence;
+            }
+            Thread.yield();
+        }
+    }
+
+
+    private void copyRow(int from, int to)
+    {
+        driverIds[to] = driverIds[from];
+        onlineStatuses[to] = onlineStatuses[from];
+        latitudes[to] = latitudes[from];
+        longitudes[to] = longitudes[from];
+        positionUpdatedAt[to] = positionUpdatedAt[from];
+        carIds[to] = carIds[from];
+        carRatings[to] = carRatings[from];
+        seatCounts[to] = seatCounts[from];
+    }
+
+
+    private void allocate(int capacity)
+    {
+        driverIds = driverIds == null ? new long[capacity] : Arrays.copyOf(driverIds, capacity);
+        onlineStatuses = onlineStatuses == null ? new byte[capacity] : Arrays.copyOf(onlineStatuses, capacity);
+        latitudes = latitudes == null ? new double[capacity] : Arrays.copyOf(latitudes, capacity);
+        longitudes = longitudes == null ? new double[capacity] : Arrays.copyOf(longitudes, capacity);
+        positionUpdatedAt = positionUpdatedAt == null ? new long[capacity] : Arrays.copyOf(positionUpdatedAt, capacity);
+        carIds = carIds == null ? new long[capacity] : Arrays.copyOf(carIds, capacity);
+        carRatings = carRatings == null ? new int[capacity] : Arrays.copyOf(carRatings, capacity);
+        seatCounts = seatCounts == null ? new short[capacity] : Arrays.copyOf(seatCounts, capacity);
+        // no position is written while the write lock is held, all sequence numbers are even and may start over
+        sequences = new AtomicLongArray(capacity);
+    }
+
+
+    /**
+     * Copy of a row of the store.
+     */
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @ToString
+    public static final class Entry
+    {
+        private final long driverId;
+        private final OnlineStatus onlineStatus;
+        /**
+         * NaN if the driver has no coordinate
+         */
+        private final double latitude;
+        private final double longitude;
+        /**
+         * epoch millis, 0 if the position was never updated
+         */
+        private final long positionUpdatedAt;
+        private final Long carId;
+        private final int carRating;
+        private final int seatCount;
+    }
+}
@@ -0,0 +1,559 @@
+package de.br.aff.service.journal;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only journal of driver state changes in memory-mapped segment files, written ahead of the database.
+ * <p/>
+ * Every record is a fixed size snapshot of a {@link DriverState} with a sequence number and a checksum. An append returns
+ * once the record is on disk. A committer thread forces the mapped segment and acknowledges every record written up to
+ * then at once, so concurrent appends share one fsync (group commit). Durable states are kept in memory until the
+ * {@link DriverJournalApplier} has written them to the database and moved the checkpoint past them; segments behind the
+ * checkpoint are deleted.
+ * <p/>
+ * On startup the records after the checkpoint are read back. A record with a wrong checksum is a write torn by a crash
+ * and ends the journal.
+ */
+@Component
+@Slf4j
+public class DriverJournal
+{
+    static final int RECORD_SIZE = 64;
+    private static final int CHECKSUM_OFFSET = 50;
+    private static final byte HAS_COORDINATE = 1;
+    private static final byte HAS_COORDINATE_UPDATED = 2;
+    private static final byte HAS_CAR = 4;
+    private static final byte DELETED = 8;
+    private static final OnlineStatus[] ONLINE_STATUSES = OnlineStatus.values();
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<DriverState> notDurable = new ArrayList<>();
+    private final ConcurrentMap<Long, DriverState> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> pendingDriverIdsByCarId = new ConcurrentHashMap<>();
+    private MappedByteBuffer buffer;
+    private int position;
+    private long lastSequence;
+    private volatile long durableSequence;
+    private long checkpoint;
+    private boolean closed;
+    private Thread committer;
+
+    private final Timer commitTime = Metrics.timer("driver.journal.commit");
+    private final DistributionSummary commitSize = Metrics.summary("driver.journal.commit.records");
+
+
+    public DriverJournal(
+        @Value("${dispatch.driver-journal.enabled:false}") boolean enabled,
+        @Value("${dispatch.driver-journal.directory:journal}") String directory,
+        @Value("${dispatch.driver-journal.segment-size-mb:64}") int segmentSizeMb)
+    {
+        if (segmentSizeMb <= 0 || segmentSizeMb > 1024)
+        {
+            throw new IllegalArgumentException("segment size has to be between 1 and 1024 MB");
+        }
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        Metrics.gauge("driver.journal.pending", pending, Map::size);
+    }
+
+
+    /**
+     * Reads back the states that were not applied to the database before the last shutdown or crash.
+     */
+    @PostConstruct
+    public void open() throws IOException
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        checkpoint = readCheckpoint();
+        lastSequence = checkpoint;
+        for (Path path : segmentFiles())
+        {
+            Segment segment = new Segment(path, lastSequence);
+            buffer = map(path, (int) Files.size(path));
+            for (position = 0; position + RECORD_SIZE <= buffer.capacity(); position += RECORD_SIZE)
+            {
+                DriverState state = read(buffer, position);
+                if (state == null)
+                {
+                    break;
+                }
+                segment.lastSequence = state.getSequence();
+                lastSequence = Math.max(lastSequence, state.getSequence());
+                if (state.getSequence() > checkpoint)
+                {
+                    addPending(state);
+                }
+            }
+            segments.add(segment);
+        }
+        if (buffer == null || position + RECORD_SIZE > buffer.capacity())
+        {
+            roll();
+        }
+        durableSequence = lastSequence;
+        deleteAppliedSegments();
+
+        committer = new Thread(this::commit, "driver-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+        log.info("Driver journal opened in {}, {} changes of drivers to apply after sequence {}", directory.toAbsolutePath(), pending.size(), checkpoint);
+    }
+
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Writes the state to the journal and waits until it is on disk.
+     *
+     * @throws IllegalStateException if the journal is disabled or closed
+     */
+    public void append(DriverState state)
+    {
+        lock.lock();
+        try
+        {
+            if (!enabled || closed)
+            {
+                throw new IllegalStateException("The driver journal is " + (enabled ? "closed" : "disabled"));
+            }
+            if (position + RECORD_SIZE > buffer.capacity())
+            {
+                roll();
+            }
+
+            DriverState journaled = state.withSequence(++lastSequence);
+            write(journaled);
+            segments.get(segments.size() - 1).lastSequence = journaled.getSequence();
+            notDurable.add(journaled);
+            written.signal();
+
+            while (durableSequence < journaled.getSequence())
+            {
+                if (closed)
+                {
+                    throw new IllegalStateException("The driver journal was closed before the change was on disk");
+                }
+                durable.awaitUninterruptibly();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return the latest durable state of the driver that is not applied to the database yet
+     */
+    public Optional<DriverState> pendingState(long driverId)
+    {
+        return Optional.ofNullable(pending.get(driverId));
+    }
+
+
+    /**
+     * @return the driver that selected the car according to the states not applied to the database yet
+     */
+    public Optional<Long> pendingDriverOf(long carId)
+    {
+        return Optional.ofNullable(pendingDriverIdsByCarId.get(carId));
+    }
+
+
+    public long getDurableSequence()
+    {
+        return durableSequence;
+    }
+
+
+    /**
+     * @return the states up to the sequence that are not applied to the database yet, one per driver
+     */
+    List<DriverState> pendingStates(long upToSequence)
+    {
+        return pending.values().stream()
+            .filter(state -> state.getSequence() <= upToSequence)
+            .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Forgets the states written to the database or dropped and moves the checkpoint, so they are not applied again after
+     * a restart. A newer state of the same driver stays pending.
+     */
+    void applied(List<DriverState> states, long upToSequence) throws IOException
+    {
+        states.forEach(this::removePending);
+
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        Path newCheckpointFile = directory.resolve(CHECKPOINT_FILE + ".new");
+        try (FileChannel channel = FileChannel.open(newCheckpointFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer sequence = ByteBuffer.allocate(Long.BYTES).putLong(0, upToSequence);
+            channel.write(sequence);
+            channel.force(true);
+        }
+        Files.move(newCheckpointFile, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        lock.lock();
+        try
+        {
+            checkpoint = Math.max(checkpoint, upToSequence);
+            deleteAppliedSegments();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    @PreDestroy
+    public void close() throws InterruptedException
+    {
+        lock.lock();
+        try
+        {
+            closed = true;
+            written.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        if (committer != null)
+        {
+            committer.join();
+        }
+    }
+
+
+    /**
+     * Forces everything written so far at once and acknowledges it, while the next group of appends is written.
+     */
+    private void commit()
+    {
+        while (true)
+        {
+            MappedByteBuffer toForce;
+            long upToSequence;
+            lock.lock();
+            try
+            {
+                while (!closed && lastSequence == durableSequence)
+                {
+                    written.awaitUninterruptibly();
+                }
+                if (lastSequence == durableSequence)
+                {
+                    durable.signalAll();
+                    return;
+                }
+                toForce = buffer;
+                upToSequence = lastSequence;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            long start = System.nanoTime();
+            toForce.force();
+            commitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            lock.lock();
+            try
+            {
+                commitSize.record(upToSequence - durableSequence);
+                markDurable(upToSequence);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Has to be called with the lock held.
+     */
+    private void markDurable(long upToSequence)
+    {
+        Iterator<DriverState> states = notDurable.iterator();
+        while (states.hasNext())
+        {
+            DriverState state = states.next();
+            if (state.getSequence() > upToSequence)
+            {
+                break;
+            }
+            addPending(state);
+            states.remove();
+        }
+        durableSequence = Math.max(durableSequence, upToSequence);
+        durable.signalAll();
+    }
+
+
+    /**
+     * Keeps the state pending unless a newer one of the driver is, and the car of the pending state mapped to its driver.
+     */
+    private void addPending(DriverState state)
+    {
+        pending.compute(state.getDriverId(), (driverId, current) -> {
+            DriverState latest = current != null ? newer(current, state) : state;
+            if (latest != current)
+            {
+                mapCar(latest);
+                // a car kept by the driver stays mapped all along
+                if (current != null && (latest.isDeleted() || !Objects.equals(current.getCarId(), latest.getCarId())))
+                {
+                    unmapCar(current);
+                }
+            }
+            return latest;
+        });
+    }
+
+
+    private void removePending(DriverState state)
+    {
+        pending.computeIfPresent(state.getDriverId(), (driverId, current) -> {
+            if (!current.equals(state))
+            {
+                return current;
+            }
+            unmapCar(current);
+            return null;
+        });
+    }
+
+
+    private void mapCar(DriverState state)
+    {
+        if (!state.isDeleted() && state.getCarId() != null)
+        {
+            pendingDriverIdsByCarId.put(state.getCarId(), state.getDriverId());
+        }
+    }
+
+
+    private void unmapCar(DriverState state)
+    {
+        if (state.getCarId() != null)
+        {
+            pendingDriverIdsByCarId.remove(state.getCarId(), state.getDriverId());
+        }
+    }
+
+
+    /**
+     * Has to be called with the lock held. The full segment is forced before the next one is started, so only the last
+     * segment can end with a torn record.
+     */
+    private void roll() throws IOException
+    {
+        if (buffer != null)
+        {
+            buffer.force();
+            markDurable(lastSequence);
+        }
+        Path path = directory.resolve(String.format("%020d%s", lastSequence + 1, SEGMENT_SUFFIX));
+        buffer = map(path, segmentSize);
+        position = 0;
+        segments.add(new Segment(path, lastSequence));
+    }
+
+
+    /**
+     * Has to be called with the lock held.
+     */
+    private void deleteAppliedSegments() throws IOException
+    {
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext())
+        {
+            Segment segment = iterator.next();
+            if (segments.size() == 1 || segment.lastSequence > checkpoint)
+            {
+                break;
+            }
+            Files.deleteIfExists(segment.path);
+            iterator.remove();
+        }
+    }
+
+
+    private void write(DriverState state)
+    {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        byte flags = 0;
+        record.putLong(0, state.getSequence());
+        record.putLong(8, state.getDriverId());
+        if (state.getDateCoordinateUpdated() != null)
+        {
+            record.putLong(16, state.getDateCoordinateUpdated());
+            flags |= HAS_COORDINATE_UPDATED;
+        }
+        if (state.getCoordinate() != null)
+        {
+            record.putDouble(24, state.getCoordinate().getLatitude());
+            record.putDouble(32, state.getCoordinate().getLongitude());
+            flags |= HAS_COORDINATE;
+        }
+        if (state.getCarId() != null)
+        {
+            record.putLong(40, state.getCarId());
+            flags |= HAS_CAR;
+        }
+        if (state.isDeleted())
+        {
+            flags |= DELETED;
+        }
+        record.put(48, (byte) state.getOnlineStatus().ordinal());
+        record.put(49, flags);
+        record.putInt(CHECKSUM_OFFSET, checksum(record, 0));
+
+        ByteBuffer target = buffer.duplicate();
+        target.position(position);
+        target.put(record);
+        position += RECORD_SIZE;
+    }
+
+
+    /**
+     * @return the state at the offset, null at the end of the journal
+     */
+    private static DriverState read(ByteBuffer buffer, int offset)
+    {
+        long sequence = buffer.getLong(offset);
+        if (sequence == 0 || buffer.getInt(offset + CHECKSUM_OFFSET) != checksum(buffer, offset))
+        {
+            return null;
+        }
+
+        byte flags = buffer.get(offset + 49);
+        return new DriverState(
+            sequence,
+            buffer.getLong(offset + 8),
+            ONLINE_STATUSES[buffer.get(offset + 48)],
+            (flags & HAS_COORDINATE) != 0 ? new GeoCoordinate(buffer.getDouble(offset + 24), buffer.getDouble(offset + 32)) : null,
+            (flags & HAS_COORDINATE_UPDATED) != 0 ? buffer.getLong(offset + 16) : null,
+            (flags & HAS_CAR) != 0 ? buffer.getLong(offset + 40) : null,
+            (flags & DELETED) != 0);
+    }
+
+
+    private static int checksum(ByteBuffer buffer, int offset)
+    {
+        ByteBuffer checksummed = buffer.duplicate();
+        checksummed.position(offset).limit(offset + CHECKSUM_OFFSET);
+        CRC32 crc = new CRC32();
+        crc.update(checksummed);
+        return (int) crc.getValue();
+    }
+
+
+    private static DriverState newer(DriverState current, DriverState candidate)
+    {
+        return candidate.getSequence() > current.getSequence() ? candidate : current;
+    }
+
+
+    private long readCheckpoint() throws IOException
+    {
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        return Files.exists(checkpointFile) ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0;
+    }
+
+
+    private List<Path> segmentFiles() throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory))
+        {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+    }
+
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+
+    private static final class Segment
+    {
+        private final Path path;
+        private long lastSequence;
+
+
+        private Segment(Path path, long lastSequence)
+        {
+            this.path = path;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package de.br.aff.service.journal;
+
+import com.google.common.collect.Lists;
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.service.cache.FleetCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes the durable states of the {@link DriverJournal} to the database in batches, one transaction per batch. Only the
+ * latest state of a driver is written, no matter how often it changed in between.
+ * <p/>
+ * A batch the database rejects for good, e.g. because a car was assigned to another driver behind the journal's back, is
+ * written again state by state. States that still can not be written are dead-lettered: they are logged, counted and
+ * dropped, so the checkpoint does not get stuck behind them. Other failures leave the batch to be retried.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DriverJournalApplier
+{
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final DriverJournal driverJournal;
+    private final DriverRepository driverRepository;
+    private final CarRepository carRepository;
+    private final FleetCache fleetCache;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Counter deadLettered = Metrics.counter("driver.journal.dead-lettered");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    /**
+     * Applies what was left in the journal by the last run before the indexes are filled from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void replay() throws IOException
+    {
+        if (driverJournal.isEnabled())
+        {
+            log.info("Applied {} journaled driver states left by the last run", apply());
+        }
+    }
+
+
+    /**
+     * @return number of drivers written to the database
+     */
+    @Scheduled(fixedDelayString = "${dispatch.driver-journal.apply-interval-ms:200}")
+    public synchronized int apply() throws IOException
+    {
+        if (!driverJournal.isEnabled())
+        {
+            return 0;
+        }
+
+        long upToSequence = driverJournal.getDurableSequence();
+        List<DriverState> states = driverJournal.pendingStates(upToSequence);
+        if (states.isEmpty())
+        {
+            return 0;
+        }
+
+        List<CarDO> releasedCars = new ArrayList<>();
+        List<DriverDO> drivers = new ArrayList<>();
+        List<DriverState> rejected = Collections.emptyList();
+        try
+        {
+            drivers.addAll(new TransactionTemplate(transactionManager).execute(status -> write(states, releasedCars)));
+        }
+        catch (NonTransientDataAccessException e)
+        {
+            log.warn("The database rejected a batch of {} journaled driver states, writing them one by one", states.size(), e);
+            releasedCars.clear();
+            rejected = writeOneByOne(states, drivers, releasedCars);
+        }
+        driverJournal.applied(states, upToSequence);
+        // reads between the change and now may have cached what the database held before
+        drivers.forEach(fleetCache::evictDriver);
+        releasedCars.forEach(car -> fleetCache.getDriversByLicensePlate().evict(car.getLicensePlate()));
+        rejected.forEach(state -> fleetCache.getDrivers().evict(state.getDriverId()));
+        return drivers.size();
+    }
+
+
+    /**
+     * Writes every state in a transaction of its own. A state may only fit once another one gave up its car, so the
+     * rejected states are tried again as long as others get written.
+     *
+     * @return the states the database rejected, they are dead-lettered
+     */
+    private List<DriverState> writeOneByOne(List<DriverState> states, List<DriverDO> drivers, List<CarDO> releasedCars)
+    {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<DriverState> remaining = new ArrayList<>(states);
+        Map<DriverState, NonTransientDataAccessException> failures = new HashMap<>();
+        boolean written = true;
+        while (written && !remaining.isEmpty())
+        {
+            written = false;
+            for (Iterator<DriverState> iterator = remaining.iterator(); iterator.hasNext(); )
+            {
+                DriverState state = iterator.next();
+                List<CarDO> released = new ArrayList<>();
+                try
+                {
+                    drivers.addAll(transactionTemplate.execute(status -> write(Collections.singletonList(state), released)));
+                    releasedCars.addAll(released);
+                    iterator.remove();
+                    written = true;
+                }
+                catch (NonTransientDataAccessException e)
+                {
+                    failures.put(state, e);
+                }
+            }
+        }
+
+        for (DriverState state : remaining)
+        {
+            deadLettered.increment();
+            log.error("Dropping the journaled {}, it conflicts with the database", state, failures.get(state));
+        }
+        return remaining;
+    }
+
+
+    /**
+     * @param releasedCars gets the cars the drivers gave up
+     * @return the written drivers
+     */
+    private List<DriverDO> write(List<DriverState> states, List<CarDO> releasedCars)
+    {
+        Map<Long, DriverState> statesByDriverId = states.stream().collect(Collectors.toMap(DriverState::getDriverId, Function.identity()));
+        List<DriverDO> drivers = new ArrayList<>();
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(statesByDriverId.keySet()), LOOKUP_CHUNK_SIZE))
+        {
+            driverRepository.findAllById(chunk).forEach(drivers::add);
+        }
+        List<Long> carIds = states.stream().map(DriverState::getCarId).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Long, CarDO> carsById = StreamSupport.stream(carRepository.findAllById(carIds).spliterator(), false)
+            .collect(Collectors.toMap(CarDO::getId, Function.identity()));
+
+        // cars are given up first, a car that went from one driver to another would violate the unique constraint otherwise
+        for (DriverDO driver : drivers)
+        {
+            if (driver.getCar() != null && !driver.getCar().getId().equals(statesByDriverId.get(driver.getId()).getCarId()))
+            {
+                releasedCars.add(driver.getCar());
+                driver.setCar(null);
+            }
+        }
+        if (!releasedCars.isEmpty())
+        {
+            entityManager.flush();
+        }
+
+        for (DriverDO driver : drivers)
+        {
+            statesByDriverId.get(driver.getId()).applyTo(driver, carsById::get);
+        }
+        return drivers;
+    }
+}
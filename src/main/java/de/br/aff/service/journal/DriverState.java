@@ -0,0 +1,90 @@
+package de.br.aff.service.journal;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.function.LongFunction;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The journaled part of a driver after a change: status, coordinate, car and soft delete. Username and password are not
+ * journaled. Every journal record holds the complete state, so only the latest record of a driver has to be applied.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class DriverState
+{
+    private final long sequence;
+    private final long driverId;
+    private final OnlineStatus onlineStatus;
+    private final GeoCoordinate coordinate;
+    private final Long dateCoordinateUpdated;
+    private final Long carId;
+    private final boolean deleted;
+
+
+    DriverState(long sequence, long driverId, OnlineStatus onlineStatus, GeoCoordinate coordinate, Long dateCoordinateUpdated, Long carId,
+        boolean deleted)
+    {
+        this.sequence = sequence;
+        this.driverId = driverId;
+        this.onlineStatus = onlineStatus;
+        this.coordinate = coordinate;
+        this.dateCoordinateUpdated = dateCoordinateUpdated;
+        this.carId = carId;
+        this.deleted = deleted;
+    }
+
+
+    public static DriverState of(DriverDO driver)
+    {
+        return new DriverState(0, driver.getId(), driver.getOnlineStatus(), driver.getCoordinate(),
+            driver.getDateCoordinateUpdated() != null ? driver.getDateCoordinateUpdated().toInstant().toEpochMilli() : null,
+            driver.getCar() != null ? driver.getCar().getId() : null,
+            Boolean.TRUE.equals(driver.getDeleted()));
+    }
+
+
+    DriverState withSequence(long sequence)
+    {
+        return new DriverState(sequence, driverId, onlineStatus, coordinate, dateCoordinateUpdated, carId, deleted);
+    }
+
+
+    /**
+     * Takes the state over into the driver. The coordinate is only taken over if it is not older than the one of the
+     * driver, location pings are written to the database next to the journal.
+     *
+     * @param cars finds the car of the state if the driver has another one
+     */
+    public void applyTo(DriverDO driver, LongFunction<CarDO> cars)
+    {
+        driver.setOnlineStatus(onlineStatus);
+        driver.setDeleted(deleted);
+        if (!Objects.equals(carId, driver.getCar() != null ? driver.getCar().getId() : null))
+        {
+            driver.setCar(carId != null ? cars.apply(carId) : null);
+        }
+
+        ZonedDateTime coordinateUpdated = getDateCoordinateUpdatedTime();
+        if (driver.getDateCoordinateUpdated() == null || coordinateUpdated != null && !coordinateUpdated.isBefore(driver.getDateCoordinateUpdated()))
+        {
+            driver.setCoordinate(coordinate);
+            driver.setDateCoordinateUpdated(coordinateUpdated);
+        }
+    }
+
+
+    public ZonedDateTime getDateCoordinateUpdatedTime()
+    {
+        return dateCoordinateUpdated != null ? ZonedDateTime.ofInstant(Instant.ofEpochMilli(dateCoordinateUpdated), ZoneId.systemDefault()) : null;
+    }
+}
@@ -0,0 +1,141 @@
+package de.br.aff.service.location;
+
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.DriverPosition;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.driver.DriverChangeBroadcaster;
+import de.br.aff.service.driver.DriverStateStore;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Accepts high frequency position pings without touching the database. Pings are kept in the {@link LatestPositionStore}
+ * and written to the driver table periodically, one transaction and one JDBC batch per flush.
+ * <p/>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DefaultDriverLocationService implements DriverLocationService
+{
+    private final LatestPositionStore latestPositionStore;
+    private final DriverLocationIndex driverLocationIndex;
+    private final DriverRepository driverRepository;
+    private final FleetCache fleetCache;
+    private final DriverChangeBroadcaster driverChangeBroadcaster;
+    private final DriverStateStore driverStateStore;
+
+    @Value("${dispatch.location-ingest.flush-batch-size:2000}")
+    private int flushBatchSize = 2000;
+
+
+    /**
+     * Stores the positions in memory, moves indexed drivers right away and publishes the positions to the driver change
+     * subscribers.
+     *
+     * A timestamp ahead of the time of receiving is taken as the time of receiving. Otherwise a client with a wrong clock
+     * would win every later comparison and freeze the position of the driver.
+     *
+     * @return number of positions accepted, positions older than the known ones are ignored
+     */
+    @Override
+    public int ingest(List<DriverPosition> positions)
+    {
+        long receivedAt = System.currentTimeMillis();
+        int accepted = 0;
+        for (DriverPosition position : positions)
+        {
+            if (position.getTimestamp() > receivedAt)
+            {
+                position = new DriverPosition(position.getDriverId(), position.getLatitude(), position.getLongitude(), receivedAt);
+            }
+            if (latestPositionStore.offer(position))
+            {
+                driverLocationIndex.updateIfPresent(position.getDriverId(), position.getLatitude(), position.getLongitude());
+                OnlineStatus onlineStatus =
+                    driverStateStore.updatePosition(position.getDriverId(), position.getLatitude(), position.getLongitude(), position.getTimestamp());
+                driverChangeBroadcaster.publishPosition(position, onlineStatus);
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+
+    /**
+     * Writes the positions that changed since the last flush to the driver table. If the transaction does not commit, the
+     * drivers are flushed again next time.
+     *
+     * @return number of drivers updated
+     */
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${dispatch.location-ingest.flush-interval-ms:1000}")
+    public int flush()
+    {
+        List<DriverPosition> changed = latestPositionStore.drainChanged(flushBatchSize);
+        if (changed.isEmpty())
+        {
+            return 0;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion(int status)
+                {
+                    if (status != STATUS_COMMITTED)
+                    {
+                        latestPositionStore.markChanged(changed);
+                    }
+                }
+            });
+        }
+
+        Map<Long, DriverPosition> positionsByDriverId = changed.stream()
+            .collect(Collectors.toMap(DriverPosition::getDriverId, Function.identity()));
+
+        int updated = 0;
+        for (DriverDO driver : driverRepository.findAllById(positionsByDriverId.keySet()))
+        {
+            DriverPosition position = positionsByDriverId.remove(driver.getId());
+            ZonedDateTime reportedAt = ZonedDateTime.ofInstant(Instant.ofEpochMilli(position.getTimestamp()), ZoneId.systemDefault());
+
+            if (driver.getDateCoordinateUpdated() != null && driver.getDateCoordinateUpdated().isAfter(reportedAt))
+            {
+                continue; // coordinate was set through the API in the meantime
+            }
+
+            driver.setCoordinate(new GeoCoordinate(position.getLatitude(), position.getLongitude()));
+            driver.setDateCoordinateUpdated(reportedAt);
+            fleetCache.evictDriver(driver);
+            updated++;
+        }
+
+        if (!positionsByDriverId.isEmpty())
+        {
+            log.warn("Discarding positions of unknown drivers: {}", positionsByDriverId.keySet());
+            positionsByDriverId.keySet().forEach(latestPositionStore::remove);
+        }
+
+        log.debug("Flushed {} driver positions, {} pending", updated, latestPositionStore.pendingCount());
+        return updated;
+    }
+}
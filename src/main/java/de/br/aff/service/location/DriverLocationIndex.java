@@ -0,0 +1,350 @@
+package de.br.aff.service.location;
+
+import de.br.aff.util.TopK;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongPredicate;
+import java.util.function.ObjDoubleConsumer;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory grid index over the positions of drivers available for dispatch.
+ * <p/>
+ * The globe is divided into cells of a fixed size in degrees. Every indexed driver is a member of exactly one cell, so a
+ * radius query only has to look at the cells overlapping the bounding box of the search circle instead of the whole fleet.
+ * <p/>
+ * Positions are kept off the heap in a {@link DriverPositionTable}, together with the cell of the driver. Moving a
+ * driver within its cell therefore allocates nothing. Cells remember the slots of their members, so queries read
+ * positions straight from the table without locking.
+ */
+@Component
+public class DriverLocationIndex
+{
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int DRIVER_LOCKS = 64;
+
+    private final double cellSize;
+    private final int latitudeCells;
+    private final int longitudeCells;
+
+    private final DriverPositionTable positions = new DriverPositionTable(INITIAL_CAPACITY);
+    /**
+     * Members of a cell by driver id, with the slot of their position in the table.
+     */
+    private final ConcurrentMap<Long, ConcurrentMap<Long, Integer>> cells = new ConcurrentHashMap<>();
+    /**
+     * Serializes the changes of a driver, so its cell membership follows the order of its moves.
+     */
+    private final Object[] driverLocks = new Object[DRIVER_LOCKS];
+
+
+    public DriverLocationIndex(@Value("${dispatch.location-index.cell-size-degrees:0.01}") double cellSize)
+    {
+        if (cellSize <= 0 || cellSize > 180)
+        {
+            throw new IllegalArgumentException("cell size has to be in range (0, 180]: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.latitudeCells = (int) Math.ceil(180 / cellSize);
+        this.longitudeCells = (int) Math.ceil(360 / cellSize);
+        Arrays.setAll(driverLocks, i -> new Object());
+    }
+
+
+    /**
+     * Adds the driver to the index or moves it to the new position if it is already indexed.
+     */
+    public void update(long driverId, double latitude, double longitude)
+    {
+        long newCell = cellKey(latitudeIndex(latitude), longitudeIndex(longitude));
+
+        synchronized (lockOf(driverId))
+        {
+            long oldCell = positions.put(driverId, latitude, longitude, newCell);
+            moveCell(driverId, oldCell, newCell);
+        }
+    }
+
+
+    /**
+     * Moves the driver to the new position only if it is already indexed. Drivers that are not available for dispatch
+     * stay out of the index no matter how often they report their position.
+     *
+     * @return true if the driver was indexed and has been moved
+     */
+    public boolean updateIfPresent(long driverId, double latitude, double longitude)
+    {
+        long newCell = cellKey(latitudeIndex(latitude), longitudeIndex(longitude));
+
+        synchronized (lockOf(driverId))
+        {
+            long oldCell = positions.putIfPresent(driverId, latitude, longitude, newCell);
+            if (oldCell == DriverPositionTable.ABSENT)
+            {
+                return false;
+            }
+            moveCell(driverId, oldCell, newCell);
+            return true;
+        }
+    }
+
+
+    /**
+     * Removes the driver from the index, e.g. because it went offline or was deleted.
+     */
+    public void remove(long driverId)
+    {
+        synchronized (lockOf(driverId))
+        {
+            long oldCell = positions.remove(driverId);
+            if (oldCell != DriverPositionTable.ABSENT)
+            {
+                removeFromCell(oldCell, driverId);
+            }
+        }
+    }
+
+
+    public boolean contains(long driverId)
+    {
+        return positions.contains(driverId);
+    }
+
+
+    public int size()
+    {
+        return positions.size();
+    }
+
+
+    /**
+     * Passes every indexed driver with its position to the consumer, e.g. to write a snapshot of the index.
+     */
+    public void forEach(PositionConsumer consumer)
+    {
+        positions.forEach((driverId, latitude, longitude, timestamp) -> consumer.accept(driverId, latitude, longitude));
+    }
+
+
+    /**
+     * @return distance between the indexed driver and the given point, empty if the driver is not indexed
+     */
+    public OptionalDouble distanceKm(long driverId, double latitude, double longitude)
+    {
+        double[] distance = new double[1];
+        boolean indexed = positions.read(driverId, (id, driverLatitude, driverLongitude, timestamp) ->
+            distance[0] = distanceKm(latitude, longitude, driverLatitude, driverLongitude));
+        return indexed ? OptionalDouble.of(distance[0]) : OptionalDouble.empty();
+    }
+
+
+    /**
+     * Finds the indexed drivers within the given radius, nearest first.
+     *
+     * @return at most limit driver ids ordered by ascending distance to the given point
+     */
+    public List<Long> findNearest(double latitude, double longitude, double radiusKm, int limit)
+    {
+        return findNearest(latitude, longitude, radiusKm, limit, driverId -> true);
+    }
+
+
+    /**
+     * Finds the indexed drivers within the given radius that pass the filter, nearest first. The filter is applied before
+     * the limit, so drivers that do not pass it never crowd out drivers further away that do.
+     *
+     * @return at most limit driver ids ordered by ascending distance to the given point
+     */
+    public List<Long> findNearest(double latitude, double longitude, double radiusKm, int limit, LongPredicate filter)
+    {
+        if (limit <= 0)
+        {
+            return Collections.emptyList();
+        }
+
+        TopK<Candidate> nearest = new TopK<>(limit, Comparator.comparingDouble((Candidate candidate) -> candidate.distanceKm).reversed());
+        forEachWithin(latitude, longitude, radiusKm, (driverId, distanceKm) -> {
+            if (filter.test(driverId))
+            {
+                nearest.offer(new Candidate(driverId, distanceKm));
+            }
+        });
+
+        return nearest.toList().stream()
+            .map(candidate -> candidate.driverId)
+            .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Passes every indexed driver within the given radius to the consumer together with its distance, in no particular
+     * order.
+     */
+    public void forEachWithin(double latitude, double longitude, double radiusKm, ObjDoubleConsumer<Long> consumer)
+    {
+        if (radiusKm <= 0)
+        {
+            return;
+        }
+
+        double latitudeSpan = radiusKm / KM_PER_DEGREE;
+        double cosLatitude = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latitudeSpan)));
+        double longitudeSpan = cosLatitude > 0 ? Math.min(180, latitudeSpan / cosLatitude) : 180;
+
+        int minLatitudeIndex = latitudeIndex(Math.max(-90, latitude - latitudeSpan));
+        int maxLatitudeIndex = latitudeIndex(Math.min(90, latitude + latitudeSpan));
+        int longitudeIndexSpan = longitudeSpan >= 180 ? longitudeCells : (int) Math.ceil(longitudeSpan / cellSize);
+        int centerLongitudeIndex = longitudeIndex(longitude);
+
+        long cellsToScan = (long) (maxLatitudeIndex - minLatitudeIndex + 1) * Math.min(longitudeCells, 2L * longitudeIndexSpan + 1);
+        if (cellsToScan > positions.size())
+        {
+            // the search area is sparse compared to the grid, looking at every indexed driver is cheaper
+            positions.forEach((driverId, driverLatitude, driverLongitude, timestamp) ->
+                visit(consumer, driverId, driverLatitude, driverLongitude, latitude, longitude, radiusKm));
+        }
+        else
+        {
+            // members are read into one position, so their ids are passed on without boxing them again
+            double[] position = new double[2];
+            DriverPositionTable.PositionReader positionReader = (driverId, driverLatitude, driverLongitude, timestamp) -> {
+                position[0] = driverLatitude;
+                position[1] = driverLongitude;
+            };
+            for (int latitudeIndex = minLatitudeIndex; latitudeIndex <= maxLatitudeIndex; latitudeIndex++)
+            {
+                for (int offset = -longitudeIndexSpan; offset <= longitudeIndexSpan && offset < longitudeCells - longitudeIndexSpan; offset++)
+                {
+                    int longitudeIndex = Math.floorMod(centerLongitudeIndex + offset, longitudeCells);
+                    Map<Long, Integer> cellMembers = cells.get(cellKey(latitudeIndex, longitudeIndex));
+                    if (cellMembers == null)
+                    {
+                        continue;
+                    }
+                    for (Map.Entry<Long, Integer> member : cellMembers.entrySet())
+                    {
+                        if (positions.readSlot(member.getValue(), member.getKey(), positionReader))
+                        {
+                            visit(consumer, member.getKey(), position[0], position[1], latitude, longitude, radiusKm);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Great-circle distance between two points in kilometers.
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2)
+    {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+            + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+
+    private static void visit(ObjDoubleConsumer<Long> consumer, Long driverId, double driverLatitude, double driverLongitude, double latitude,
+        double longitude, double radiusKm)
+    {
+        double distance = distanceKm(latitude, longitude, driverLatitude, driverLongitude);
+        if (distance <= radiusKm)
+        {
+            consumer.accept(driverId, distance);
+        }
+    }
+
+
+    /**
+     * Moves the driver from its old cell to the new one, the old cell is {@link DriverPositionTable#ABSENT} if the driver
+     * was not indexed.
+     */
+    private void moveCell(long driverId, long oldCell, long newCell)
+    {
+        if (oldCell != newCell)
+        {
+            if (oldCell != DriverPositionTable.ABSENT)
+            {
+                removeFromCell(oldCell, driverId);
+            }
+            addToCell(newCell, driverId, positions.slotOf(driverId));
+        }
+    }
+
+
+    private void addToCell(long cell, long driverId, int slot)
+    {
+        cells.compute(cell, (key, members) -> {
+            ConcurrentMap<Long, Integer> cellMembers = members != null ? members : new ConcurrentHashMap<>();
+            cellMembers.put(driverId, slot);
+            return cellMembers;
+        });
+    }
+
+
+    private void removeFromCell(long cell, long driverId)
+    {
+        cells.computeIfPresent(cell, (key, members) -> {
+            members.remove(driverId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+
+    private Object lockOf(long driverId)
+    {
+        return driverLocks[Long.hashCode(driverId) & (DRIVER_LOCKS - 1)];
+    }
+
+
+    private int latitudeIndex(double latitude)
+    {
+        return Math.min(latitudeCells - 1, (int) Math.floor((latitude + 90) / cellSize));
+    }
+
+
+    private int longitudeIndex(double longitude)
+    {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), longitudeCells);
+    }
+
+
+    private static long cellKey(int latitudeIndex, int longitudeIndex)
+    {
+        return ((long) latitudeIndex << 32) | (longitudeIndex & 0xffffffffL);
+    }
+
+
+    @FunctionalInterface
+    public interface PositionConsumer
+    {
+        void accept(long driverId, double latitude, double longitude);
+    }
+
+
+    private static final class Candidate
+    {
+        private final long driverId;
+        private final double distanceKm;
+
+
+        private Candidate(long driverId, double distanceKm)
+        {
+            this.driverId = driverId;
+            this.distanceKm = distanceKm;
+        }
+    }
+}
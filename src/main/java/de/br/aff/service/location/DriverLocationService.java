@@ -0,0 +1,12 @@
+package de.br.aff.service.location;
+
+import de.br.aff.domainvalue.DriverPosition;
+import java.util.List;
+
+public interface DriverLocationService
+{
+
+    int ingest(List<DriverPosition> positions);
+
+    int flush();
+}
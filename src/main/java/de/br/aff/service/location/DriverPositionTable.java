@@ -0,0 +1,494 @@
+package de.br.aff.service.location;
+
+import de.br.aff.util.LongIntHashMap;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Positions of drivers in direct memory, so position updates neither allocate nor leave objects behind for the garbage
+ * collector to copy.
+ * <p/>
+ * Every driver gets a dense slot of 40 bytes holding its id, latitude, longitude, timestamp and a tag the owner of the
+ * table may use, slots of removed drivers are reused. Slots are allocated in chunks that never move. They are handed out
+ * and freed under the write lock of the id to slot map, updates of drivers that have a slot only take its read lock.
+ * <p/>
+ * A slot is updated in place under a sequence number: a writer makes it odd with a compare-and-set, writes the slot and
+ * makes it even again. Readers take no lock, they read the slot and validate that the sequence number is still the even
+ * one they started with, otherwise they read again. The validation is a compare-and-set of the unchanged value, which
+ * keeps the reads of the slot in front of it.
+ */
+final class DriverPositionTable
+{
+    /**
+     * Returned instead of a tag if the driver is not in the table.
+     */
+    static final long ABSENT = Long.MIN_VALUE;
+    private static final long SLOT_REUSED = Long.MIN_VALUE + 1;
+    private static final long OLDER = Long.MIN_VALUE + 2;
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int NO_SLOT = -1;
+
+    private static final int SLOT_BYTES = 40;
+    private static final int DRIVER_ID = 0;
+    private static final int LATITUDE = 8;
+    private static final int LONGITUDE = 16;
+    private static final int TIMESTAMP = 24;
+    private static final int TAG = 32;
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongIntHashMap slotsByDriverId;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    private volatile Chunk[] chunks;
+    private volatile int slotCount;
+
+
+    DriverPositionTable(int initialCapacity)
+    {
+        slotsByDriverId = new LongIntHashMap(initialCapacity, NO_SLOT);
+        chunks = new Chunk[0];
+        while (chunks.length * CHUNK_SLOTS < initialCapacity)
+        {
+            addChunk();
+        }
+    }
+
+
+    /**
+     * Adds the driver or moves it, unless the table holds a newer position of it. The slot of the driver is marked as
+     * changed.
+     *
+     * @return false if the table holds a newer position of the driver
+     */
+    boolean offer(long driverId, double latitude, double longitude, long timestamp)
+    {
+        long previousTag = write(driverId, latitude, longitude, timestamp, 0, true, true);
+        return previousTag != OLDER;
+    }
+
+
+    /**
+     * Adds the driver or moves it.
+     *
+     * @param tag - a value of the owner of the table, must not be negative
+     * @return the previous tag of the driver, {@link #ABSENT} if it was added
+     */
+    long put(long driverId, double latitude, double longitude, long tag)
+    {
+        return write(driverId, latitude, longitude, 0, tag, true, false);
+    }
+
+
+    /**
+     * Moves the driver if it is in the table.
+     *
+     * @param tag - a value of the owner of the table, must not be negative
+     * @return the previous tag of the driver, {@link #ABSENT} if it is not in the table
+     */
+    long putIfPresent(long driverId, double latitude, double longitude, long tag)
+    {
+        return write(driverId, latitude, longitude, 0, tag, false, false);
+    }
+
+
+    /**
+     * @return the tag of the removed driver, {@link #ABSENT} if it was not in the table
+     */
+    long remove(long driverId)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int slot = slotsByDriverId.remove(driverId);
+            if (slot == NO_SLOT)
+            {
+                return ABSENT;
+            }
+
+            Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+            int index = slot & CHUNK_MASK;
+            long sequence = chunk.acquire(index);
+            long tag = chunk.data.getLong(index * SLOT_BYTES + TAG);
+            chunk.data.putLong(index * SLOT_BYTES + DRIVER_ID, FREE);
+            chunk.release(index, sequence);
+            chunk.unmark(index);
+
+            if (freeSlotCount == freeSlots.length)
+            {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+            }
+            freeSlots[freeSlotCount++] = slot;
+            return tag;
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    boolean contains(long driverId)
+    {
+        return slotOf(driverId) != NO_SLOT;
+    }
+
+
+    /**
+     * Passes the position of the driver to the reader.
+     *
+     * @return false if the driver is not in the table
+     */
+    boolean read(long driverId, PositionReader reader)
+    {
+        int slot = slotOf(driverId);
+        return slot != NO_SLOT && readSlot(slot, driverId, reader);
+    }
+
+
+    /**
+     * Passes every driver in the table to the reader, in no particular order.
+     */
+    void forEach(PositionReader reader)
+    {
+        int slots = slotCount;
+        for (int slot = 0; slot < slots; slot++)
+        {
+            readSlot(slot, FREE, reader);
+        }
+    }
+
+
+    /**
+     * Takes the marks of up to maxPositions changed slots and passes their drivers to the reader.
+     *
+     * @return number of drivers passed to the reader
+     */
+    int drainChanged(int maxPositions, PositionReader reader)
+    {
+        int drained = 0;
+        Chunk[] allChunks = chunks;
+        for (int chunkIndex = 0; chunkIndex < allChunks.length && drained < maxPositions; chunkIndex++)
+        {
+            Chunk chunk = allChunks[chunkIndex];
+            for (int word = 0; word < chunk.marks.length() && drained < maxPositions; word++)
+            {
+                long marks = chunk.marks.get(word);
+                while (marks != 0 && drained < maxPositions)
+                {
+                    long mark = Long.lowestOneBit(marks);
+                    marks &= ~mark;
+                    int slot = (chunkIndex << CHUNK_SHIFT) | (word << 6) | Long.numberOfTrailingZeros(mark);
+                    // the mark is cleared before reading, a concurrent offer therefore either is read now or marks the slot again
+                    chunk.unmark(slot & CHUNK_MASK);
+                    if (readSlot(slot, FREE, reader))
+                    {
+                        drained++;
+                    }
+                }
+            }
+        }
+        return drained;
+    }
+
+
+    /**
+     * Marks the slot of the driver as changed again, e.g. because writing its drained position failed.
+     */
+    void markChanged(long driverId)
+    {
+        int slot = slotOf(driverId);
+        if (slot != NO_SLOT)
+        {
+            chunks[slot >>> CHUNK_SHIFT].mark(slot & CHUNK_MASK);
+        }
+    }
+
+
+    int changedCount()
+    {
+        int changed = 0;
+        for (Chunk chunk : chunks)
+        {
+            for (int word = 0; word < chunk.marks.length(); word++)
+            {
+                changed += Long.bitCount(chunk.marks.get(word));
+            }
+        }
+        return changed;
+    }
+
+
+    int size()
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            return slotsByDriverId.size();
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * @return bytes of direct memory taken by the slots, including the slots allocated ahead
+     */
+    long offHeapBytes()
+    {
+        return (long) chunks.length * CHUNK_SLOTS * SLOT_BYTES;
+    }
+
+
+    /**
+     * Passes the position in the slot to the reader, without looking up the slot of the driver. The slot of a driver stays
+     * the same until it is removed.
+     *
+     * @param driverId - id the slot has to belong to, {@link #FREE} for any driver
+     * @return false if the slot does not belong to the driver
+     */
+    boolean readSlot(int slot, long driverId, PositionReader reader)
+    {
+        Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        int index = slot & CHUNK_MASK;
+        int offset = index * SLOT_BYTES;
+        while (true)
+        {
+            long sequence = chunk.sequences.get(index);
+            if ((sequence & 1) == 0)
+            {
+                long slotDriverId = chunk.data.getLong(offset + DRIVER_ID);
+                double latitude = chunk.data.getDouble(offset + LATITUDE);
+                double longitude = chunk.data.getDouble(offset + LONGITUDE);
+                long timestamp = chunk.data.getLong(offset + TIMESTAMP);
+                if (chunk.sequences.compareAndSet(index, sequence, sequence))
+                {
+                    if (slotDriverId == FREE || (driverId != FREE && slotDriverId != driverId))
+                    {
+                        return false;
+                    }
+                    reader.accept(slotDriverId, latitude, longitude, timestamp);
+                    return true;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+
+    private long write(long driverId, double latitude, double longitude, long timestamp, long tag, boolean insert, boolean onlyIfNewer)
+    {
+        if (driverId == FREE)
+        {
+            throw new IllegalArgumentException("Driver id " + FREE + " is not supported");
+        }
+
+        while (true)
+        {
+            int slot = slotOf(driverId);
+            if (slot == NO_SLOT)
+            {
+                return insert ? insert(driverId, latitude, longitude, timestamp, tag, onlyIfNewer) : ABSENT;
+            }
+
+            long previousTag = writeSlot(slot, false, driverId, latitude, longitude, timestamp, tag, onlyIfNewer);
+            if (previousTag != SLOT_REUSED)
+            {
+                return previousTag;
+            }
+            // the driver was removed in the meantime and its slot freed or given to another one
+        }
+    }
+
+
+    private long insert(long driverId, double latitude, double longitude, long timestamp, long tag, boolean onlyIfNewer)
+    {
+        long stamp = lock.writeLock();
+        try
+        {
+            int slot = slotsByDriverId.get(driverId);
+            if (slot != NO_SLOT)
+            {
+                return writeSlot(slot, false, driverId, latitude, longitude, timestamp, tag, onlyIfNewer);
+            }
+
+            if (freeSlotCount > 0)
+            {
+                slot = freeSlots[--freeSlotCount];
+            }
+            else
+            {
+                if (slotCount == chunks.length * CHUNK_SLOTS)
+                {
+                    addChunk();
+                }
+                slot = slotCount++;
+            }
+            slotsByDriverId.put(driverId, slot);
+            return writeSlot(slot, true, driverId, latitude, longitude, timestamp, tag, onlyIfNewer);
+        }
+        finally
+        {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * @param claim - whether the slot is free and handed out to the driver
+     * @return the previous tag, {@link #SLOT_REUSED} if the slot no longer belongs to the driver or {@link #OLDER}
+     */
+    private long writeSlot(int slot, boolean claim, long driverId, double latitude, double longitude, long timestamp, long tag,
+        boolean onlyIfNewer)
+    {
+        Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        int index = slot & CHUNK_MASK;
+        int offset = index * SLOT_BYTES;
+
+        long sequence = chunk.acquire(index);
+        long previousTag;
+        try
+        {
+            if (claim)
+            {
+                chunk.data.putLong(offset + DRIVER_ID, driverId);
+                previousTag = ABSENT;
+            }
+            else if (chunk.data.getLong(offset + DRIVER_ID) != driverId)
+            {
+                return SLOT_REUSED;
+            }
+            else if (onlyIfNewer && timestamp < chunk.data.getLong(offset + TIMESTAMP))
+            {
+                return OLDER;
+            }
+            else
+            {
+                previousTag = chunk.data.getLong(offset + TAG);
+            }
+
+            chunk.data.putDouble(offset + LATITUDE, latitude);
+            chunk.data.putDouble(offset + LONGITUDE, longitude);
+            chunk.data.putLong(offset + TIMESTAMP, timestamp);
+            chunk.data.putLong(offset + TAG, tag);
+        }
+        finally
+        {
+            chunk.release(index, sequence);
+        }
+
+        if (onlyIfNewer)
+        {
+            chunk.mark(index);
+        }
+        return previousTag;
+    }
+
+
+    /**
+     * @return the slot of the driver, -1 if it is not in the table
+     */
+    int slotOf(long driverId)
+    {
+        long stamp = lock.readLock();
+        try
+        {
+            return slotsByDriverId.get(driverId);
+        }
+        finally
+        {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    private void addChunk()
+    {
+        Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+        grown[chunks.length] = new Chunk();
+        chunks = grown;
+    }
+
+
+    @FunctionalInterface
+    interface PositionReader
+    {
+        void accept(long driverId, double latitude, double longitude, long timestamp);
+    }
+
+
+    private static final class Chunk
+    {
+        private final ByteBuffer data = ByteBuffer.allocateDirect(CHUNK_SLOTS * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        private final AtomicLongArray sequences = new AtomicLongArray(CHUNK_SLOTS);
+        private final AtomicLongArray marks = new AtomicLongArray(CHUNK_SLOTS >>> 6);
+
+
+        private Chunk()
+        {
+            for (int index = 0; index < CHUNK_SLOTS; index++)
+            {
+                data.putLong(index * SLOT_BYTES + DRIVER_ID, FREE);
+            }
+        }
+
+
+        /**
+         * Waits until no other writer holds the slot and makes its sequence number odd.
+         *
+         * @return the even sequence number the slot had
+         */
+        private long acquire(int index)
+        {
+            while (true)
+            {
+                long sequence = sequences.get(index);
+                if ((sequence & 1) == 0 && sequences.compareAndSet(index, sequence, sequence + 1))
+                {
+                    return sequence;
+                }
+                Thread.yield();
+            }
+        }
+
+
+        private void release(int index, long sequence)
+        {
+            sequences.set(index, sequence + 2);
+        }
+
+
+        private void mark(int index)
+        {
+            int word = index >>> 6;
+            long mark = 1L << index;
+            long current = marks.get(word);
+            while ((current & mark) == 0 && !marks.compareAndSet(word, current, current | mark))
+            {
+                current = marks.get(word);
+            }
+        }
+
+
+        private void unmark(int index)
+        {
+            int word = index >>> 6;
+            long mark = 1L << index;
+            long current = marks.get(word);
+            while ((current & mark) != 0 && !marks.compareAndSet(word, current, current & ~mark))
+            {
+                current = marks.get(word);
+            }
+        }
+    }
+}
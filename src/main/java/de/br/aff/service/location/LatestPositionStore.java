@@ -0,0 +1,73 @@
+package de.br.aff.service.location;
+
+import de.br.aff.domainvalue.DriverPosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the latest reported position of every driver in memory.
+ * <p/>
+ * Positions are kept off the heap in a {@link DriverPositionTable} and replaced in place, so a ping leaves nothing behind
+ * for the garbage collector, concurrent pings never block each other and an older ping arriving late never overwrites a
+ * newer one. Drivers whose position changed since the last drain are marked, which coalesces any number of pings between
+ * two drains into a single write.
+ */
+@Component
+public class LatestPositionStore
+{
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final DriverPositionTable positions = new DriverPositionTable(INITIAL_CAPACITY);
+
+
+    /**
+     * @return true if the position was stored, false if a newer position of the driver was already known
+     */
+    public boolean offer(DriverPosition position)
+    {
+        return positions.offer(position.getDriverId(), position.getLatitude(), position.getLongitude(), position.getTimestamp());
+    }
+
+
+    public Optional<DriverPosition> find(long driverId)
+    {
+        DriverPosition[] found = new DriverPosition[1];
+        positions.read(driverId, (id, latitude, longitude, timestamp) -> found[0] = new DriverPosition(id, latitude, longitude, timestamp));
+        return Optional.ofNullable(found[0]);
+    }
+
+
+    /**
+     * Takes up to maxPositions positions that changed since they were drained last time.
+     */
+    public List<DriverPosition> drainChanged(int maxPositions)
+    {
+        List<DriverPosition> changed = new ArrayList<>();
+        positions.drainChanged(maxPositions, (id, latitude, longitude, timestamp) -> changed.add(new DriverPosition(id, latitude, longitude, timestamp)));
+        return changed;
+    }
+
+
+    /**
+     * Hands the drivers to the next drain again, e.g. because writing their drained positions failed. Their latest
+     * positions are drained, which may be newer than the ones that failed.
+     */
+    public void markChanged(List<DriverPosition> drained)
+    {
+        drained.forEach(position -> positions.markChanged(position.getDriverId()));
+    }
+
+
+    public int pendingCount()
+    {
+        return positions.changedCount();
+    }
+
+
+    public void remove(long driverId)
+    {
+        positions.remove(driverId);
+    }
+}
@@ -0,0 +1,47 @@
+package de.br.aff.service.snapshot;
+
+import de.br.aff.domainvalue.OnlineStatus;
+import java.util.Arrays;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Summary of the driver and car tables. The drivers are summed up by one aggregate query instead of reading the rows, it
+ * changes with every driver that is added or deleted, goes online or offline, selects or gives up a car or gets a newer
+ * position. The cars are few next to the drivers, so every column the indexes keep of them is read and hashed.
+ * <p/>
+ * It is computed while the snapshot is written on shutdown, so it depends on the entity manager factory, which is then
+ * closed only after the snapshot is written.
+ */
+@Component
+@DependsOn({"entityManagerFactory", "transactionManager"})
+public class DatabaseFingerprint
+{
+    private static final String DRIVERS = "select count(d), max(d.id), "
+        + "sum(case when d.onlineStatus = :online then d.id else 0 end), sum(case when d.deleted = true then d.id else 0 end), "
+        + "sum(c.id), sum(case when c.id is null then 0 else d.id end), max(d.dateCoordinateUpdated) "
+        + "from DriverDO d left join d.car c";
+    private static final String CARS = "select c.id, c.licensePlate, c.seatCount, c.convertible, c.rating, c.engineType, c.manufacturer, c.model "
+        + "from CarDO c order by c.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Transactional(readOnly = true)
+    public String compute()
+    {
+        Object[] drivers = (Object[]) entityManager.createQuery(DRIVERS).setParameter("online", OnlineStatus.ONLINE).getSingleResult();
+        List<?> cars = entityManager.createQuery(CARS).getResultList();
+        long carHash = 1;
+        for (Object car : cars)
+        {
+            carHash = 31 * carHash + Arrays.toString((Object[]) car).hashCode();
+        }
+        return "drivers=" + Arrays.toString(drivers) + " cars=[" + cars.size() + ", " + Long.toHexString(carHash) + "]";
+    }
+}
@@ -0,0 +1,367 @@
+package de.br.aff.service.snapshot;
+
+import de.br.aff.controller.mapper.CarMapper;
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.DriverPosition;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.service.car.CarSearchIndex;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.driver.DriverStateStore;
+import de.br.aff.service.location.DriverLocationIndex;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binary snapshot of the in-memory indexes: all cars of the {@link CarSearchIndex}, the dispatchable drivers with
+ * their positions and cars, and the rows of the {@link DriverStateStore}. It is written periodically and on shutdown, and
+ * restored on startup, so a node serves dispatch queries before the indexes could be filled from the database.
+ * <p/>
+ * A snapshot written on shutdown matches the database and is taken as it is, as long as the {@link DatabaseFingerprint}
+ * stored with it still matches the database on startup. A periodic snapshot may miss the changes since it was written,
+ * just like a shutdown snapshot of a database that was changed since. The indexes are reconciled with the database after
+ * such a snapshot was restored and the state store is loaded from the database alone. The snapshot file is removed
+ * once it is restored, so after a crash the same snapshot is not taken for a shutdown snapshot again.
+ */
+@Component
+@Slf4j
+public class DispatchSnapshot
+{
+    private static final int MAGIC = 0x44495350;
+    private static final int VERSION = 3;
+
+    private final CarSearchIndex carSearchIndex;
+    private final DriverLocationIndex driverLocationIndex;
+    private final DispatchCandidateIndex dispatchCandidateIndex;
+    private final DriverStateStore driverStateStore;
+    private final DatabaseFingerprint databaseFingerprint;
+    private final boolean enabled;
+    private final Path file;
+
+    private boolean restored;
+    private boolean restoredFromShutdown;
+
+
+    public DispatchSnapshot(
+        CarSearchIndex carSearchIndex,
+        DriverLocationIndex driverLocationIndex,
+        DispatchCandidateIndex dispatchCandidateIndex,
+        DriverStateStore driverStateStore,
+        DatabaseFingerprint databaseFingerprint,
+        @Value("${dispatch.snapshot.enabled:false}") boolean enabled,
+        @Value("${dispatch.snapshot.file:dispatch.snapshot}") String file)
+    {
+        this.carSearchIndex = carSearchIndex;
+        this.driverLocationIndex = driverLocationIndex;
+        this.dispatchCandidateIndex = dispatchCandidateIndex;
+        this.driverStateStore = driverStateStore;
+        this.databaseFingerprint = databaseFingerprint;
+        this.enabled = enabled;
+        this.file = Paths.get(file);
+    }
+
+
+    /**
+     * Fills the indexes from the snapshot file if there is a valid one.
+     */
+    @PostConstruct
+    public void restore()
+    {
+        if (!enabled || !Files.exists(file))
+        {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(file))
+        {
+            restoredFromShutdown = read(in);
+            restored = true;
+            log.info("Restored {} cars and {} dispatchable drivers from the {} snapshot {} in {} ms", carSearchIndex.size(),
+                driverLocationIndex.size(), restoredFromShutdown ? "shutdown" : "periodic", file, (System.nanoTime() - start) / 1_000_000);
+        }
+        catch (IOException e)
+        {
+            log.warn("Snapshot {} could not be restored, the indexes are filled from the database", file, e);
+        }
+
+        try
+        {
+            Files.delete(file);
+        }
+        catch (IOException e)
+        {
+            log.warn("Snapshot {} could not be removed after restoring it", file, e);
+        }
+    }
+
+
+    /**
+     * @return true if the indexes were restored from a snapshot written on shutdown of the same database and need not be
+     * filled from it
+     */
+    public boolean isRestoredFromShutdown()
+    {
+        return restored && restoredFromShutdown;
+    }
+
+
+    @Scheduled(fixedDelayString = "${dispatch.snapshot.interval-ms:60000}", initialDelayString = "${dispatch.snapshot.interval-ms:60000}")
+    public void writePeriodically() throws IOException
+    {
+        if (enabled)
+        {
+            writeTo(file, false);
+        }
+    }
+
+
+    /**
+     * A snapshot that can not be written, e.g. because the database can not be read for the fingerprint, is skipped. The
+     * last periodic snapshot is restored then.
+     */
+    @PreDestroy
+    public void writeOnShutdown()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        try
+        {
+            writeTo(file, true);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            log.error("Shutdown snapshot {} could not be written and is skipped", file, e);
+        }
+    }
+
+
+    /**
+     * Writes the snapshot to a temporary file that replaces the given one once it is complete.
+     */
+    synchronized void writeTo(Path target, boolean shutdown) throws IOException
+    {
+        long start = System.nanoTime();
+        String fingerprint = shutdown ? databaseFingerprint.compute() : "";
+        List<CarDTO> cars = new ArrayList<>();
+        List<Long> carIdsWithDriver = new ArrayList<>();
+        carSearchIndex.forEach((car, hasDriver) -> {
+            cars.add(car);
+            if (hasDriver)
+            {
+                carIdsWithDriver.add(car.getId());
+            }
+        });
+        List<DriverPosition> drivers = new ArrayList<>();
+        driverLocationIndex.forEach((driverId, latitude, longitude) -> drivers.add(new DriverPosition(driverId, latitude, longitude, 0)));
+        List<DriverStateStore.Entry> states = new ArrayList<>(driverStateStore.size());
+        driverStateStore.forEach(states::add);
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        if (target.getParent() != null)
+        {
+            Files.createDirectories(target.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(temporary))
+        {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(out), new CRC32());
+            DataOutputStream data = new DataOutputStream(checked);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeBoolean(shutdown);
+            data.writeLong(System.currentTimeMillis());
+            data.writeUTF(fingerprint);
+
+            data.writeInt(cars.size());
+            for (CarDTO car : cars)
+            {
+                data.writeLong(car.getId());
+                data.writeUTF(car.getLicensePlate());
+                data.writeInt(car.getSeatCount());
+                data.writeBoolean(car.isConvertible());
+                data.writeInt(car.getRating());
+                data.writeUTF(car.getEngineType());
+                writeNullable(data, car.getManufacturer());
+                writeNullable(data, car.getModel());
+            }
+            data.writeInt(carIdsWithDriver.size());
+            for (Long carId : carIdsWithDriver)
+            {
+                data.writeLong(carId);
+            }
+
+            data.writeInt(drivers.size());
+            for (DriverPosition driver : drivers)
+            {
+                OptionalLong carId = dispatchCandidateIndex.carId(driver.getDriverId());
+                data.writeLong(driver.getDriverId());
+                data.writeDouble(driver.getLatitude());
+                data.writeDouble(driver.getLongitude());
+                data.writeBoolean(carId.isPresent());
+                data.writeLong(carId.orElse(0));
+            }
+
+            data.writeInt(states.size());
+            for (DriverStateStore.Entry state : states)
+            {
+                data.writeLong(state.getDriverId());
+                data.writeByte(state.getOnlineStatus().ordinal());
+                data.writeDouble(state.getLatitude());
+                data.writeDouble(state.getLongitude());
+                data.writeLong(state.getPositionUpdatedAt());
+                data.writeBoolean(state.getCarId() != null);
+                data.writeLong(state.getCarId() != null ? state.getCarId() : 0);
+                data.writeInt(state.getCarRating());
+                data.writeShort(state.getSeatCount());
+            }
+            data.writeLong(checked.getChecksum().getValue());
+            data.flush();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Wrote snapshot of {} cars and {} dispatchable drivers to {} in {} ms", cars.size(), drivers.size(), target,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+
+    /**
+     * Reads the whole snapshot before any index is touched, a damaged snapshot leaves the indexes empty.
+     *
+     * @return true if the snapshot was written on shutdown and the database was not changed since
+     */
+    boolean read(InputStream in) throws IOException
+    {
+        CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(in), new CRC32());
+        DataInputStream data = new DataInputStream(checked);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION)
+        {
+            throw new IOException("Not a snapshot of version " + VERSION);
+        }
+        boolean shutdown = data.readBoolean();
+        data.readLong();
+        String fingerprint = data.readUTF();
+
+        int carCount = data.readInt();
+        Map<Long, CarDTO> carsById = new HashMap<>(carCount * 2);
+        for (int i = 0; i < carCount; i++)
+        {
+            CarDTO car = new CarDTO(data.readLong(), data.readUTF(), data.readInt(), data.readBoolean(), data.readInt(), data.readUTF(),
+                readNullable(data), readNullable(data));
+            carsById.put(car.getId(), car);
+        }
+        List<Long> carIdsWithDriver = new ArrayList<>();
+        for (int i = data.readInt(); i > 0; i--)
+        {
+            carIdsWithDriver.add(data.readLong());
+        }
+
+        int driverCount = data.readInt();
+        long[] driverIds = new long[driverCount];
+        double[] latitudes = new double[driverCount];
+        double[] longitudes = new double[driverCount];
+        Long[] carIds = new Long[driverCount];
+        for (int i = 0; i < driverCount; i++)
+        {
+            driverIds[i] = data.readLong();
+            latitudes[i] = data.readDouble();
+            longitudes[i] = data.readDouble();
+            boolean hasCar = data.readBoolean();
+            long carId = data.readLong();
+            carIds[i] = hasCar ? carId : null;
+        }
+
+        int stateCount = data.readInt();
+        List<DriverStateStore.Entry> states = new ArrayList<>(stateCount);
+        OnlineStatus[] onlineStatuses = OnlineStatus.values();
+        for (int i = 0; i < stateCount; i++)
+        {
+            long driverId = data.readLong();
+            OnlineStatus onlineStatus = onlineStatuses[data.readByte()];
+            double latitude = data.readDouble();
+            double longitude = data.readDouble();
+            long positionUpdatedAt = data.readLong();
+            boolean hasCar = data.readBoolean();
+            long carId = data.readLong();
+            states.add(new DriverStateStore.Entry(driverId, onlineStatus, latitude, longitude, positionUpdatedAt, hasCar ? carId : null,
+                data.readInt(), data.readShort()));
+        }
+
+        long checksum = checked.getChecksum().getValue();
+        if (data.readLong() != checksum)
+        {
+            throw new IOException("Snapshot checksum does not match");
+        }
+        if (shutdown)
+        {
+            String current = databaseFingerprint.compute();
+            if (!current.equals(fingerprint))
+            {
+                log.warn("The database changed since the shutdown snapshot was written, {} then and {} now. The indexes are "
+                    + "reconciled with the database", fingerprint, current);
+                shutdown = false;
+            }
+        }
+
+        carSearchIndex.rebuild(carsById.values(), carIdsWithDriver);
+        for (int i = 0; i < driverCount; i++)
+        {
+            driverLocationIndex.update(driverIds[i], latitudes[i], longitudes[i]);
+            CarDTO car = carIds[i] != null ? carsById.get(carIds[i]) : null;
+            dispatchCandidateIndex.update(driverIds[i], car != null ? toCarDO(car) : null);
+        }
+        if (shutdown)
+        {
+            driverStateStore.ensureCapacity(stateCount);
+            states.forEach(driverStateStore::put);
+        }
+        return shutdown;
+    }
+
+
+    private static CarDO toCarDO(CarDTO carDTO)
+    {
+        CarDO car = CarMapper.makeCarDO(carDTO);
+        car.setId(carDTO.getId());
+        return car;
+    }
+
+
+    private static void writeNullable(DataOutputStream data, String value) throws IOException
+    {
+        data.writeBoolean(value != null);
+        if (value != null)
+        {
+            data.writeUTF(value);
+        }
+    }
+
+
+    private static String readNullable(DataInputStream data) throws IOException
+    {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+}
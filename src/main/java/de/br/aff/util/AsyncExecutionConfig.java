@@ -0,0 +1,108 @@
+package de.br.aff.util;
+
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Opt-in execution mode, dispatch.web.execution-mode=ASYNC: controller methods run on a dedicated handler pool instead of
+ * the Tomcat request threads, see {@link OffloadingHandlerAdapter}, and database connections are handed out through a
+ * {@link GatedDataSource}. Tomcat threads are only busy while a request is read and its response written, so requests that
+ * are answered from memory are not stuck behind requests waiting for the database.
+ * <p/>
+ * Java 8 has no virtual threads, the handler pool is a bounded platform thread pool. Requests it can not take any more
+ * are answered with 503.
+ */
+@Configuration
+@ConditionalOnProperty(name = "dispatch.web.execution-mode", havingValue = "ASYNC")
+public class AsyncExecutionConfig implements WebMvcConfigurer
+{
+    @Value("${dispatch.web.async.pool-size:200}")
+    private int poolSize;
+
+    @Value("${dispatch.web.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${dispatch.web.async.timeout-ms:30000}")
+    private long timeoutMs;
+
+
+    @Bean
+    public ThreadPoolTaskExecutor webHandlerExecutor()
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("web-handler-");
+        return executor;
+    }
+
+
+    @Bean
+    public WebMvcRegistrations offloadingHandlerAdapterRegistration()
+    {
+        return new WebMvcRegistrations()
+        {
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping()
+            {
+                return null;
+            }
+
+
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter()
+            {
+                return new OffloadingHandlerAdapter();
+            }
+
+
+            @Override
+            public ExceptionHandlerExceptionResolver getExceptionHandlerExceptionResolver()
+            {
+                return null;
+            }
+        };
+    }
+
+
+    /**
+     * Static, post processors are created before the other beans of this configuration.
+     */
+    @Bean
+    public static BeanPostProcessor jdbcGate(
+        @Value("${dispatch.web.async.jdbc-permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+        @Value("${dispatch.web.async.jdbc-max-waiting:200}") int maxWaiting,
+        @Value("${dispatch.web.async.jdbc-acquire-timeout-ms:5000}") long acquireTimeoutMs)
+    {
+        return new BeanPostProcessor()
+        {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName)
+            {
+                return bean instanceof DataSource && !(bean instanceof GatedDataSource)
+                    ? new GatedDataSource((DataSource) bean, permits, maxWaiting, acquireTimeoutMs)
+                    : bean;
+            }
+        };
+    }
+
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer)
+    {
+        configurer.setTaskExecutor(webHandlerExecutor());
+        configurer.setDefaultTimeout(timeoutMs);
+    }
+}
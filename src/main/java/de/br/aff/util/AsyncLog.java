@@ -0,0 +1,348 @@
+package de.br.aff.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+/**
+ * Hands log events over to a background writer through a bounded ring buffer, so request threads never wait for the
+ * appenders.
+ * <p/>
+ * The slots of the ring buffer are allocated once and reused. Messages are formatted by the writer, and only if the
+ * level is enabled. When the buffer is full the {@link DropPolicy} decides which event is lost, every lost event is
+ * counted as logging.events.dropped.
+ */
+public class AsyncLog implements AutoCloseable
+{
+    public enum DropPolicy
+    {
+        /**
+         * The new event is dropped, the request thread continues immediately.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The oldest buffered event is overwritten, the request thread continues immediately.
+         */
+        DROP_OLDEST,
+
+        /**
+         * The request thread waits until the writer has freed a slot, nothing is dropped.
+         */
+        BLOCK
+    }
+
+
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private final boolean async;
+    private final DropPolicy dropPolicy;
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private final Event[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;
+    private int count;
+    private boolean closed;
+
+    private Thread writer;
+
+
+    /**
+     * @param async false writes every event on the calling thread, e.g. to debug a lost log line
+     * @param capacity number of events that can be buffered
+     */
+    public AsyncLog(boolean async, int capacity, DropPolicy dropPolicy)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity has to be positive: " + capacity);
+        }
+        this.async = async;
+        this.dropPolicy = dropPolicy;
+        FunctionCounter.builder("logging.events.dropped", droppedEvents, LongAdder::doubleValue)
+            .tag("policy", dropPolicy.name())
+            .register(Metrics.globalRegistry);
+        this.slots = new Event[capacity];
+        for (int i = 0; i < capacity; i++)
+        {
+            slots[i] = new Event();
+        }
+    }
+
+
+    /**
+     * Starts the background writer. Events logged before are buffered.
+     */
+    public synchronized void start()
+    {
+        if (async && writer == null)
+        {
+            writer = new Thread(this::writeLoop, "async-log-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+
+    public void info(Logger logger, String format, Object... arguments)
+    {
+        if (logger.isInfoEnabled())
+        {
+            log(logger, Level.INFO, format, arguments, null);
+        }
+    }
+
+
+    public void warn(Logger logger, String format, Object... arguments)
+    {
+        if (logger.isWarnEnabled())
+        {
+            log(logger, Level.WARN, format, arguments, null);
+        }
+    }
+
+
+    /**
+     * @param throwable printed with its stack trace, may be null
+     */
+    public void error(Logger logger, Throwable throwable, String format, Object... arguments)
+    {
+        if (logger.isErrorEnabled())
+        {
+            log(logger, Level.ERROR, format, arguments, throwable);
+        }
+    }
+
+
+    /**
+     * Number of events waiting for the writer.
+     */
+    public int pending()
+    {
+        lock.lock();
+        try
+        {
+            return count;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    public long dropped()
+    {
+        return droppedEvents.sum();
+    }
+
+
+    /**
+     * Stops the writer after it has written the buffered events. If the calling thread is interrupted while waiting for
+     * the writer, it stops waiting and keeps its interrupt flag.
+     */
+    @Override
+    public void close()
+    {
+        lock.lock();
+        try
+        {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        Thread runningWriter;
+        synchronized (this)
+        {
+            runningWriter = writer;
+        }
+        if (runningWriter != null)
+        {
+            try
+            {
+                runningWriter.join(CLOSE_TIMEOUT_MS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    private void log(Logger logger, Level level, String format, Object[] arguments, Throwable throwable)
+    {
+        if (!async)
+        {
+            write(logger, level, format, arguments, throwable);
+            return;
+        }
+
+        lock.lock();
+        try
+        {
+            if (closed)
+            {
+                droppedEvents.increment();
+                return;
+            }
+            if (count == slots.length)
+            {
+                switch (dropPolicy)
+                {
+                    case DROP_NEWEST:
+                        droppedEvents.increment();
+                        return;
+                    case DROP_OLDEST:
+                        slots[head].clear();
+                        head = (head + 1) % slots.length;
+                        count--;
+                        droppedEvents.increment();
+                        break;
+                    case BLOCK:
+                        while (count == slots.length && !closed)
+                        {
+                            notFull.awaitUninterruptibly();
+                        }
+                        if (closed)
+                        {
+                            droppedEvents.increment();
+                            return;
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown drop policy: " + dropPolicy);
+                }
+            }
+            slots[(head + count) % slots.length].set(logger, level, format, arguments, throwable);
+            count++;
+            notEmpty.signal();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    private void writeLoop()
+    {
+        Event current = new Event();
+        while (true)
+        {
+            lock.lock();
+            try
+            {
+                while (count == 0)
+                {
+                    if (closed)
+                    {
+                        return;
+                    }
+                    notEmpty.await(1, TimeUnit.SECONDS);
+                }
+                current.copy(slots[head]);
+                slots[head].clear();
+                head = (head + 1) % slots.length;
+                count--;
+                notFull.signal();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            try
+            {
+                write(current.logger, current.level, current.format, current.arguments, current.throwable);
+            }
+            catch (RuntimeException e)
+            {
+                // a broken appender must not stop the writer
+                droppedEvents.increment();
+            }
+            current.clear();
+        }
+    }
+
+
+    private static void write(Logger logger, Level level, String format, Object[] arguments, Throwable throwable)
+    {
+        Object[] allArguments = arguments;
+        if (throwable != null)
+        {
+            // slf4j prints a trailing throwable argument with its stack trace
+            allArguments = Arrays.copyOf(arguments, arguments.length + 1);
+            allArguments[arguments.length] = throwable;
+        }
+
+        switch (level)
+        {
+            case ERROR:
+                logger.error(format, allArguments);
+                break;
+            case WARN:
+                logger.warn(format, allArguments);
+                break;
+            case INFO:
+                logger.info(format, allArguments);
+                break;
+            case DEBUG:
+                logger.debug(format, allArguments);
+                break;
+            default:
+                logger.trace(format, allArguments);
+        }
+    }
+
+
+    private static final class Event
+    {
+        private Logger logger;
+        private Level level;
+        private String format;
+        private Object[] arguments;
+        private Throwable throwable;
+
+
+        private void set(Logger logger, Level level, String format, Object[] arguments, Throwable throwable)
+        {
+            this.logger = logger;
+            this.level = level;
+            this.format = format;
+            this.arguments = arguments;
+            this.throwable = throwable;
+        }
+
+
+        private void copy(Event other)
+        {
+            set(other.logger, other.level, other.format, other.arguments, other.throwable);
+        }
+
+
+        private void clear()
+        {
+            set(null, null, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package de.br.aff.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Lets at most a fixed number of threads hold a connection at a time, so a large pool of request threads does not stampede
+ * the connection pool. Threads wait for a permit in arrival order up to the acquire timeout. If too many threads are
+ * waiting already, a further one fails right away instead of queueing.
+ */
+public class GatedDataSource extends DelegatingDataSource
+{
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long acquireTimeoutMs;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+
+    public GatedDataSource(DataSource targetDataSource, int permits, int maxWaiting, long acquireTimeoutMs)
+    {
+        super(targetDataSource);
+        if (permits <= 0 || maxWaiting < 0 || acquireTimeoutMs < 0)
+        {
+            throw new IllegalArgumentException("permits have to be positive, max waiting and acquire timeout must not be negative");
+        }
+        this.permits = new Semaphore(permits, true);
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        acquire();
+        try
+        {
+            return releasingOnClose(super.getConnection());
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        acquire();
+        try
+        {
+            return releasingOnClose(super.getConnection(username, password));
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+
+    public int getWaiting()
+    {
+        return waiting.get();
+    }
+
+
+    private void acquire() throws SQLException
+    {
+        try
+        {
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS))
+            {
+                return;
+            }
+            if (waiting.incrementAndGet() > maxWaiting)
+            {
+                waiting.decrementAndGet();
+                throw new SQLTransientConnectionException("Too many threads are waiting for a database connection");
+            }
+            try
+            {
+                if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS))
+                {
+                    throw new SQLTransientConnectionException("No database connection available within " + acquireTimeoutMs + " ms");
+                }
+            }
+            finally
+            {
+                waiting.decrementAndGet();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+
+    /**
+     * The permit is returned when the connection is closed, closing it again does not return it twice.
+     */
+    private Connection releasingOnClose(Connection connection)
+    {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+            try
+            {
+                return method.invoke(connection, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getTargetException();
+            }
+            finally
+            {
+                if ("close".equals(method.getName()) && released.compareAndSet(false, true))
+                {
+                    permits.release();
+                }
+            }
+        });
+    }
+}
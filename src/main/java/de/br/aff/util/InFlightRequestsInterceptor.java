@@ -0,0 +1,68 @@
+package de.br.aff.util;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Gauge of the requests currently being handled per endpoint. Latency and status of finished requests are recorded by
+ * the http.server.requests timer of Spring Boot.
+ */
+public class InFlightRequestsInterceptor extends HandlerInterceptorAdapter
+{
+    private static final String GAUGE_ATTRIBUTE = InFlightRequestsInterceptor.class.getName() + ".gauge";
+
+    private final ConcurrentMap<String, AtomicInteger> inFlightByUri = new ConcurrentHashMap<>();
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        AtomicInteger inFlight = inFlightByUri.computeIfAbsent(uri(request),
+            uri -> Metrics.gauge("http.server.requests.active", Tags.of("uri", uri), new AtomicInteger()));
+        inFlight.incrementAndGet();
+        request.setAttribute(GAUGE_ATTRIBUTE, inFlight);
+        return true;
+    }
+
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+    {
+        decrement(request);
+    }
+
+
+    /**
+     * The request leaves the servlet thread, it is counted again when the async result is dispatched.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        decrement(request);
+    }
+
+
+    private static void decrement(HttpServletRequest request)
+    {
+        Object inFlight = request.getAttribute(GAUGE_ATTRIBUTE);
+        if (inFlight != null)
+        {
+            ((AtomicInteger) inFlight).decrementAndGet();
+            request.removeAttribute(GAUGE_ATTRIBUTE);
+        }
+    }
+
+
+    private static String uri(HttpServletRequest request)
+    {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,52 @@
+package de.br.aff.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Request and error logging. Log events are written by a background thread, see {@link AsyncLog}.
+ */
+@Configuration
+public class LoggingConfig implements WebMvcConfigurer
+{
+    @Value("${dispatch.logging.request-sample-rate:0.01}")
+    private double requestLogSampleRate;
+
+    @Value("${dispatch.logging.async.enabled:true}")
+    private boolean async;
+
+    @Value("${dispatch.logging.async.capacity:8192}")
+    private int capacity;
+
+    @Value("${dispatch.logging.async.drop-policy:DROP_NEWEST}")
+    private AsyncLog.DropPolicy dropPolicy;
+
+
+    @Bean(destroyMethod = "close")
+    public AsyncLog asyncLog()
+    {
+        AsyncLog asyncLog = new AsyncLog(async, capacity, dropPolicy);
+        asyncLog.start();
+        return asyncLog;
+    }
+
+
+    @Bean
+    public StackTraceThrottle stackTraceThrottle(
+        @Value("${dispatch.logging.stack-traces.per-window:1}") int tracesPerWindow,
+        @Value("${dispatch.logging.stack-traces.window-seconds:60}") long windowSeconds,
+        @Value("${dispatch.logging.stack-traces.maximum-keys:1000}") int maximumKeys)
+    {
+        return new StackTraceThrottle(tracesPerWindow, windowSeconds, maximumKeys);
+    }
+
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry)
+    {
+        registry.addInterceptor(new LoggingInterceptor(asyncLog(), requestLogSampleRate)).addPathPatterns("/**");
+    }
+}
@@ -1,30 +1,49 @@
 package de.br.aff.util;
 
+import java.util.concurrent.ThreadLocalRandom;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
+/**
+ * Logs a sample of the requests. Failed requests are always logged, aggregated numbers are available as metrics.
+ * <p/>
+ * The log lines are written by the {@link AsyncLog} writer, the request thread only hands over the arguments.
+ */
 @Slf4j
 public class LoggingInterceptor extends HandlerInterceptorAdapter
 {
+    private final AsyncLog asyncLog;
+    private final double sampleRate;
+
+
+    /**
+     * @param sampleRate share of the successful requests that are logged, between 0 and 1
+     */
+    public LoggingInterceptor(AsyncLog asyncLog, double sampleRate)
+    {
+        if (sampleRate < 0 || sampleRate > 1)
+        {
+            throw new IllegalArgumentException("sample rate has to be in range [0, 1]: " + sampleRate);
+        }
+        this.asyncLog = asyncLog;
+        this.sampleRate = sampleRate;
+    }
+
 
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
     {
-        StringBuilder logMessage = new StringBuilder();
-        logMessage.append("method: ").append(request.getMethod()).append("\t");
-        logMessage.append("uri: ").append(request.getRequestURI()).append("\t");
-        logMessage.append("status: ").append(response.getStatus()).append("\t");
-        logMessage.append("remoteAddress: ").append(request.getRemoteAddr()).append("\t");
-
-        if (ex != null)
+        if (ex != null || response.getStatus() >= 500)
         {
-            log.error(logMessage.toString(), ex);
+            asyncLog.error(log, ex, "method: {}\turi: {}\tstatus: {}\tremoteAddress: {}", request.getMethod(), request.getRequestURI(),
+                response.getStatus(), request.getRemoteAddr());
         }
-        else
+        else if (log.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate)
         {
-            log.info(logMessage.toString());
+            asyncLog.info(log, "method: {}\turi: {}\tstatus: {}\tremoteAddress: {}", request.getMethod(), request.getRequestURI(), response.getStatus(),
+                request.getRemoteAddr());
         }
     }
 
@@ -0,0 +1,226 @@
+package de.br.aff.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive long keys to primitive int values, without boxing and without an entry object per mapping. Keys and
+ * values are kept in two arrays with open addressing and linear probing. Removing a key shifts the following keys of
+ * its probe sequence back, so no tombstones pile up.
+ * <p/>
+ * Not thread-safe.
+ */
+public class LongIntHashMap
+{
+    private static final int MINIMUM_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double MAXIMUM_LOAD = 0.75;
+
+    private final int missingValue;
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int resizeAt;
+
+
+    /**
+     * @param expectedSize number of mappings that fit without resizing
+     * @param missingValue returned by {@link #get(long)} and {@link #remove(long)} for keys that are not mapped
+     */
+    public LongIntHashMap(int expectedSize, int missingValue)
+    {
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+
+    public int get(long key)
+    {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == key)
+            {
+                return values[slot];
+            }
+        }
+        return missingValue;
+    }
+
+
+    public boolean containsKey(long key)
+    {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == key)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @return the previous value of the key, the missing value if it was not mapped
+     */
+    public int put(long key, int value)
+    {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        for (; used[slot]; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == key)
+            {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size > resizeAt)
+        {
+            rehash(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+
+    /**
+     * @return the value of the removed key, the missing value if it was not mapped
+     */
+    public int remove(long key)
+    {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == key)
+            {
+                int value = values[slot];
+                shiftBack(slot, mask);
+                size--;
+                return value;
+            }
+        }
+        return missingValue;
+    }
+
+
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Grows the map ahead of adding many keys, so it is not rehashed over and over.
+     */
+    public void ensureCapacity(int expectedSize)
+    {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length)
+        {
+            rehash(capacity);
+        }
+    }
+
+
+    public void clear()
+    {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+
+    /**
+     * @return bytes taken by the arrays of the map
+     */
+    public long footprintBytes()
+    {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES + 1);
+    }
+
+
+    /**
+     * Moves keys after the removed slot back into it if their probe sequence passes it, until a free slot is reached.
+     */
+    private void shiftBack(int removed, int mask)
+    {
+        int gap = removed;
+        for (int slot = (gap + 1) & mask; used[slot]; slot = (slot + 1) & mask)
+        {
+            int home = slot(keys[slot], mask);
+            // the key may fill the gap if the gap lies cyclically between its home slot and its current slot
+            if (((slot - home) & mask) >= ((slot - gap) & mask))
+            {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        used[gap] = false;
+    }
+
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldUsed[i])
+            {
+                int slot = slot(oldKeys[i], mask);
+                while (used[slot])
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+
+    private void allocate(int capacity)
+    {
+        if (capacity > MAXIMUM_CAPACITY)
+        {
+            throw new IllegalStateException("The map can not hold more than " + (int) (MAXIMUM_CAPACITY * MAXIMUM_LOAD) + " keys");
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        resizeAt = (int) (capacity * MAXIMUM_LOAD);
+    }
+
+
+    private static int capacityFor(int expectedSize)
+    {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity * MAXIMUM_LOAD < expectedSize && capacity < MAXIMUM_CAPACITY)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+
+    /**
+     * Spreads the bits of the key, ids are sequential and would otherwise fill neighbouring slots.
+     */
+    private static int slot(long key, int mask)
+    {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
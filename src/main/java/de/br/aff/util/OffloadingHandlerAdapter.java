@@ -0,0 +1,70 @@
+package de.br.aff.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Runs blocking controller methods on the async task executor of Spring MVC instead of the servlet thread, without
+ * changing their signatures: the arguments are resolved on the servlet thread as usual, then the invocation is handed
+ * over as a {@link Callable}. The result is written, and exceptions are handled, when the request is dispatched again.
+ * <p/>
+ * Methods that are asynchronous already, e.g. returning a {@link DeferredResult} or {@link StreamingResponseBody}, are
+ * invoked as they are.
+ */
+public class OffloadingHandlerAdapter extends RequestMappingHandlerAdapter
+{
+    private static final Class<?>[] ASYNC_TYPES = {Callable.class, WebAsyncTask.class, DeferredResult.class, ListenableFuture.class,
+        CompletionStage.class, ResponseBodyEmitter.class, StreamingResponseBody.class};
+
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod)
+    {
+        return isAsync(handlerMethod.getReturnType()) ? super.createInvocableHandlerMethod(handlerMethod) : new OffloadedHandlerMethod(handlerMethod);
+    }
+
+
+    private static boolean isAsync(MethodParameter returnType)
+    {
+        Class<?> type = returnType.getParameterType();
+        if (HttpEntity.class.isAssignableFrom(type))
+        {
+            type = ResolvableType.forMethodParameter(returnType).getGeneric().resolve(Object.class);
+        }
+        for (Class<?> asyncType : ASYNC_TYPES)
+        {
+            if (asyncType.isAssignableFrom(type))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static final class OffloadedHandlerMethod extends ServletInvocableHandlerMethod
+    {
+        private OffloadedHandlerMethod(HandlerMethod handlerMethod)
+        {
+            super(handlerMethod);
+        }
+
+
+        @Override
+        protected Object doInvoke(Object... args)
+        {
+            return (Callable<Object>) () -> super.doInvoke(args);
+        }
+    }
+}
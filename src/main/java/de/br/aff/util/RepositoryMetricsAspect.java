@@ -0,0 +1,64 @@
+package de.br.aff.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Times every call of a repository method, tagged with the repository interface and the method name.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect
+{
+    private static final String REPOSITORY_PACKAGE = "de.br.aff.dataaccessobject";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+
+    @Around("target(org.springframework.data.repository.Repository) || within(de.br.aff.dataaccessobject.BulkInsertRepository)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable
+    {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "None";
+        try
+        {
+            return joinPoint.proceed();
+        }
+        catch (Throwable e)
+        {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        }
+        finally
+        {
+            sample.stop(meterRegistry.timer("repository.invocations",
+                "repository", repositoryName(joinPoint.getThis()),
+                "method", joinPoint.getSignature().getName(),
+                "exception", exception));
+        }
+    }
+
+
+    /**
+     * Spring Data repositories are proxies, the name is taken from the repository interface they implement.
+     */
+    private String repositoryName(Object repository)
+    {
+        return repositoryNames.computeIfAbsent(repository.getClass(), type -> Arrays.stream(ClassUtils.getAllInterfacesForClass(type))
+            .filter(repositoryInterface -> repositoryInterface.getName().startsWith(REPOSITORY_PACKAGE))
+            .map(Class::getSimpleName)
+            .findFirst()
+            .orElse(ClassUtils.getUserClass(type).getSimpleName()));
+    }
+}
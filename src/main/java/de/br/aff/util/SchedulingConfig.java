@@ -0,0 +1,23 @@
+package de.br.aff.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Scheduler for the {@code @Scheduled} jobs: the position flush, the journal applier and the snapshot writer. Without it
+ * Spring runs them all on a single thread, so one slow run delays all others.
+ */
+@Configuration
+public class SchedulingConfig
+{
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${dispatch.scheduling.pool-size:4}") int poolSize)
+    {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        return scheduler;
+    }
+}
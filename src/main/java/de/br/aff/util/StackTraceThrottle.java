@@ -0,0 +1,120 @@
+package de.br.aff.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Metrics;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which stack traces are worth printing during an error storm.
+ * <p/>
+ * Errors are grouped by exception type and the call site that threw them. Per group only a few stack traces are
+ * printed within a time window, the remaining errors of the group are logged as a single line. Suppressed stack traces
+ * are counted as logging.stacktraces.suppressed.
+ */
+public class StackTraceThrottle
+{
+    /**
+     * Returned by {@link #admit(Throwable)} for an error whose stack trace has to be suppressed.
+     */
+    public static final long SUPPRESSED = -1;
+
+    private final int tracesPerWindow;
+    private final long windowNanos;
+    private final int maximumKeys;
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final LongAdder suppressedTraces = new LongAdder();
+
+
+    public StackTraceThrottle(int tracesPerWindow, long windowSeconds, int maximumKeys)
+    {
+        this(tracesPerWindow, windowSeconds, maximumKeys, System::nanoTime);
+    }
+
+
+    StackTraceThrottle(int tracesPerWindow, long windowSeconds, int maximumKeys, LongSupplier clock)
+    {
+        if (tracesPerWindow <= 0 || windowSeconds <= 0 || maximumKeys <= 0)
+        {
+            throw new IllegalArgumentException("traces per window, window and maximum keys have to be positive");
+        }
+        this.tracesPerWindow = tracesPerWindow;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.maximumKeys = maximumKeys;
+        this.clock = clock;
+        FunctionCounter.builder("logging.stacktraces.suppressed", suppressedTraces, LongAdder::doubleValue)
+            .register(Metrics.globalRegistry);
+    }
+
+
+    /**
+     * @return {@link #SUPPRESSED} if the stack trace of this error must not be printed, otherwise the number of stack
+     * traces of the same group suppressed since the last printed one
+     */
+    public long admit(Throwable throwable)
+    {
+        if (windows.size() >= maximumKeys)
+        {
+            // a flood of distinct call sites would let the map grow without bounds, start over instead
+            windows.clear();
+        }
+
+        long now = clock.getAsLong();
+        Window window = windows.computeIfAbsent(key(throwable), key -> new Window(now));
+        synchronized (window)
+        {
+            if (now - window.start >= windowNanos)
+            {
+                window.start = now;
+                window.printed = 0;
+            }
+            if (window.printed >= tracesPerWindow)
+            {
+                window.suppressed++;
+                suppressedTraces.increment();
+                return SUPPRESSED;
+            }
+            window.printed++;
+            long suppressed = window.suppressed;
+            window.suppressed = 0;
+            return suppressed;
+        }
+    }
+
+
+    public long suppressed()
+    {
+        return suppressedTraces.sum();
+    }
+
+
+    private static String key(Throwable throwable)
+    {
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        if (stackTrace.length == 0)
+        {
+            return throwable.getClass().getName();
+        }
+        StackTraceElement callSite = stackTrace[0];
+        return throwable.getClass().getName() + '@' + callSite.getClassName() + '.' + callSite.getMethodName() + ':' + callSite.getLineNumber();
+    }
+
+
+    private static final class Window
+    {
+        private long start;
+        private int printed;
+        private long suppressed;
+
+
+        private Window(long start)
+        {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.br.aff.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the k greatest of the offered elements with a bounded heap, in O(n log k) instead of sorting all n elements.
+ * The least of the kept elements is on top of the heap and is replaced by every greater element that is offered.
+ */
+public class TopK<T>
+{
+    private static final int MAXIMUM_INITIAL_CAPACITY = 1024;
+
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<T> heap;
+
+
+    public TopK(int k, Comparator<? super T> comparator)
+    {
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, MAXIMUM_INITIAL_CAPACITY)), comparator);
+    }
+
+
+    public void offer(T element)
+    {
+        if (heap.size() < k)
+        {
+            heap.add(element);
+        }
+        else if (k > 0 && comparator.compare(element, heap.peek()) > 0)
+        {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+
+    /**
+     * @return the kept elements, greatest first
+     */
+    public List<T> toList()
+    {
+        List<T> elements = new ArrayList<>(heap);
+        elements.sort(comparator.reversed());
+        return elements;
+    }
+}
@@ -2,10 +2,34 @@ package de.br.aff.util;
 
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.RideAssignment;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 public class Utils
 {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+
+    /**
+     * @return the requested page size or the default one if none was requested
+     * @throws IllegalArgumentException if the requested page size is out of range
+     */
+    public static int checkPageLimit(Integer limit)
+    {
+        if (limit == null)
+        {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+        {
+            throw new IllegalArgumentException("limit has to be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+
     public static String getCarResourceLocation(CarDO createdCar)
     {
         return ServletUriComponentsBuilder
@@ -24,4 +48,16 @@ public class Utils
             .buildAndExpand(driver.getId())
             .toUriString();
     }
+
+
+    /**
+     * @param requestUri URI of the ride request, captured on the request thread because rides may be assigned later
+     */
+    public static String getRideResourceLocation(UriComponentsBuilder requestUri, RideAssignment ride)
+    {
+        return requestUri
+            .path("/{id}")
+            .buildAndExpand(ride.getRideId())
+            .toUriString();
+    }
 }
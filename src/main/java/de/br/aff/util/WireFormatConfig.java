@@ -0,0 +1,31 @@
+package de.br.aff.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary wire format for machine to machine traffic. Clients that send Accept or Content-Type application/x-jackson-smile
+ * get and send the DTOs encoded as Smile, binary JSON with back references to repeated property names, which is smaller
+ * and cheaper to encode and parse than text. JSON stays the default.
+ */
+@Configuration
+public class WireFormatConfig
+{
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+
+    /**
+     * Replaces the Smile converter Spring MVC registers on its own, so Smile is written with the same settings as JSON.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder jacksonObjectMapperBuilder)
+    {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        jacksonObjectMapperBuilder.configure(smileMapper);
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper);
+    }
+}
@@ -0,0 +1,35 @@
+create sequence car_sequence start with 1 increment by 50;
+create sequence driver_sequence start with 1 increment by 50;
+
+create table car (
+    id bigint not null,
+    convertible boolean not null,
+    date_created timestamp not null,
+    engine_type varchar(255) not null,
+    license_plate varchar(255) not null,
+    manufacturer varchar(255),
+    model varchar(255),
+    rating integer not null,
+    seat_count integer not null,
+    primary key (id)
+);
+
+create table driver (
+    id bigint not null,
+    coordinate binary(255),
+    date_coordinate_updated timestamp,
+    date_created timestamp not null,
+    deleted boolean not null,
+    online_status varchar(255) not null,
+    password varchar(255) not null,
+    username varchar(255) not null,
+    car_id bigint,
+    primary key (id)
+);
+
+create index car_rating on car (rating);
+alter table car add constraint license_plate unique (license_plate);
+create index idx_deleted_online_status on driver (deleted, online_status);
+alter table driver add constraint uc_username unique (username);
+alter table driver add constraint uc_car unique (car_id);
+alter table driver add constraint fk_driver_car foreign key (car_id) references car;
@@ -0,0 +1,83 @@
+package de.br.aff.controller;
+
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.util.GatedDataSource;
+import javax.sql.DataSource;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "dispatch.web.execution-mode=ASYNC")
+public class AsyncExecutionIntegrationTest
+{
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ThreadPoolTaskExecutor webHandlerExecutor;
+
+    @Autowired
+    private DataSource dataSource;
+
+
+    @Test
+    public void thatControllersAnswerAsInBlockingMode()
+    {
+        TestRestTemplate user = restTemplate.withBasicAuth("user", "user123");
+        long handledBefore = webHandlerExecutor.getThreadPoolExecutor().getCompletedTaskCount();
+
+        ResponseEntity<Void> created = user.postForEntity("/v1/cars", new CarDTO(null, "ASYNC-1", 4, false, 3, "ELECTRIC", "Tesla", "3"), Void.class);
+        assert created.getStatusCode() == HttpStatus.CREATED;
+        assert created.getHeaders().getLocation() != null;
+
+        CarDO car = carRepository.findByLicensePlate("ASYNC-1").get();
+        ResponseEntity<CarDTO> found = user.getForEntity("/v1/cars/" + car.getId(), CarDTO.class);
+        assert found.getStatusCode() == HttpStatus.OK;
+        assert found.getBody().getLicensePlate().equals("ASYNC-1");
+
+        ResponseEntity<String> missing = user.getForEntity("/v1/cars/-999999", String.class);
+        assert missing.getStatusCode() == HttpStatus.NOT_FOUND;
+        assert missing.getBody().contains("Car with this id not found");
+
+        ResponseEntity<Void> deleted = user.exchange("/v1/cars/" + car.getId(), HttpMethod.DELETE, null, Void.class);
+        assert deleted.getStatusCode() == HttpStatus.NO_CONTENT;
+
+        assert webHandlerExecutor.getThreadPoolExecutor().getCompletedTaskCount() >= handledBefore + 4;
+    }
+
+
+    @Test
+    public void thatUnchangedCarListingIsStillAnsweredWith304()
+    {
+        TestRestTemplate user = restTemplate.withBasicAuth("user", "user123");
+        ResponseEntity<CarDTO[]> cars = user.getForEntity("/v1/cars", CarDTO[].class);
+        assert cars.getStatusCode() == HttpStatus.OK;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(cars.getHeaders().getETag());
+        ResponseEntity<CarDTO[]> revalidated = user.exchange("/v1/cars", HttpMethod.GET, new HttpEntity<>(headers), CarDTO[].class);
+        assert revalidated.getStatusCode() == HttpStatus.NOT_MODIFIED;
+    }
+
+
+    @Test
+    public void thatDatabaseConnectionsAreGated()
+    {
+        assert dataSource instanceof GatedDataSource;
+    }
+}
@@ -1,5 +1,7 @@
 package de.br.aff.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import de.br.aff.controller.mapper.CarMapper;
 import de.br.aff.dataaccessobject.CarRepository;
 import de.br.aff.datatransferobject.CarDTO;
 import de.br.aff.service.car.CarService;
@@ -11,6 +13,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -91,6 +94,77 @@ public class CarControllerIntegrationTest
     }
 
 
+    @WithMockUser
+    @Test
+    public void thatCarsCanBeListedPageByPage() throws Exception
+    {
+        for (String licensePlate : new String[] {"P1", "P2", "P3"})
+        {
+            carService.create(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate(licensePlate).build()));
+        }
+
+        String firstPage = mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars?limit=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("[*].licensePlate", Matchers.contains("P1", "P2")))
+            .andReturn().getResponse().getContentAsString();
+
+        Number lastId = JsonPath.read(firstPage, "$[1].id");
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars?limit=2&after=" + lastId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("[*].licensePlate", Matchers.contains("P3")));
+    }
+
+
+    @WithMockUser
+    @Test
+    public void thatCarListingIsRevalidatedUntilACarChanges() throws Exception
+    {
+        String eTag = mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.VARY, Matchers.containsString(HttpHeaders.ACCEPT)))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assert eTag.startsWith("W/");
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.VARY, Matchers.containsString(HttpHeaders.ACCEPT)));
+
+        carService.create(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("ETAG").build()));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(eTag)))
+            .andExpect(jsonPath("[*].licensePlate", Matchers.hasItem("ETAG")));
+    }
+
+
+    @WithMockUser
+    @Test
+    public void thatCarsAreSearchedByAttributes() throws Exception
+    {
+        carService.create(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("S1").manufacturer("Searchable").seatCount(7).build()));
+        carService.create(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("S2").manufacturer("Searchable").seatCount(2).build()));
+        carService.create(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("S3").manufacturer("Other").seatCount(7).build()));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars/search?manufacturer=searchable&minSeatCount=5&withDriver=false&engineType=" + TestUtils.VALID_CAR_DTO.getEngineType().toUpperCase()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("[*].licensePlate", Matchers.contains("S1")));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars/search?minRating=5&maxRating=1"))
+            .andExpect(status().isBadRequest());
+    }
+
+
     @Test
     public void thatPublicEndpointRequiresAuthentication() throws Exception
     {
@@ -109,4 +183,71 @@ public class CarControllerIntegrationTest
             .andExpect(status().isOk());
     }
 
+
+
+    @WithMockUser
+    @Test
+    public void thatCarsAreCreatedInBulkWithResultPerRow() throws Exception
+    {
+        carService.create(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("BULK-TAKEN").build()));
+
+        String cars = "[" + TestUtils.toJson(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("BULK-1").build()) + ","
+            + TestUtils.toJson(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("BULK-TAKEN").build()) + ","
+            + TestUtils.toJson(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("BULK-1").build()) + ","
+            + TestUtils.toJson(TestUtils.CAR_DTO_WITHOUT_LICENSE_PLATE) + ","
+            + TestUtils.toJson(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("BULK-2").engineType("steam").build()) + ","
+            + TestUtils.toJson(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("BULK-3").build()) + "]";
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/v1/cars/bulk").with(csrf())
+            .content(cars)
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", Matchers.hasSize(6)))
+            .andExpect(jsonPath("$[*].index", Matchers.contains(0, 1, 2, 3, 4, 5)))
+            .andExpect(jsonPath("$[0].id").exists())
+            .andExpect(jsonPath("$[1].error", Matchers.containsString("already exists")))
+            .andExpect(jsonPath("$[2].error", Matchers.containsString("already exists")))
+            .andExpect(jsonPath("$[3].error", Matchers.containsString("licensePlate")))
+            .andExpect(jsonPath("$[4].error").exists())
+            .andExpect(jsonPath("$[5].id").exists());
+
+        assert carRepository.count() == 3;
+    }
+
+
+    @WithMockUser
+    @Test
+    public void thatCarsAreCreatedInBulkFromNewlineDelimitedJson() throws Exception
+    {
+        StringBuilder cars = new StringBuilder();
+        for (int i = 0; i < 120; i++)
+        {
+            cars.append(TestUtils.toJson(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("NDJSON-" + i).build())).append('\n');
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/v1/cars/bulk").with(csrf())
+            .content(cars.toString())
+            .contentType(BulkImport.APPLICATION_NDJSON_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", Matchers.hasSize(120)))
+            .andExpect(jsonPath("$[*].error").doesNotExist());
+
+        assert carRepository.count() == 120;
+    }
+
+
+    @WithMockUser
+    @Test
+    public void thatMalformedBulkRequestIsRejected() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/v1/cars/bulk").with(csrf())
+            .content("{\"licensePlate\": \"X\"}\n{not json")
+            .contentType(BulkImport.APPLICATION_NDJSON_VALUE))
+            .andExpect(status().isBadRequest());
+
+        assert carRepository.count() == 0;
+    }
 }
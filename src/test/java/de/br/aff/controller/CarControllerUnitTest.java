@@ -4,10 +4,10 @@ import de.br.aff.controller.mapper.CarMapper;
 import de.br.aff.datatransferobject.CarDTO;
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.car.CarQueryService;
 import de.br.aff.service.car.CarService;
 import de.br.aff.utils.TestUtils;
 import java.util.Arrays;
-import java.util.Optional;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,6 +16,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -45,11 +46,14 @@ public class CarControllerUnitTest
     @MockBean
     private CarService carService;
 
+    @MockBean
+    private CarQueryService carQueryService;
+
 
     @Test
     public void thatGetCarEndpointWorksProperly() throws Exception
     {
-        when(carService.find(1L)).thenReturn(Optional.of(TestUtils.TEST_CAR));
+        when(carQueryService.find(1L)).thenReturn(CarMapper.makeCarDTO(TestUtils.TEST_CAR));
 
         mockMvc.perform(MockMvcRequestBuilders
             .get("/v1/cars/1"))
@@ -62,7 +66,7 @@ public class CarControllerUnitTest
     @Test
     public void thatGetAllCarsEndpointWorksProperly() throws Exception
     {
-        when(carService.findAll()).thenReturn(Arrays.asList(TestUtils.TEST_CAR, TestUtils.TEST_CAR));
+        when(carQueryService.findAll()).thenReturn(CarMapper.makeCarDTOList(Arrays.asList(TestUtils.TEST_CAR, TestUtils.TEST_CAR)));
 
         mockMvc.perform(MockMvcRequestBuilders
             .get("/v1/cars"))
@@ -73,6 +77,61 @@ public class CarControllerUnitTest
     }
 
 
+    @Test
+    public void thatGetAllCarsEndpointIsPaginated() throws Exception
+    {
+        when(carQueryService.findAll(5L, 2)).thenReturn(CarMapper.makeCarDTOList(Arrays.asList(TestUtils.TEST_CAR, TestUtils.TEST_CAR)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars?after=5&limit=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", Matchers.hasSize(2)));
+
+        verify(carQueryService, never()).findAll();
+    }
+
+
+    @Test
+    public void thatUnchangedCarsAreNotReadAgain() throws Exception
+    {
+        when(carQueryService.getCarsVersion()).thenReturn("v-1");
+        when(carQueryService.findAll()).thenReturn(CarMapper.makeCarDTOList(Arrays.asList(TestUtils.TEST_CAR, TestUtils.TEST_CAR)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"v-1\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars")
+            .header(HttpHeaders.IF_NONE_MATCH, "W/\"v-1\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+
+        verify(carQueryService, times(1)).findAll();
+
+        when(carQueryService.getCarsVersion()).thenReturn("v-2");
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"v-1\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"v-2\""));
+    }
+
+
+    @Test
+    public void thatPageLimitIsValidated() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars?limit=100000"))
+            .andExpect(status().isBadRequest());
+
+        verify(carQueryService, never()).findAll(ArgumentMatchers.any(), ArgumentMatchers.anyInt());
+    }
+
+
     @Test
     public void thatCreateEndpointWorksProperly() throws Exception
     {
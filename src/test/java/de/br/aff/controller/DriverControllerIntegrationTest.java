@@ -5,7 +5,9 @@ import de.br.aff.dataaccessobject.CarRepository;
 import de.br.aff.dataaccessobject.DriverRepository;
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.domainobject.DriverDO;
+import de.br.aff.service.cache.FleetCache;
 import de.br.aff.utils.TestUtils;
+import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -18,6 +20,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -34,11 +37,15 @@ public class DriverControllerIntegrationTest
     @Autowired
     private CarRepository carRepository;
 
+    @Autowired
+    private FleetCache fleetCache;
+
 
     @Before
     public void init()
     {
         driverRepository.deleteAll();
+        fleetCache.evictAll();
     }
 
 
@@ -65,6 +72,39 @@ public class DriverControllerIntegrationTest
     }
 
 
+    @WithMockUser
+    @Test
+    public void thatCachedDriverIsEvictedWhenCarIsSelected() throws Exception
+    {
+        CarDO savedCar = carRepository.save(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("CACHED-1").build()));
+
+        DriverDO savedDriver = driverRepository.save(TestUtils.newOnlineDriver());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/" + savedDriver.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("carId").doesNotExist());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .put("/v1/drivers/" + savedDriver.getId() + "/car/" + savedCar.getId()).with(csrf()))
+            .andExpect(status().isNoContent());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/" + savedDriver.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("carId", Matchers.is(savedCar.getId().intValue())));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .delete("/v1/drivers/" + savedDriver.getId() + "/car").with(csrf()))
+            .andExpect(status().isNoContent());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/" + savedDriver.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("carId").doesNotExist());
+    }
+
+
     @Test
     public void thatPublicEndpointRequiresAuthentication() throws Exception
     {
@@ -3,6 +3,7 @@ package de.br.aff.controller;
 import de.br.aff.exception.CarAlreadyInUseException;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.driver.DriverQueryService;
 import de.br.aff.service.driver.DriverService;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -34,6 +35,9 @@ public class DriverControllerUnitTest
     @MockBean
     private DriverService driverService;
 
+    @MockBean
+    private DriverQueryService driverQueryService;
+
 
     @Test
     public void thatSelectingCarWorksProperly() throws Exception
@@ -0,0 +1,69 @@
+package de.br.aff.controller;
+
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.DriverLocationDTO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.service.location.DriverLocationService;
+import de.br.aff.utils.TestUtils;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class DriverLocationControllerIntegrationTest
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DriverLocationService driverLocationService;
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatIngestedLocationsAreFlushedToTheDatabase() throws Exception
+    {
+        DriverDO driver = driverRepository.save(new DriverDO("pinging", "pw", null));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/locations").with(csrf())
+            .content(TestUtils.toJson(Arrays.asList(
+                new DriverLocationDTO(driver.getId(), 52.52, 13.405, 100L),
+                new DriverLocationDTO(driver.getId(), 48.13, 11.58, 200L))))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isAccepted());
+
+        driverLocationService.flush();
+
+        assert driverRepository.findById(driver.getId()).get().getCoordinate().equals(new GeoCoordinate(48.13, 11.58));
+    }
+
+
+    @WithMockUser
+    @Test
+    public void thatIngestEndpointIsNotAccessibleWithUserRole() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/locations").with(csrf())
+            .content("[]")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isForbidden());
+    }
+}
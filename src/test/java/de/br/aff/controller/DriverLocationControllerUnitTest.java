@@ -0,0 +1,93 @@
+package de.br.aff.controller;
+
+import de.br.aff.datatransferobject.DriverLocationDTO;
+import de.br.aff.domainvalue.DriverPosition;
+import de.br.aff.service.location.DriverLocationService;
+import de.br.aff.utils.TestUtils;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = DriverLocationController.class)
+@WithMockUser(username = "admin")
+public class DriverLocationControllerUnitTest
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DriverLocationService driverLocationService;
+
+
+    @Test
+    public void thatLocationsAreAccepted() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/locations").with(csrf())
+            .content(TestUtils.toJson(Arrays.asList(
+                new DriverLocationDTO(1L, 52.52, 13.405, 100L),
+                new DriverLocationDTO(2L, 48.13, 11.58, 200L))))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isAccepted());
+
+        verify(driverLocationService, times(1)).ingest(Arrays.asList(
+            new DriverPosition(1L, 52.52, 13.405, 100L),
+            new DriverPosition(2L, 48.13, 11.58, 200L)));
+    }
+
+
+    @Test
+    public void thatInvalidCoordinateResultsWithBadRequest() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/locations").with(csrf())
+            .content(TestUtils.toJson(Collections.singletonList(new DriverLocationDTO(1L, 95.0, 13.405, 100L))))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        verify(driverLocationService, never()).ingest(anyList());
+    }
+
+
+    @Test
+    public void thatMissingCoordinateResultsWithBadRequest() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/locations").with(csrf())
+            .content("[{\"driverId\": 1, \"latitude\": 52.52, \"timestamp\": 100}]")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        verify(driverLocationService, never()).ingest(anyList());
+    }
+
+
+    @Test
+    public void thatMissingDriverIdResultsWithBadRequest() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/locations").with(csrf())
+            .content(TestUtils.toJson(Collections.singletonList(new DriverLocationDTO(null, 52.52, 13.405, 100L))))
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        verify(driverLocationService, never()).ingest(anyList());
+    }
+}
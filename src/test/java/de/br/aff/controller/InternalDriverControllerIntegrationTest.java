@@ -8,6 +8,7 @@ import de.br.aff.domainobject.CarDO;
 import de.br.aff.domainobject.DriverDO;
 import de.br.aff.domainvalue.GeoCoordinate;
 import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.service.driver.DriverService;
 import de.br.aff.utils.TestUtils;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -20,12 +21,15 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -42,6 +46,9 @@ public class InternalDriverControllerIntegrationTest
     @Autowired
     private CarRepository carRepository;
 
+    @Autowired
+    private DriverService driverService;
+
 
     @Before
     public void init()
@@ -146,6 +153,14 @@ public class InternalDriverControllerIntegrationTest
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$", Matchers.hasSize(0)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(location.substring("http://localhost" .length())))
+            .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .delete(internalEndpoint).with(csrf()))
+            .andExpect(status().isNotFound());
     }
 
 
@@ -205,6 +220,100 @@ public class InternalDriverControllerIntegrationTest
     }
 
 
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatDriversAreFoundByMinimumCarRatingBestRatedFirst() throws Exception
+    {
+        int[] ratings = {2, 5, 3, 4};
+        for (int i = 0; i < ratings.length; i++)
+        {
+            CarDO car = carRepository.save(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("R" + i).rating(ratings[i]).build()));
+            DriverDO driver = driverRepository.save(new DriverDO("rated" + ratings[i], "pw", null));
+            driver.setCar(car);
+            driverRepository.save(driver);
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/cars/rating/drivers?minrating=3"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].username", Matchers.contains("rated5", "rated4", "rated3")));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/cars/rating/drivers?minrating=3&limit=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].username", Matchers.contains("rated5")));
+    }
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatDriversCanBeListedPageByPageAndStreamed() throws Exception
+    {
+        DriverDO first = driverRepository.save(new DriverDO("page1", "pw", null));
+        DriverDO second = driverRepository.save(new DriverDO("page2", "pw", null));
+        DriverDO deleted = new DriverDO("deleted", "pw", null);
+        deleted.setDeleted(true);
+        driverRepository.save(deleted);
+        driverRepository.save(new DriverDO("page3", "pw", new GeoCoordinate(1, 2)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers?limit=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("[*].username", Matchers.contains("page1", "page2")));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers?limit=2&after=" + second.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("[*].username", Matchers.contains("page3")));
+
+        MvcResult streaming = mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(streaming))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("[*].username", Matchers.contains("page1", "page2", "page3")))
+            .andExpect(jsonPath("[0].id", Matchers.is(first.getId().intValue())))
+            .andExpect(jsonPath("[2].coordinate.latitude", Matchers.is(1.0)));
+    }
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatSearchingNearbyDriversWorks() throws Exception
+    {
+        DriverDO nearDriver = new DriverDO("near", "pw", new GeoCoordinate(52.5200, 13.4050));
+        nearDriver.setOnlineStatus(OnlineStatus.ONLINE);
+        driverService.create(nearDriver);
+
+        DriverDO fartherDriver = new DriverDO("farther", "pw", new GeoCoordinate(52.5300, 13.4050));
+        fartherDriver.setOnlineStatus(OnlineStatus.ONLINE);
+        driverService.create(fartherDriver);
+
+        DriverDO offlineDriver = new DriverDO("offline", "pw", new GeoCoordinate(52.5201, 13.4050));
+        driverService.create(offlineDriver);
+
+        DriverDO distantDriver = new DriverDO("distant", "pw", new GeoCoordinate(48.1351, 11.5820));
+        distantDriver.setOnlineStatus(OnlineStatus.ONLINE);
+        driverService.create(distantDriver);
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/nearby?latitude=52.52&longitude=13.405&radiuskm=5"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$[*].username", Matchers.contains("near", "farther")));
+
+        driverService.delete(nearDriver.getId());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/nearby?latitude=52.52&longitude=13.405&radiuskm=5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].username", Matchers.contains("farther")));
+    }
+
+
     @Test
     public void thatInternalEndpointRequiresAuthentication() throws Exception
     {
@@ -232,4 +341,74 @@ public class InternalDriverControllerIntegrationTest
             .get("/internal/v1/drivers"))
             .andExpect(status().isOk());
     }
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatDriversAreCreatedInBulk() throws Exception
+    {
+        driverRepository.save(new DriverDO("bulk-taken", "pw", null));
+
+        String drivers = "{\"username\": \"bulk-1\", \"password\": \"pw\", \"coordinate\": {\"latitude\": 52.5, \"longitude\": 13.4}}\n"
+            + "{\"username\": \"bulk-taken\", \"password\": \"pw\"}\n"
+            + "{\"username\": \"bulk-2\"}\n"
+            + "{\"username\": \"bulk-3\", \"password\": \"pw\"}\n";
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/bulk").with(csrf())
+            .content(drivers)
+            .contentType(BulkImport.APPLICATION_NDJSON_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", Matchers.hasSize(4)))
+            .andExpect(jsonPath("$[0].id").exists())
+            .andExpect(jsonPath("$[1].error", Matchers.containsString("already exists")))
+            .andExpect(jsonPath("$[2].error", Matchers.containsString("Password can not be null!")))
+            .andExpect(jsonPath("$[3].id").exists());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers?username=bulk-1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].coordinate.latitude", Matchers.is(52.5)));
+    }
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatDriverChangesWithinTheBoundingBoxArePushed() throws Exception
+    {
+        DriverDO inside = driverRepository.save(new DriverDO("pushed", "pw", new GeoCoordinate(48.1, 11.5)));
+        DriverDO outside = driverRepository.save(new DriverDO("not-pushed", "pw", new GeoCoordinate(53.5, 10.0)));
+
+        MvcResult subscription = mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/changes?minlatitude=48&maxlatitude=49&minlongitude=11&maxlongitude=12&onlinestatus=ONLINE"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string("Content-Type", Matchers.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE)))
+            .andReturn();
+
+        DriverDO goingOnline = new DriverDO();
+        goingOnline.setOnlineStatus(OnlineStatus.ONLINE);
+        driverService.updatePartially(outside.getId(), goingOnline);
+        driverService.updatePartially(inside.getId(), goingOnline);
+
+        String events = "";
+        for (long deadline = System.currentTimeMillis() + 5000; !events.contains("\"driverId\":" + inside.getId()) && System.currentTimeMillis() < deadline; )
+        {
+            Thread.sleep(10);
+            events = subscription.getResponse().getContentAsString();
+        }
+        assert events.contains("event:driver");
+        assert events.contains("\"driverId\":" + inside.getId());
+        assert events.contains("\"onlineStatus\":\"ONLINE\"");
+        assert !events.contains("\"driverId\":" + outside.getId() + ",");
+    }
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatIncompleteBoundingBoxIsRejected() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/changes?minlatitude=48&maxlatitude=49"))
+            .andExpect(status().isBadRequest());
+    }
 }
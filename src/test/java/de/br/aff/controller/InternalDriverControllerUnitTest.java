@@ -1,7 +1,11 @@
 package de.br.aff.controller;
 
+import de.br.aff.domainvalue.GeoCoordinate;
 import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.service.driver.DriverChangeBroadcaster;
+import de.br.aff.service.driver.DriverQueryService;
 import de.br.aff.service.driver.DriverService;
+import de.br.aff.util.Utils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +17,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -30,6 +36,12 @@ public class InternalDriverControllerUnitTest
     @MockBean
     private DriverService driverService;
 
+    @MockBean
+    private DriverQueryService driverQueryService;
+
+    @MockBean
+    private DriverChangeBroadcaster driverChangeBroadcaster;
+
 
     @Test
     public void thatGettingDriversByOnlineStatusWorks() throws Exception
@@ -38,7 +50,7 @@ public class InternalDriverControllerUnitTest
             .get("/internal/v1/drivers?onlinestatus=ONLINE"))
             .andExpect(status().isOk());
 
-        verify(driverService, times(1)).find(null, OnlineStatus.ONLINE);
+        verify(driverQueryService, times(1)).find(null, OnlineStatus.ONLINE);
     }
 
 
@@ -49,7 +61,7 @@ public class InternalDriverControllerUnitTest
             .get("/internal/v1/drivers?onlinestatus=online"))
             .andExpect(status().isOk());
 
-        verify(driverService, times(1)).find(null, OnlineStatus.ONLINE);
+        verify(driverQueryService, times(1)).find(null, OnlineStatus.ONLINE);
     }
 
 
@@ -60,7 +72,7 @@ public class InternalDriverControllerUnitTest
             .get("/internal/v1/drivers?onlinestatus=smthnonexisting"))
             .andExpect(status().isBadRequest());
 
-        verify(driverService, never()).find(eq(null), any(OnlineStatus.class));
+        verify(driverQueryService, never()).find(eq(null), any(OnlineStatus.class));
     }
 
 
@@ -71,7 +83,7 @@ public class InternalDriverControllerUnitTest
             .get("/internal/v1/drivers?username=smth"))
             .andExpect(status().isOk());
 
-        verify(driverService, times(1)).find("smth", null);
+        verify(driverQueryService, times(1)).find("smth", null);
     }
 
 
@@ -82,7 +94,7 @@ public class InternalDriverControllerUnitTest
             .get("/internal/v1/drivers?username=smth&onlinestatus=online"))
             .andExpect(status().isOk());
 
-        verify(driverService, times(1)).find("smth", OnlineStatus.ONLINE);
+        verify(driverQueryService, times(1)).find("smth", OnlineStatus.ONLINE);
     }
 
 
@@ -93,7 +105,74 @@ public class InternalDriverControllerUnitTest
             .get("/internal/v1/drivers"))
             .andExpect(status().isOk());
 
-        verify(driverService, times(1)).find(null, null);
+        verify(driverQueryService, times(1)).find(null, null);
+    }
+
+
+    @Test
+    public void thatGettingDriversPageWorks() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers?after=10&limit=20"))
+            .andExpect(status().isOk());
+
+        verify(driverQueryService, times(1)).findAll(10L, 20);
+        verify(driverQueryService, never()).find(any(), any());
+    }
+
+
+    @Test
+    public void thatGettingDriversPageWithDefaultLimitWorks() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers?after=10"))
+            .andExpect(status().isOk());
+
+        verify(driverQueryService, times(1)).findAll(10L, 100);
+    }
+
+
+    @Test
+    public void thatPaginationCombinedWithFilterResultsWithBadRequest() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers?username=smth&limit=20"))
+            .andExpect(status().isBadRequest());
+
+        verify(driverQueryService, never()).findAll(any(), anyInt());
+    }
+
+
+    @Test
+    public void thatSearchingNearbyDriversWorks() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/nearby?latitude=52.52&longitude=13.405&radiuskm=2&limit=3"))
+            .andExpect(status().isOk());
+
+        verify(driverQueryService, times(1)).findNearby(new GeoCoordinate(52.52, 13.405), 2, 3);
+    }
+
+
+    @Test
+    public void thatSearchingNearbyDriversWithInvalidCoordinateResultsWithBadRequest() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/nearby?latitude=91&longitude=13.405"))
+            .andExpect(status().isBadRequest());
+
+        verify(driverQueryService, never()).findNearby(any(GeoCoordinate.class), anyDouble(), anyInt());
+    }
+
+
+    @Test
+    public void thatSearchingTopRatedNearbyDriversWithTooHighLimitResultsWithBadRequest() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/internal/v1/drivers/nearby/toprated?latitude=52.52&longitude=13.405&limit=" + (Utils.MAX_PAGE_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+
+        verify(driverQueryService, never()).findTopRatedNearby(any(GeoCoordinate.class), anyDouble(), anyInt(), anyInt());
     }
 
 
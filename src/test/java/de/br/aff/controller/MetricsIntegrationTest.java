@@ -0,0 +1,73 @@
+package de.br.aff.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsIntegrationTest
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+
+    @WithMockUser
+    @Test
+    public void thatRequestsErrorsAndQueriesAreMeasured() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/cars/" + Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+
+        Timer requests = meterRegistry.find("http.server.requests").tag("uri", "/v1/cars/{carId}").tag("status", "404").timer();
+        assert requests != null && requests.count() >= 1;
+
+        Gauge inFlight = meterRegistry.find("http.server.requests.active").tag("uri", "/v1/cars/{carId}").gauge();
+        assert inFlight != null && inFlight.value() == 0;
+
+        Counter errors = meterRegistry.find("api.errors").tag("exception", "EntityNotFoundException").counter();
+        assert errors != null && errors.count() >= 1;
+
+        Timer queries = meterRegistry.find("repository.invocations").tag("repository", "CarRepository").tag("method", "findDTOById").timer();
+        assert queries != null && queries.count() >= 1;
+    }
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatMetricsAreAccessibleByAdmin() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/actuator/metrics"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("names").isArray());
+    }
+
+
+    @WithMockUser
+    @Test
+    public void thatMetricsAreNotAccessibleByUser() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/actuator/metrics"))
+            .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,127 @@
+package de.br.aff.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import de.br.aff.controller.mapper.CarMapper;
+import de.br.aff.datatransferobject.RideRequestDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.service.car.CarService;
+import de.br.aff.service.driver.DriverService;
+import de.br.aff.utils.TestUtils;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RideControllerIntegrationTest
+{
+    private static final GeoCoordinate PICKUP = new GeoCoordinate(-33.8688, 151.2093);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private CarService carService;
+
+
+    @WithMockUser
+    @Test
+    public void thatDriverIsReservedUntilRideIsCompleted() throws Exception
+    {
+        CarDO car = carService.create(CarMapper.makeCarDO(TestUtils.VALID_CAR_DTO.toBuilder().licensePlate("RIDE-1").rating(80).seatCount(5).build()));
+        DriverDO driver = TestUtils.newOnlineDriver();
+        driver.setUsername("ride-driver");
+        driver.setCoordinate(new GeoCoordinate(-33.87, 151.21));
+        driver = driverService.create(driver);
+        driverService.selectCar(driver.getId(), car.getId());
+
+        String rideRequest = TestUtils.toJson(RideRequestDTO.builder().pickup(PICKUP).minRating(50).minSeatCount(4).engineType("petrol").build());
+
+        String ride = mockMvc.perform(asyncDispatch(requestRide(rideRequest)))
+            .andExpect(status().isCreated())
+            .andExpect(header().string("LOCATION", Matchers.startsWith("http://localhost/v1/rides/")))
+            .andExpect(jsonPath("driverId", Matchers.is(driver.getId().intValue())))
+            .andExpect(jsonPath("carId", Matchers.is(car.getId().intValue())))
+            .andReturn().getResponse().getContentAsString();
+
+        Number rideId = JsonPath.read(ride, "$.id");
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/rides/" + rideId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("driverId", Matchers.is(driver.getId().intValue())));
+
+        mockMvc.perform(asyncDispatch(requestRide(rideRequest)))
+            .andExpect(status().isServiceUnavailable());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .delete("/v1/rides/" + rideId).with(csrf()))
+            .andExpect(status().isNoContent());
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/rides/" + rideId))
+            .andExpect(status().isNotFound());
+
+        mockMvc.perform(asyncDispatch(requestRide(rideRequest)))
+            .andExpect(status().isCreated());
+
+        // other test classes delete all cars
+        driverService.deselectCar(driver.getId());
+    }
+
+
+    @WithMockUser
+    @Test
+    public void thatRideRequestWithoutPickupIsRejected() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/v1/rides").with(csrf())
+            .content("{\"minRating\": 10}")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+
+    @Test
+    public void thatRideRequestRequiresAuthentication() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/v1/rides").with(csrf())
+            .content("{}")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnauthorized());
+    }
+
+
+    private MvcResult requestRide(String rideRequest) throws Exception
+    {
+        return mockMvc.perform(MockMvcRequestBuilders
+            .post("/v1/rides").with(csrf())
+            .content(rideRequest)
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    }
+}
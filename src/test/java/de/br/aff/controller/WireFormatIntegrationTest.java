@@ -0,0 +1,82 @@
+package de.br.aff.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.DriverLocationDTO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.service.location.DriverLocationService;
+import de.br.aff.util.WireFormatConfig;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class WireFormatIntegrationTest
+{
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DriverLocationService driverLocationService;
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatLocationsAreSentAndDriversAreReadAsSmile() throws Exception
+    {
+        DriverDO driver = driverRepository.save(new DriverDO("smile", "pw", null));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .post("/internal/v1/drivers/locations").with(csrf())
+            .content(smileMapper.writeValueAsBytes(Arrays.asList(new DriverLocationDTO(driver.getId(), 52.52, 13.405, 100L))))
+            .contentType(WireFormatConfig.APPLICATION_SMILE_VALUE))
+            .andExpect(status().isAccepted());
+        driverLocationService.flush();
+
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/" + driver.getId())
+            .accept(WireFormatConfig.APPLICATION_SMILE_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(WireFormatConfig.APPLICATION_SMILE_VALUE))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode decoded = smileMapper.readTree(body);
+        assert decoded.get("username").asText().equals("smile");
+        assert decoded.get("coordinate").get("latitude").asDouble() == 52.52;
+    }
+
+
+    @WithMockUser(roles = {"ADMIN"})
+    @Test
+    public void thatJsonStaysTheDefault() throws Exception
+    {
+        DriverDO driver = driverRepository.save(new DriverDO("json", "pw", null));
+
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/" + driver.getId())
+            .accept(MediaType.ALL))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE));
+    }
+}
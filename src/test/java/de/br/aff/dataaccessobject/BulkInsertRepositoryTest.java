@@ -0,0 +1,65 @@
+package de.br.aff.dataaccessobject;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.EngineType;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class BulkInsertRepositoryTest
+{
+    private static final int CARS = 120;
+
+    @Autowired
+    private BulkInsertRepository bulkInsertRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+
+    @Before
+    public void init()
+    {
+        driverRepository.deleteAll();
+        carRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+
+    @Test
+    public void thatRowsAreInsertedInBatchesWithPooledIds()
+    {
+        List<CarDO> cars = new ArrayList<>();
+        for (int i = 0; i < CARS; i++)
+        {
+            cars.add(new CarDO("BATCH-" + i, 4, false, 3, EngineType.GAS, "VW", "Golf"));
+        }
+
+        bulkInsertRepository.insertAll(cars);
+
+        assert cars.stream().allMatch(car -> car.getId() != null);
+        assert carRepository.count() == CARS;
+        // 3 batches of inserts and a few sequence calls instead of one insert and one sequence call per row
+        assert statistics.getPrepareStatementCount() < 10 : "statements: " + statistics.getPrepareStatementCount();
+    }
+}
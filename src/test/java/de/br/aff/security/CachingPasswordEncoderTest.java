@@ -0,0 +1,69 @@
+package de.br.aff.security;
+
+import java.time.Duration;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CachingPasswordEncoderTest
+{
+    private final PasswordEncoder bcrypt = spy(new BCryptPasswordEncoder(4));
+    private final CachingPasswordEncoder encoder = new CachingPasswordEncoder(bcrypt, 100, Duration.ofMinutes(5));
+
+
+    @Test
+    public void thatCorrectPasswordIsVerifiedOnlyOnce()
+    {
+        String encoded = encoder.encode("secret");
+
+        assert encoder.matches("secret", encoded);
+        assert encoder.matches("secret", encoded);
+        assert encoder.matches("secret", encoded);
+
+        verify(bcrypt, times(1)).matches(any(), anyString());
+    }
+
+
+    @Test
+    public void thatWrongPasswordIsNeverCached()
+    {
+        String encoded = encoder.encode("secret");
+
+        assert !encoder.matches("guess", encoded);
+        assert !encoder.matches("guess", encoded);
+
+        verify(bcrypt, times(2)).matches(any(), anyString());
+    }
+
+
+    @Test
+    public void thatChangedPasswordIsVerifiedAgain()
+    {
+        String oldEncoded = encoder.encode("secret");
+        String newEncoded = encoder.encode("changed");
+        assert encoder.matches("secret", oldEncoded);
+
+        assert !encoder.matches("secret", newEncoded);
+        assert encoder.matches("changed", newEncoded);
+    }
+
+
+    @Test
+    public void thatExpiredVerificationIsRepeated() throws InterruptedException
+    {
+        CachingPasswordEncoder shortLived = new CachingPasswordEncoder(bcrypt, 100, Duration.ofMillis(1));
+        String encoded = shortLived.encode("secret");
+
+        assert shortLived.matches("secret", encoded);
+        Thread.sleep(5);
+        assert shortLived.matches("secret", encoded);
+
+        verify(bcrypt, times(2)).matches(any(), anyString());
+    }
+}
@@ -0,0 +1,80 @@
+package de.br.aff.service.cache;
+
+import de.br.aff.datatransferobject.CacheStatsDTO;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class LookupCacheTest
+{
+    private final LookupCache<Long, String> cache = new LookupCache<>("test", 2, Duration.ofMinutes(1));
+
+
+    @Test
+    public void thatCachedValueIsNotLoadedAgain()
+    {
+        AtomicInteger loads = new AtomicInteger();
+
+        assert cache.get(1L, () -> "value-" + loads.incrementAndGet()).equals("value-1");
+        assert cache.get(1L, () -> "value-" + loads.incrementAndGet()).equals("value-1");
+
+        CacheStatsDTO stats = cache.stats();
+        assert stats.getHitCount() == 1;
+        assert stats.getMissCount() == 1;
+        assert stats.getSize() == 1;
+    }
+
+
+    @Test
+    public void thatEvictedValueIsLoadedAgain()
+    {
+        cache.get(1L, () -> "old");
+        cache.evict(1L);
+
+        assert cache.get(1L, () -> "new").equals("new");
+    }
+
+
+    @Test
+    public void thatValueLoadedDuringEvictionIsNotCached()
+    {
+        cache.get(1L, () -> {
+            cache.evict(1L); // a write evicts while the old value is being loaded
+            return "old";
+        });
+
+        assert cache.get(1L, () -> "new").equals("new");
+    }
+
+
+    @Test
+    public void thatMissingValuesAndFailedLoadsAreNotCached() throws Exception
+    {
+        assert cache.get(1L, () -> null) == null;
+
+        try
+        {
+            cache.get(2L, () -> {
+                throw new Exception("not found");
+            });
+            assert false;
+        }
+        catch (Exception e)
+        {
+            assert e.getMessage().equals("not found");
+        }
+
+        assert cache.stats().getSize() == 0;
+    }
+
+
+    @Test
+    public void thatCacheIsBounded()
+    {
+        cache.get(1L, () -> "1");
+        cache.get(2L, () -> "2");
+        cache.get(3L, () -> "3");
+
+        assert cache.stats().getSize() == 2;
+    }
+}
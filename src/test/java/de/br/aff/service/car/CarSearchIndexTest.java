@@ -0,0 +1,124 @@
+package de.br.aff.service.car;
+
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainvalue.CarSearchCriteria;
+import de.br.aff.domainvalue.EngineType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CarSearchIndexTest
+{
+    private final CarSearchIndex index = new CarSearchIndex();
+
+
+    @Before
+    public void fillIndex()
+    {
+        index.rebuild(Arrays.asList(
+            car(1, 4, false, 3, EngineType.GAS, "VW"),
+            car(2, 7, false, 4, EngineType.DIESEL, "Mercedes"),
+            car(3, 2, true, 5, EngineType.ELECTRIC, "Tesla"),
+            car(4, 5, false, 2, EngineType.ELECTRIC, "VW")), Collections.singletonList(2L));
+    }
+
+
+    @Test
+    public void thatAllCriteriaHaveToMatch()
+    {
+        assert ids(CarSearchCriteria.NONE).equals(Arrays.asList(1L, 2L, 3L, 4L));
+        assert ids(CarSearchCriteria.builder().minSeatCount(5).build()).equals(Arrays.asList(2L, 4L));
+        assert ids(CarSearchCriteria.builder().convertible(false).minRating(3).build()).equals(Arrays.asList(1L, 2L));
+        assert ids(CarSearchCriteria.builder().engineTypes(EnumSet.of(EngineType.GAS, EngineType.ELECTRIC)).maxRating(3).build()).equals(Arrays.asList(1L, 4L));
+        assert ids(CarSearchCriteria.builder().manufacturer("vw").withDriver(false).build()).equals(Arrays.asList(1L, 4L));
+        assert ids(CarSearchCriteria.builder().withDriver(true).build()).equals(Collections.singletonList(2L));
+        assert ids(CarSearchCriteria.builder().manufacturer("Trabant").build()).isEmpty();
+    }
+
+
+    @Test
+    public void thatChangesAreTakenOver()
+    {
+        index.put(car(1, 4, true, 3, EngineType.PETROL, "Audi"));
+        index.remove(3);
+        index.put(car(5, 2, true, 1, EngineType.GAS, "Fiat"));
+        index.setDriver(2, false);
+        index.setDriver(5, true);
+
+        assert index.size() == 4;
+        assert ids(CarSearchCriteria.builder().convertible(true).build()).equals(Arrays.asList(1L, 5L));
+        assert ids(CarSearchCriteria.builder().manufacturer("VW").build()).equals(Collections.singletonList(4L));
+        assert ids(CarSearchCriteria.builder().engineTypes(EnumSet.of(EngineType.ELECTRIC)).build()).equals(Collections.singletonList(4L));
+        assert ids(CarSearchCriteria.builder().withDriver(true).build()).equals(Collections.singletonList(5L));
+    }
+
+
+    @Test
+    public void thatResultsArePagedById()
+    {
+        assert index.search(CarSearchCriteria.NONE, Long.MIN_VALUE, 2).stream().map(CarDTO::getId).collect(Collectors.toList()).equals(Arrays.asList(1L, 2L));
+        assert index.search(CarSearchCriteria.NONE, 2, 2).stream().map(CarDTO::getId).collect(Collectors.toList()).equals(Arrays.asList(3L, 4L));
+    }
+
+
+    @Test
+    public void thatPagesFollowTheIdsWhenRowsAreReused()
+    {
+        index.remove(1);
+        index.put(car(9, 4, false, 3, EngineType.GAS, "VW"));
+        index.put(car(-5, 4, false, 3, EngineType.GAS, "VW"));
+
+        assert ids(CarSearchCriteria.NONE).equals(Arrays.asList(-5L, 2L, 3L, 4L, 9L));
+        CarSearchCriteria volkswagen = CarSearchCriteria.builder().manufacturer("VW").build();
+        assert index.search(volkswagen, Long.MIN_VALUE, 2).stream().map(CarDTO::getId).collect(Collectors.toList()).equals(Arrays.asList(-5L, 4L));
+        assert index.search(volkswagen, 4, 2).stream().map(CarDTO::getId).collect(Collectors.toList()).equals(Collections.singletonList(9L));
+    }
+
+
+    @Test
+    public void thatSelectiveFiltersAreAnsweredAcrossALargeIndex()
+    {
+        List<CarDTO> cars = new ArrayList<>();
+        for (long id = 1; id <= 200_000; id++)
+        {
+            cars.add(car(id, 4, false, 3, EngineType.GAS, id == 150_000 ? "Tesla" : "VW"));
+        }
+        index.rebuild(cars, Collections.emptyList());
+
+        assert ids(CarSearchCriteria.builder().manufacturer("Trabant").build()).isEmpty();
+        assert ids(CarSearchCriteria.builder().convertible(true).minSeatCount(4).build()).isEmpty();
+        assert ids(CarSearchCriteria.builder().manufacturer("Tesla").build()).equals(Collections.singletonList(150_000L));
+        assert index.search(CarSearchCriteria.builder().manufacturer("Tesla").build(), 150_000, 10).isEmpty();
+
+        for (long id = 1; id < 199_999; id++)
+        {
+            index.remove(id);
+        }
+        assert index.size() == 2;
+        assert ids(CarSearchCriteria.builder().manufacturer("VW").build()).equals(Arrays.asList(199_999L, 200_000L));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatInvertedRatingRangeIsRejected()
+    {
+        index.search(CarSearchCriteria.builder().minRating(4).maxRating(3).build(), Long.MIN_VALUE, 10);
+    }
+
+
+    private List<Long> ids(CarSearchCriteria criteria)
+    {
+        return index.search(criteria, Long.MIN_VALUE, 100).stream().map(CarDTO::getId).collect(Collectors.toList());
+    }
+
+
+    private static CarDTO car(long id, int seatCount, boolean convertible, int rating, EngineType engineType, String manufacturer)
+    {
+        return new CarDTO(id, "S-" + id, seatCount, convertible, rating, engineType.name(), manufacturer, "Model");
+    }
+}
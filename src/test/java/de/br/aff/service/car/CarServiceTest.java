@@ -1,11 +1,21 @@
 package de.br.aff.service.car;
 
 import de.br.aff.controller.mapper.CarMapper;
+import de.br.aff.dataaccessobject.BulkInsertRepository;
 import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.EngineType;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.driver.DriverStateStore;
+import de.br.aff.service.snapshot.DispatchSnapshot;
 import de.br.aff.utils.TestUtils;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,6 +24,10 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
@@ -23,6 +37,24 @@ public class CarServiceTest
     @MockBean
     private CarRepository carRepository;
 
+    @MockBean
+    private BulkInsertRepository bulkInsertRepository;
+
+    @MockBean
+    private FleetCache fleetCache;
+
+    @MockBean
+    private DispatchCandidateIndex dispatchCandidateIndex;
+
+    @MockBean
+    private CarSearchIndex carSearchIndex;
+
+    @MockBean
+    private DispatchSnapshot dispatchSnapshot;
+
+    @MockBean
+    private DriverStateStore driverStateStore;
+
     @Autowired
     private CarService carService;
 
@@ -36,6 +68,30 @@ public class CarServiceTest
     }
 
 
+    @Test
+    public void thatBulkCreateRejectsTakenAndRepeatedLicensePlates() throws ConstraintsViolationException
+    {
+        List<CarDO> cars = Arrays.asList(
+            new CarDO("NEW-1", 4, false, 3, EngineType.GAS, "VW", "Golf"),
+            new CarDO("TAKEN", 4, false, 3, EngineType.GAS, "VW", "Golf"),
+            new CarDO("NEW-1", 4, false, 3, EngineType.GAS, "VW", "Golf"));
+        when(carRepository.findLicensePlatesIn(Arrays.asList("NEW-1", "TAKEN", "NEW-1"))).thenReturn(Collections.singletonList("TAKEN"));
+        doAnswer(invocation -> {
+            List<CarDO> inserted = invocation.getArgument(0);
+            inserted.forEach(car -> car.setId(10L));
+            return null;
+        }).when(bulkInsertRepository).insertAll(anyList());
+
+        List<BulkResultDTO> results = carService.createAll(cars);
+
+        verify(bulkInsertRepository, times(1)).insertAll(Collections.singletonList(cars.get(0)));
+        assert results.size() == 3;
+        assert results.get(0).getId() == 10L && results.get(0).getError() == null;
+        assert results.get(1).getId() == null && results.get(1).getError() != null;
+        assert results.get(2).getId() == null && results.get(2).getError() != null;
+    }
+
+
     @Test(expected = ConstraintsViolationException.class)
     public void thatWhenUpdatingLicensePlateHasToMatch() throws ConstraintsViolationException, EntityNotFoundException
     {
@@ -0,0 +1,98 @@
+package de.br.aff.service.dispatch;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class AuctionAssignmentTest
+{
+    private static final double EPSILON = 0.001;
+
+
+    @Test
+    public void thatTotalCostIsMinimizedInsteadOfServingFirstRequestBest()
+    {
+        int[][] candidates = {{0, 1}, {0, 1}};
+        double[][] costs = {{1, 2}, {1.1, 10}};
+
+        int[] assignment = AuctionAssignment.solve(candidates, costs, 2, 100, EPSILON);
+
+        assert assignment[0] == 1;
+        assert assignment[1] == 0;
+    }
+
+
+    @Test
+    public void thatRequestsWithoutDriverStayUnassigned()
+    {
+        int[][] candidates = {{0}, {0}, {}};
+        double[][] costs = {{1}, {2}, {}};
+
+        int[] assignment = AuctionAssignment.solve(candidates, costs, 1, 100, EPSILON);
+
+        assert assignment[0] == 0;
+        assert assignment[1] == AuctionAssignment.UNASSIGNED;
+        assert assignment[2] == AuctionAssignment.UNASSIGNED;
+    }
+
+
+    @Test
+    public void thatAssignmentIsCloseToOptimum()
+    {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++)
+        {
+            int requests = 1 + random.nextInt(6);
+            int drivers = 1 + random.nextInt(6);
+            int[][] candidates = new int[requests][drivers];
+            double[][] costs = new double[requests][drivers];
+            for (int request = 0; request < requests; request++)
+            {
+                for (int driver = 0; driver < drivers; driver++)
+                {
+                    candidates[request][driver] = driver;
+                    costs[request][driver] = random.nextDouble() * 5;
+                }
+            }
+
+            int[] assignment = AuctionAssignment.solve(candidates, costs, drivers, 100, EPSILON);
+
+            double cost = 0;
+            boolean[] taken = new boolean[drivers];
+            for (int request = 0; request < requests; request++)
+            {
+                assert assignment[request] != AuctionAssignment.UNASSIGNED || requests > drivers;
+                if (assignment[request] != AuctionAssignment.UNASSIGNED)
+                {
+                    assert !taken[assignment[request]];
+                    taken[assignment[request]] = true;
+                    cost += costs[request][assignment[request]];
+                }
+                else
+                {
+                    cost += 100;
+                }
+            }
+            assert cost <= optimum(costs, 0, new boolean[drivers], 100) + requests * EPSILON;
+        }
+    }
+
+
+    private static double optimum(double[][] costs, int request, boolean[] taken, double unassignedCost)
+    {
+        if (request == costs.length)
+        {
+            return 0;
+        }
+        double best = unassignedCost + optimum(costs, request + 1, taken, unassignedCost);
+        for (int driver = 0; driver < taken.length; driver++)
+        {
+            if (!taken[driver])
+            {
+                taken[driver] = true;
+                best = Math.min(best, costs[request][driver] + optimum(costs, request + 1, taken, unassignedCost));
+                taken[driver] = false;
+            }
+        }
+        return best;
+    }
+}
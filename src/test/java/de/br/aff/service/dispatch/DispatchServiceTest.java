@@ -0,0 +1,259 @@
+package de.br.aff.service.dispatch;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.RideAssignment;
+import de.br.aff.domainvalue.RideRequirements;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.exception.NoDriverAvailableException;
+import de.br.aff.service.location.DriverLocationIndex;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DispatchServiceTest
+{
+    private static final GeoCoordinate PICKUP = new GeoCoordinate(52.52, 13.405);
+
+    private final DriverLocationIndex driverLocationIndex = new DriverLocationIndex(0.01);
+
+    private final DispatchCandidateIndex dispatchCandidateIndex = new DispatchCandidateIndex();
+
+    private final BatchAssignmentSolver batchAssignmentSolver = new BatchAssignmentSolver(driverLocationIndex, dispatchCandidateIndex, 0.05, 3, 16, 2);
+
+    private final DispatchService dispatchService = new DefaultDispatchService(driverLocationIndex, dispatchCandidateIndex, batchAssignmentSolver,
+        DefaultDispatchService.Mode.IMMEDIATE, 1000, 25, 200);
+
+    private final DefaultDispatchService batchDispatchService = new DefaultDispatchService(driverLocationIndex, dispatchCandidateIndex, batchAssignmentSolver,
+        DefaultDispatchService.Mode.BATCH, 1000, 25, 200);
+
+
+    @Test
+    public void thatNearestMatchingDriverIsAssigned() throws NoDriverAvailableException
+    {
+        addDriver(1, 52.53, 13.405, car(11, 90, 4, EngineType.DIESEL, false));
+        addDriver(2, 52.521, 13.405, car(12, 40, 4, EngineType.DIESEL, false));
+        addDriver(3, 52.525, 13.405, car(13, 80, 7, EngineType.ELECTRIC, true));
+
+        RideAssignment ride = dispatchService.request(PICKUP, RideRequirements.builder().minRating(50).build());
+
+        assert ride.getDriverId() == 3;
+        assert ride.getCarId() == 13;
+        assert ride.getDistanceKm() > 0.5 && ride.getDistanceKm() < 0.6;
+    }
+
+
+    @Test
+    public void thatCarRequirementsAreApplied() throws NoDriverAvailableException
+    {
+        addDriver(1, 52.521, 13.405, car(11, 90, 4, EngineType.DIESEL, false));
+        addDriver(2, 52.53, 13.405, car(12, 90, 7, EngineType.ELECTRIC, true));
+
+        RideAssignment ride = dispatchService.request(PICKUP, RideRequirements.builder().minSeatCount(5).engineType(EngineType.ELECTRIC).convertible(true).build());
+
+        assert ride.getDriverId() == 2;
+    }
+
+
+    @Test(expected = NoDriverAvailableException.class)
+    public void thatReservedDriverIsNotAssignedTwice() throws NoDriverAvailableException
+    {
+        addDriver(1, 52.521, 13.405, car(11, 90, 4, EngineType.DIESEL, false));
+
+        dispatchService.request(PICKUP, RideRequirements.NONE);
+        dispatchService.request(PICKUP, RideRequirements.NONE);
+    }
+
+
+    @Test(expected = NoDriverAvailableException.class)
+    public void thatDriverWithoutCarIsNotAssigned() throws NoDriverAvailableException
+    {
+        driverLocationIndex.update(1, 52.521, 13.405);
+        dispatchCandidateIndex.update(1, null);
+
+        dispatchService.request(PICKUP, RideRequirements.NONE);
+    }
+
+
+    @Test
+    public void thatFreeDriverBeyondManyReservedDriversIsFound() throws NoDriverAvailableException
+    {
+        for (int i = 1; i <= 300; i++)
+        {
+            addDriver(i, 52.52 + i * 0.00001, 13.405, car(1000 + i, 50, 4, EngineType.GAS, false));
+            assert dispatchCandidateIndex.reserve(i, -i);
+        }
+        addDriver(999, 52.5335, 13.405, car(1999, 50, 4, EngineType.GAS, false));
+
+        assert dispatchService.request(PICKUP, RideRequirements.NONE).getDriverId() == 999;
+    }
+
+
+    @Test
+    public void thatDriverBeyondManyNonMatchingCarsIsFound() throws NoDriverAvailableException
+    {
+        for (int i = 1; i <= 300; i++)
+        {
+            addDriver(i, 52.52 + i * 0.00001, 13.405, car(1000 + i, 50, 4, EngineType.GAS, false));
+        }
+        addDriver(999, 52.5335, 13.405, car(1999, 50, 4, EngineType.GAS, true));
+
+        assert dispatchService.request(PICKUP, RideRequirements.builder().convertible(true).build()).getDriverId() == 999;
+    }
+
+
+    @Test
+    public void thatCompletedRideReleasesDriver() throws NoDriverAvailableException, EntityNotFoundException
+    {
+        addDriver(1, 52.521, 13.405, car(11, 90, 4, EngineType.DIESEL, false));
+
+        RideAssignment ride = dispatchService.request(PICKUP, RideRequirements.NONE);
+        assert dispatchService.find(ride.getRideId()).equals(ride);
+
+        dispatchService.complete(ride.getRideId());
+
+        assert !dispatchCandidateIndex.isReserved(1);
+        assert dispatchService.request(PICKUP, RideRequirements.NONE).getDriverId() == 1;
+    }
+
+
+    @Test
+    public void thatChangedCarAttributesAreUsedForMatching() throws NoDriverAvailableException
+    {
+        CarDO car = car(11, 10, 4, EngineType.DIESEL, false);
+        addDriver(1, 52.521, 13.405, car);
+
+        car.setRating(95);
+        dispatchCandidateIndex.updateCar(car);
+
+        assert dispatchService.request(PICKUP, RideRequirements.builder().minRating(90).build()).getDriverId() == 1;
+    }
+
+
+    @Test
+    public void thatConcurrentRequestsNeverShareADriver() throws Exception
+    {
+        int drivers = 50;
+        for (int i = 1; i <= drivers; i++)
+        {
+            addDriver(i, 52.52 + i * 0.001, 13.405, car(1000 + i, 50, 4, EngineType.GAS, false));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Callable<Long>> requests = new ArrayList<>();
+            for (int i = 0; i < drivers * 2; i++)
+            {
+                requests.add(() -> {
+                    try
+                    {
+                        return dispatchService.request(PICKUP, RideRequirements.NONE).getDriverId();
+                    }
+                    catch (NoDriverAvailableException e)
+                    {
+                        return null;
+                    }
+                });
+            }
+
+            Set<Long> assignedDrivers = new HashSet<>();
+            int matches = 0;
+            for (Future<Long> result : executor.invokeAll(requests))
+            {
+                Long driverId = result.get();
+                if (driverId != null)
+                {
+                    matches++;
+                    assignedDrivers.add(driverId);
+                }
+            }
+
+            assert matches == drivers;
+            assert assignedDrivers.size() == drivers;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void thatBatchMinimizesTotalPickupDistance() throws Exception
+    {
+        // greedy matching would give the first request driver 1 and send driver 2 far away to the second request
+        addDriver(1, 52.516, 13.405, car(11, 50, 4, EngineType.GAS, false));
+        addDriver(2, 52.527, 13.405, car(12, 50, 4, EngineType.GAS, false));
+
+        CompletableFuture<RideAssignment> first = batchDispatchService.submit(PICKUP, RideRequirements.NONE);
+        CompletableFuture<RideAssignment> second = batchDispatchService.submit(new GeoCoordinate(52.51, 13.405), RideRequirements.NONE);
+        assert !first.isDone();
+
+        assert batchDispatchService.dispatchBatch() == 2;
+
+        assert first.get().getDriverId() == 2;
+        assert second.get().getDriverId() == 1;
+    }
+
+
+    @Test
+    public void thatBatchFallsBackToNearestDriverOutsideCandidateRadius() throws Exception
+    {
+        addDriver(1, 52.60, 13.405, car(11, 50, 4, EngineType.GAS, false));
+
+        CompletableFuture<RideAssignment> ride = batchDispatchService.submit(PICKUP, RideRequirements.NONE);
+        CompletableFuture<RideAssignment> unserved = batchDispatchService.submit(PICKUP, RideRequirements.NONE);
+
+        assert batchDispatchService.dispatchBatch() == 1;
+
+        assert ride.get().getDriverId() == 1;
+        assert unserved.isCompletedExceptionally();
+    }
+
+
+    @Test
+    public void thatFallbackDoesNotTakeDriverProposedForAnotherRequest() throws Exception
+    {
+        addDriver(1, 52.521, 13.405, car(11, 50, 4, EngineType.GAS, false));
+        addDriver(2, 52.53, 13.405, car(12, 50, 4, EngineType.GAS, false));
+        BatchAssignmentSolver solver = mock(BatchAssignmentSolver.class);
+        when(solver.solve(any())).thenReturn(new Long[] {null, 1L});
+        DefaultDispatchService service = new DefaultDispatchService(driverLocationIndex, dispatchCandidateIndex, solver,
+            DefaultDispatchService.Mode.BATCH, 1000, 25, 200);
+
+        CompletableFuture<RideAssignment> unproposed = service.submit(PICKUP, RideRequirements.NONE);
+        CompletableFuture<RideAssignment> proposed = service.submit(PICKUP, RideRequirements.NONE);
+
+        assert service.dispatchBatch() == 2;
+
+        assert proposed.get().getDriverId() == 1;
+        assert unproposed.get().getDriverId() == 2;
+    }
+
+
+    private void addDriver(long driverId, double latitude, double longitude, CarDO car)
+    {
+        driverLocationIndex.update(driverId, latitude, longitude);
+        dispatchCandidateIndex.update(driverId, car);
+    }
+
+
+    private static CarDO car(long carId, int rating, int seatCount, EngineType engineType, boolean convertible)
+    {
+        return new CarDO(carId, ZonedDateTime.now(), "P-" + carId, seatCount, convertible, rating, engineType, "VW", "Golf", null);
+    }
+}
@@ -0,0 +1,198 @@
+package de.br.aff.service.driver;
+
+import de.br.aff.controller.mapper.CarMapper;
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.CarSearchCriteria;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.exception.CarAlreadyInUseException;
+import de.br.aff.service.car.CarSearchIndex;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Lets many ONLINE drivers race for the same cars and checks that every car ends up with exactly one driver.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CarSelectionConcurrencyTest
+{
+    private static final int CARS = 20;
+    private static final int DRIVERS_PER_CAR = 16;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private CarSearchIndex carSearchIndex;
+
+
+    @Before
+    public void init()
+    {
+        driverRepository.deleteAll();
+        carRepository.deleteAll();
+    }
+
+
+    @Test
+    public void thatContendedCarIsAssignedExactlyOnce() throws Exception
+    {
+        List<CarDO> cars = new ArrayList<>();
+        List<DriverDO> drivers = new ArrayList<>();
+        for (int car = 0; car < CARS; car++)
+        {
+            cars.add(carRepository.save(new CarDO("RACE-" + car, 4, false, 5, EngineType.ELECTRIC, "Tesla", "3")));
+            for (int driver = 0; driver < DRIVERS_PER_CAR; driver++)
+            {
+                DriverDO onlineDriver = new DriverDO("racer-" + car + "-" + driver, "pw", null);
+                onlineDriver.setOnlineStatus(OnlineStatus.ONLINE);
+                drivers.add(driverRepository.save(onlineDriver));
+            }
+        }
+
+        AtomicInteger selected = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> attempts = new ArrayList<>();
+
+        for (int i = 0; i < drivers.size(); i++)
+        {
+            long driverId = drivers.get(i).getId();
+            long carId = cars.get(i % CARS).getId();
+            attempts.add(executor.submit(() -> {
+                start.await();
+                try
+                {
+                    driverService.selectCar(driverId, carId);
+                    selected.incrementAndGet();
+                }
+                catch (CarAlreadyInUseException e)
+                {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> attempt : attempts)
+        {
+            attempt.get(1, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        log.info("{} selections on {} cars with {} threads: {} selected, {} rejected, {} selections/s",
+            drivers.size(), CARS, THREADS, selected.get(), rejected.get(), (long) (drivers.size() / (elapsedNanos / 1e9)));
+
+        assert selected.get() == CARS;
+        assert rejected.get() == drivers.size() - CARS;
+
+        for (CarDO car : cars)
+        {
+            long driversOfCar = StreamSupport.stream(driverRepository.findAll().spliterator(), false)
+                .filter(driver -> driver.getCar() != null && driver.getCar().getId().equals(car.getId()))
+                .count();
+            assert driversOfCar == 1;
+        }
+    }
+
+
+    @Test
+    public void thatSearchIndexFollowsConcurrentSelectionsOfTheSameDriver() throws Exception
+    {
+        List<CarDO> cars = new ArrayList<>();
+        for (int car = 0; car < 8; car++)
+        {
+            cars.add(carRepository.save(new CarDO("SWITCH-" + car, 4, false, 5, EngineType.ELECTRIC, "Tesla", "3")));
+        }
+        List<Long> driverIds = new ArrayList<>();
+        for (int driver = 0; driver < 4; driver++)
+        {
+            DriverDO onlineDriver = new DriverDO("switcher-" + driver, "pw", null);
+            onlineDriver.setOnlineStatus(OnlineStatus.ONLINE);
+            driverIds.add(driverRepository.save(onlineDriver).getId());
+        }
+        carSearchIndex.rebuild(cars.stream().map(CarMapper::makeCarDTO).collect(Collectors.toList()), Collections.emptyList());
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> attempts = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++)
+        {
+            long driverId = driverIds.get(thread % driverIds.size());
+            Random random = new Random(thread);
+            attempts.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 40; i++)
+                {
+                    try
+                    {
+                        if (random.nextInt(4) == 0)
+                        {
+                            driverService.deselectCar(driverId);
+                        }
+                        else
+                        {
+                            driverService.selectCar(driverId, cars.get(random.nextInt(cars.size())).getId());
+                        }
+                    }
+                    catch (CarAlreadyInUseException e)
+                    {
+                        // another driver has the car
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> attempt : attempts)
+        {
+            attempt.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        Set<Long> carIdsWithDriver = StreamSupport.stream(driverRepository.findAll().spliterator(), false)
+            .filter(driver -> driver.getCar() != null)
+            .map(driver -> driver.getCar().getId())
+            .collect(Collectors.toSet());
+        Set<Long> indexedCarIdsWithDriver = carSearchIndex.search(CarSearchCriteria.builder().withDriver(true).build(), Long.MIN_VALUE, 100)
+            .stream()
+            .map(CarDTO::getId)
+            .collect(Collectors.toSet());
+        assert indexedCarIdsWithDriver.equals(carIdsWithDriver) : indexedCarIdsWithDriver + " indexed, " + carIdsWithDriver + " in the database";
+    }
+}
@@ -0,0 +1,162 @@
+package de.br.aff.service.driver;
+
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.DriverChangeFilter;
+import de.br.aff.domainvalue.DriverPosition;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class DriverChangeBroadcasterTest
+{
+    private final List<Runnable> sends = new ArrayList<>();
+    private final DriverChangeBroadcaster broadcaster = new DriverChangeBroadcaster(2, 60_000, senders());
+
+
+    @Test
+    public void thatOnlyMatchingChangesAreSent()
+    {
+        broadcaster.subscribe(DriverChangeFilter.builder()
+            .minLatitude(48.0).maxLatitude(49.0).minLongitude(11.0).maxLongitude(12.0)
+            .onlineStatuses(Collections.singleton(OnlineStatus.ONLINE))
+            .build());
+
+        broadcaster.publish(driver(1L, OnlineStatus.OFFLINE, new GeoCoordinate(48.1, 11.5)));
+        broadcaster.publish(driver(2L, OnlineStatus.ONLINE, new GeoCoordinate(53.5, 10.0)));
+        broadcaster.publishPosition(new DriverPosition(3L, 48.1, 11.5, 100), null);
+        assert sends.isEmpty();
+
+        broadcaster.publishPosition(new DriverPosition(4L, 48.1, 11.5, 100), OnlineStatus.ONLINE);
+        assert sends.size() == 1;
+    }
+
+
+    @Test
+    public void thatDriverLeavingTheFilterIsSentOnce()
+    {
+        broadcaster.subscribe(DriverChangeFilter.builder()
+            .minLatitude(48.0).maxLatitude(49.0).minLongitude(11.0).maxLongitude(12.0)
+            .onlineStatuses(Collections.singleton(OnlineStatus.ONLINE))
+            .build());
+
+        assert sent(() -> broadcaster.publish(driver(1L, OnlineStatus.ONLINE, new GeoCoordinate(48.1, 11.5))));
+        assert sent(() -> broadcaster.publish(driver(1L, OnlineStatus.OFFLINE, new GeoCoordinate(48.1, 11.5))));
+        assert !sent(() -> broadcaster.publish(driver(1L, OnlineStatus.OFFLINE, new GeoCoordinate(48.2, 11.5))));
+
+        assert sent(() -> broadcaster.publishPosition(new DriverPosition(2L, 48.1, 11.5, 100), OnlineStatus.ONLINE));
+        assert sent(() -> broadcaster.publishPosition(new DriverPosition(2L, 53.5, 10.0, 200), OnlineStatus.ONLINE));
+        assert !sent(() -> broadcaster.publishPosition(new DriverPosition(2L, 53.6, 10.0, 300), OnlineStatus.ONLINE));
+
+        DriverDO deleted = driver(3L, OnlineStatus.ONLINE, new GeoCoordinate(48.1, 11.5));
+        assert sent(() -> broadcaster.publish(deleted));
+        deleted.setDeleted(true);
+        assert sent(() -> broadcaster.publish(deleted));
+        assert !sent(() -> broadcaster.publishPosition(new DriverPosition(4L, 53.5, 10.0, 100), OnlineStatus.ONLINE));
+    }
+
+
+    @Test
+    public void thatPingWithoutStatusKeepsTheLastStatus()
+    {
+        broadcaster.subscribe(DriverChangeFilter.builder()
+            .minLatitude(48.0).maxLatitude(49.0).minLongitude(11.0).maxLongitude(12.0)
+            .onlineStatuses(Collections.singleton(OnlineStatus.ONLINE))
+            .build());
+
+        assert sent(() -> broadcaster.publish(driver(1L, OnlineStatus.ONLINE, new GeoCoordinate(48.1, 11.5))));
+        assert sent(() -> broadcaster.publishPosition(new DriverPosition(1L, 48.2, 11.5, 100), null));
+        assert sent(() -> broadcaster.publishPosition(new DriverPosition(1L, 48.3, 11.5, 200), OnlineStatus.ONLINE));
+        assert sent(() -> broadcaster.publishPosition(new DriverPosition(1L, 53.5, 10.0, 300), null));
+        assert !sent(() -> broadcaster.publishPosition(new DriverPosition(1L, 48.1, 11.5, 400), null));
+    }
+
+
+    @Test
+    public void thatQueuedChangesAreSentByOneTask()
+    {
+        broadcaster.subscribe(DriverChangeFilter.NONE);
+
+        broadcaster.publish(driver(1L, OnlineStatus.ONLINE, null));
+        broadcaster.publish(driver(2L, OnlineStatus.ONLINE, null));
+        assert sends.size() == 1;
+
+        runSends();
+        broadcaster.publish(driver(3L, OnlineStatus.ONLINE, null));
+        assert sends.size() == 1;
+        assert broadcaster.subscriberCount() == 1;
+    }
+
+
+    @Test
+    public void thatSubscriberThatFallsBehindIsEvicted()
+    {
+        broadcaster.subscribe(DriverChangeFilter.NONE);
+        broadcaster.subscribe(DriverChangeFilter.builder().onlineStatuses(Collections.singleton(OnlineStatus.OFFLINE)).build());
+
+        for (long driverId = 1; driverId <= 3; driverId++)
+        {
+            broadcaster.publish(driver(driverId, OnlineStatus.ONLINE, null));
+        }
+
+        assert broadcaster.subscriberCount() == 1;
+        runSends();
+        broadcaster.publish(driver(4L, OnlineStatus.ONLINE, null));
+        assert sends.isEmpty();
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatIncompleteBoundingBoxIsRejected()
+    {
+        broadcaster.subscribe(DriverChangeFilter.builder().minLatitude(48.0).maxLatitude(49.0).build());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatInvertedBoundingBoxIsRejected()
+    {
+        broadcaster.subscribe(DriverChangeFilter.builder().minLatitude(49.0).maxLatitude(48.0).minLongitude(11.0).maxLongitude(12.0).build());
+    }
+
+
+    private ExecutorService senders()
+    {
+        ExecutorService senders = mock(ExecutorService.class);
+        doAnswer(invocation -> sends.add(invocation.getArgument(0))).when(senders).execute(any());
+        return senders;
+    }
+
+
+    private boolean sent(Runnable publish)
+    {
+        publish.run();
+        boolean sent = !sends.isEmpty();
+        runSends();
+        return sent;
+    }
+
+
+    private void runSends()
+    {
+        List<Runnable> pending = new ArrayList<>(sends);
+        sends.clear();
+        pending.forEach(Runnable::run);
+    }
+
+
+    private static DriverDO driver(long driverId, OnlineStatus onlineStatus, GeoCoordinate coordinate)
+    {
+        DriverDO driver = new DriverDO("changed" + driverId, "pw", coordinate);
+        driver.setId(driverId);
+        driver.setOnlineStatus(onlineStatus);
+        return driver;
+    }
+}
@@ -0,0 +1,116 @@
+package de.br.aff.service.driver;
+
+import de.br.aff.controller.mapper.DriverMapper;
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.exception.EntityNotFoundException;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Counts the SQL statements issued by driver searches, so that loading a driver with its car never falls back to one
+ * select per row.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class DriverQueryCountTest
+{
+    private static final int DRIVERS_WITH_CAR = 10;
+    private static final int RATING = 42;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private DriverQueryService driverQueryService;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+
+    @Before
+    public void init()
+    {
+        driverRepository.deleteAll();
+        carRepository.deleteAll();
+
+        for (int i = 0; i < DRIVERS_WITH_CAR; i++)
+        {
+            CarDO car = carRepository.save(new CarDO("COUNT-" + i, 4, false, RATING, EngineType.GAS, "VW", "Golf"));
+            DriverDO driver = driverRepository.save(new DriverDO("counted-" + i, "pw", null));
+            driver.setCar(car);
+            driverRepository.save(driver);
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+
+    @Test
+    public void thatSearchingByCarRatingIssuesSingleStatement()
+    {
+        List<DriverDTO> drivers = DriverMapper.makeDriverDTOList(driverService.findByCarRating(RATING));
+
+        assert drivers.size() == DRIVERS_WITH_CAR;
+        assert drivers.stream().allMatch(driver -> driver.getCarId() != null);
+        assert statistics.getPrepareStatementCount() == 1 : "statements: " + statistics.getPrepareStatementCount();
+    }
+
+
+    @Test
+    public void thatListingDriversIssuesSingleStatement()
+    {
+        driverRepository.save(new DriverDO("without-car", "pw", null));
+        statistics.clear();
+
+        List<DriverDTO> drivers = DriverMapper.makeDriverDTOList(driverService.find(null, null));
+
+        assert drivers.size() == DRIVERS_WITH_CAR + 1;
+        assert statistics.getPrepareStatementCount() == 1 : "statements: " + statistics.getPrepareStatementCount();
+    }
+
+
+    @Test
+    public void thatSearchingByLicensePlateIssuesSingleStatement() throws EntityNotFoundException
+    {
+        DriverDTO driver = DriverMapper.makeDriverDTO(driverService.findByLicensePlate("COUNT-3"));
+
+        assert driver.getUsername().equals("counted-3");
+        assert statistics.getPrepareStatementCount() == 1 : "statements: " + statistics.getPrepareStatementCount();
+    }
+
+
+    @Test
+    public void thatProjectedSearchesDoNotLoadEntities() throws EntityNotFoundException
+    {
+        List<DriverDTO> drivers = driverQueryService.findByCarRating(RATING);
+        DriverDTO driver = driverQueryService.findByLicensePlate("COUNT-3");
+
+        assert drivers.size() == DRIVERS_WITH_CAR;
+        assert drivers.stream().allMatch(projected -> projected.getCarId() != null);
+        assert driver.getUsername().equals("counted-3");
+        assert statistics.getPrepareStatementCount() == 2 : "statements: " + statistics.getPrepareStatementCount();
+        assert statistics.getEntityLoadCount() == 0 : "entities: " + statistics.getEntityLoadCount();
+    }
+}
@@ -0,0 +1,243 @@
+package de.br.aff.service.driver;
+
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.DriverDTO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.journal.DriverJournal;
+import de.br.aff.service.journal.DriverState;
+import de.br.aff.service.location.DriverLocationIndex;
+import de.br.aff.utils.TestUtils;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.ObjDoubleConsumer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {DefaultDriverQueryService.class, FleetCache.class})
+public class DriverQueryServiceTest
+{
+    @MockBean
+    private DriverRepository driverRepository;
+
+    @MockBean
+    private CarRepository carRepository;
+
+    @MockBean
+    private DriverLocationIndex driverLocationIndex;
+
+    @MockBean
+    private DispatchCandidateIndex dispatchCandidateIndex;
+
+    @MockBean
+    private DriverJournal driverJournal;
+
+    @MockBean
+    private DriverStateStore driverStateStore;
+
+    @Autowired
+    private DriverQueryService driverQueryService;
+
+    @Autowired
+    private FleetCache fleetCache;
+
+
+    @Before
+    public void init()
+    {
+        fleetCache.evictAll();
+    }
+
+
+    @Test(expected = EntityNotFoundException.class)
+    public void thatFindingUnknownDriverThrowsEntityNotFound() throws EntityNotFoundException
+    {
+        when(driverRepository.findDTOById(1L)).thenReturn(Optional.empty());
+
+        driverQueryService.find(1L);
+    }
+
+
+    @Test
+    public void thatDriverIsLoadedOnlyOnceUntilItIsEvicted() throws EntityNotFoundException
+    {
+        DriverDO driver = TestUtils.newOnlineDriver();
+        driver.setId(7L);
+        driver.setCar(TestUtils.TEST_CAR);
+        when(driverRepository.findDTOById(7L)).thenReturn(Optional.of(DriverDTO.builder().id(7L).build()));
+
+        driverQueryService.find(7L);
+        driverQueryService.find(7L);
+        verify(driverRepository, times(1)).findDTOById(7L);
+
+        fleetCache.evictDriver(driver);
+        driverQueryService.find(7L);
+        verify(driverRepository, times(2)).findDTOById(7L);
+    }
+
+
+    @Test
+    public void thatJournaledCarIsShownBeforeItIsWritten() throws EntityNotFoundException
+    {
+        DriverDO journaledDriver = TestUtils.newOnlineDriver();
+        journaledDriver.setId(8L);
+        journaledDriver.setCar(TestUtils.TEST_CAR);
+        when(driverJournal.pendingState(8L)).thenReturn(Optional.of(DriverState.of(journaledDriver)));
+        when(driverRepository.findDTOById(8L)).thenReturn(Optional.of(DriverDTO.builder().id(8L).username("xyz").build()));
+
+        DriverDTO driver = driverQueryService.find(8L);
+
+        assert driver.getCarId().equals(TestUtils.TEST_CAR.getId());
+        assert driver.getUsername().equals("xyz");
+    }
+
+
+    @Test
+    public void thatSearchingByUsernameAndOnlineStatusWorks()
+    {
+        driverQueryService.find("username", OnlineStatus.OFFLINE);
+
+        verify(driverRepository, times(1)).findDTOsByUsernameAndOnlineStatus("username", OnlineStatus.OFFLINE);
+    }
+
+
+    @Test
+    public void thatFindingAllDriversWorks()
+    {
+        driverQueryService.find(null, null);
+
+        verify(driverRepository, times(1)).findDTOs();
+    }
+
+
+    @Test
+    public void thatFirstPageStartsAtTheLowestId()
+    {
+        driverQueryService.findAll(null, 20);
+
+        verify(driverRepository, times(1)).findDTOsByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 20));
+    }
+
+
+    @Test
+    public void thatDriverIsFoundByLicensePlateOfItsCar() throws EntityNotFoundException
+    {
+        DriverDTO driver = DriverDTO.builder().id(1L).username("driver").carId(2L).build();
+        when(driverRepository.findDTOByCarLicensePlate("123")).thenReturn(Optional.of(driver));
+
+        assert driverQueryService.findByLicensePlate("123") == driver;
+        assert driverQueryService.findByLicensePlate("123") == driver;
+        verify(driverRepository, times(1)).findDTOByCarLicensePlate("123");
+        verify(carRepository, never()).existsByLicensePlate(anyString());
+    }
+
+
+    @Test(expected = EntityNotFoundException.class)
+    public void thatSearchingDriverByLicensePlateOfUnexistingCarThrowsException() throws EntityNotFoundException
+    {
+        when(driverRepository.findDTOByCarLicensePlate("123")).thenReturn(Optional.empty());
+        when(carRepository.existsByLicensePlate("123")).thenReturn(false);
+
+        driverQueryService.findByLicensePlate("123");
+    }
+
+
+    @Test(expected = EntityNotFoundException.class)
+    public void thatExceptionIsThrownIfCarHasNoDriverWhenSearchedByLicensePlate() throws EntityNotFoundException
+    {
+        when(driverRepository.findDTOByCarLicensePlate("123")).thenReturn(Optional.empty());
+        when(carRepository.existsByLicensePlate("123")).thenReturn(true);
+
+        driverQueryService.findByLicensePlate("123");
+    }
+
+
+    @Test
+    public void thatNearbyDriversKeepTheOrderOfTheIndex()
+    {
+        when(driverLocationIndex.findNearest(52.52, 13.405, 2, 3)).thenReturn(Arrays.asList(3L, 1L, 2L));
+        when(driverRepository.findDTOsByIdInAndOnlineStatus(Arrays.asList(3L, 1L, 2L), OnlineStatus.ONLINE))
+            .thenReturn(Arrays.asList(DriverDTO.builder().id(1L).build(), DriverDTO.builder().id(3L).build()));
+
+        List<DriverDTO> drivers = driverQueryService.findNearby(new GeoCoordinate(52.52, 13.405), 2, 3);
+
+        assert drivers.size() == 2;
+        assert drivers.get(0).getId() == 3L;
+        assert drivers.get(1).getId() == 1L;
+    }
+
+
+    @Test
+    public void thatTopRatedNearbyDriversAreBestRatedFirstAndNearestAmongEquals()
+    {
+        doAnswer(invocation -> {
+            ObjDoubleConsumer<Long> consumer = invocation.getArgument(3);
+            consumer.accept(1L, 0.5);
+            consumer.accept(2L, 1.5);
+            consumer.accept(3L, 1.0);
+            consumer.accept(4L, 0.1);
+            consumer.accept(5L, 0.2);
+            return null;
+        }).when(driverLocationIndex).forEachWithin(eq(52.52), eq(13.405), eq(2.0), any());
+        when(dispatchCandidateIndex.availableCarRating(1L)).thenReturn(OptionalInt.of(3));
+        when(dispatchCandidateIndex.availableCarRating(2L)).thenReturn(OptionalInt.of(5));
+        when(dispatchCandidateIndex.availableCarRating(3L)).thenReturn(OptionalInt.of(5));
+        when(dispatchCandidateIndex.availableCarRating(4L)).thenReturn(OptionalInt.of(1));
+        when(dispatchCandidateIndex.availableCarRating(5L)).thenReturn(OptionalInt.empty());
+        when(driverStateStore.isOnline(any(Long.class))).thenReturn(true);
+        when(driverRepository.findDTOsByIdInAndOnlineStatus(Arrays.asList(3L, 2L), OnlineStatus.ONLINE))
+            .thenReturn(Arrays.asList(DriverDTO.builder().id(2L).build(), DriverDTO.builder().id(3L).build()));
+
+        List<DriverDTO> drivers = driverQueryService.findTopRatedNearby(new GeoCoordinate(52.52, 13.405), 2, 2, 2);
+
+        assert drivers.size() == 2;
+        assert drivers.get(0).getId() == 3L;
+        assert drivers.get(1).getId() == 2L;
+    }
+
+
+    @Test
+    public void thatDriversNotOnlineDoNotTakeTheirPlacesAmongTheTopRated()
+    {
+        doAnswer(invocation -> {
+            ObjDoubleConsumer<Long> consumer = invocation.getArgument(3);
+            consumer.accept(11L, 0.5);
+            consumer.accept(12L, 1.0);
+            return null;
+        }).when(driverLocationIndex).forEachWithin(eq(52.52), eq(13.405), eq(2.0), any());
+        when(dispatchCandidateIndex.availableCarRating(11L)).thenReturn(OptionalInt.of(5));
+        when(dispatchCandidateIndex.availableCarRating(12L)).thenReturn(OptionalInt.of(3));
+        when(driverStateStore.isOnline(11L)).thenReturn(false);
+        when(driverStateStore.isOnline(12L)).thenReturn(true);
+        when(driverRepository.findDTOsByIdInAndOnlineStatus(Arrays.asList(12L), OnlineStatus.ONLINE))
+            .thenReturn(Arrays.asList(DriverDTO.builder().id(12L).build()));
+
+        List<DriverDTO> drivers = driverQueryService.findTopRatedNearby(new GeoCoordinate(52.52, 13.405), 2, 1, 1);
+
+        assert drivers.size() == 1;
+        assert drivers.get(0).getId() == 12L;
+    }
+}
@@ -1,25 +1,42 @@
 package de.br.aff.service.driver;
 
+import de.br.aff.dataaccessobject.BulkInsertRepository;
 import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.datatransferobject.BulkResultDTO;
 import de.br.aff.domainobject.CarDO;
 import de.br.aff.domainobject.DriverDO;
 import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
 import de.br.aff.domainvalue.OnlineStatus;
 import de.br.aff.exception.CarAlreadyInUseException;
 import de.br.aff.exception.ConstraintsViolationException;
 import de.br.aff.exception.EntityNotFoundException;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.car.CarSearchIndex;
 import de.br.aff.service.car.CarService;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.journal.DriverJournal;
+import de.br.aff.service.journal.DriverState;
+import de.br.aff.service.location.DriverLocationIndex;
+import de.br.aff.service.snapshot.DispatchSnapshot;
 import de.br.aff.utils.TestUtils;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -35,6 +52,33 @@ public class DriverServiceTest
     @MockBean
     private CarService carService;
 
+    @MockBean
+    private DriverLocationIndex driverLocationIndex;
+
+    @MockBean
+    private BulkInsertRepository bulkInsertRepository;
+
+    @MockBean
+    private FleetCache fleetCache;
+
+    @MockBean
+    private DispatchCandidateIndex dispatchCandidateIndex;
+
+    @MockBean
+    private CarSearchIndex carSearchIndex;
+
+    @MockBean
+    private DriverChangeBroadcaster driverChangeBroadcaster;
+
+    @MockBean
+    private DriverJournal driverJournal;
+
+    @MockBean
+    private DispatchSnapshot dispatchSnapshot;
+
+    @MockBean
+    private DriverStateStore driverStateStore;
+
     @Autowired
     private DriverService driverService;
 
@@ -42,7 +86,7 @@ public class DriverServiceTest
     @Test(expected = EntityNotFoundException.class)
     public void thatDriverHasToExistWhenSelectingCar() throws EntityNotFoundException, ConstraintsViolationException, CarAlreadyInUseException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.empty());
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.empty());
         driverService.selectCar(1L, 1L);
     }
 
@@ -50,7 +94,7 @@ public class DriverServiceTest
     @Test(expected = EntityNotFoundException.class)
     public void thatDriverHasToExistWhenDeselectingCar() throws EntityNotFoundException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.empty());
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.empty());
         driverService.deselectCar(1L);
     }
 
@@ -59,7 +103,7 @@ public class DriverServiceTest
     public void thatCarWithProvidedCarIdHasToExist() throws ConstraintsViolationException, EntityNotFoundException, CarAlreadyInUseException
     {
 
-        when(driverRepository.findById(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
 
         when(carService.find(1L)).thenReturn(Optional.empty());
 
@@ -70,11 +114,11 @@ public class DriverServiceTest
     @Test
     public void thatIfDriverDoesntHaveCarSelectedNoIoOperationOccurs() throws EntityNotFoundException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
         driverService.deselectCar(1L);
 
         verify(driverRepository, never()).save(any(DriverDO.class));
-
+        verify(driverChangeBroadcaster, never()).publish(any(DriverDO.class));
     }
 
 
@@ -83,7 +127,7 @@ public class DriverServiceTest
     {
         DriverDO offlineDriver = new DriverDO("xyz", "zyx", null);
 
-        when(driverRepository.findById(1L)).thenReturn(Optional.of(offlineDriver));
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(offlineDriver));
 
         driverService.selectCar(1L, 10L);
 
@@ -94,7 +138,10 @@ public class DriverServiceTest
     @Test
     public void thatCarSelectionWorksProperly() throws EntityNotFoundException, ConstraintsViolationException, CarAlreadyInUseException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
+        DriverDO driver = TestUtils.newOnlineDriver();
+        driver.setId(1L);
+        driver.setCoordinate(new GeoCoordinate(52.52, 13.405));
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(driver));
 
         when(carService.find(10L)).thenReturn(Optional.of(TestUtils.TEST_CAR));
 
@@ -103,13 +150,28 @@ public class DriverServiceTest
         driverService.selectCar(1L, 10L);
 
         verify(driverRepository, times(1)).save(any(DriverDO.class));
+        verify(dispatchCandidateIndex).update(1L, TestUtils.TEST_CAR);
+        verify(driverChangeBroadcaster).publish(driver);
+    }
+
+
+    @Test(expected = CarAlreadyInUseException.class)
+    public void thatConcurrentlyTakenCarIsReportedAsAlreadyInUse() throws EntityNotFoundException, ConstraintsViolationException, CarAlreadyInUseException
+    {
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(TestUtils.newOnlineDriver()));
+
+        when(carService.find(10L)).thenReturn(Optional.of(TestUtils.TEST_CAR));
+
+        when(driverRepository.save(any(DriverDO.class))).thenThrow(new DataIntegrityViolationException("uc_car"));
+
+        driverService.selectCar(1L, 10L);
     }
 
 
     @Test(expected = CarAlreadyInUseException.class)
     public void thatExceptionIsThrownIfCarIsAlreadyTaken() throws ConstraintsViolationException, EntityNotFoundException, CarAlreadyInUseException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
 
         DriverDO driverPossessingCar = new DriverDO();
         driverPossessingCar.setId(2L);
@@ -127,7 +189,7 @@ public class DriverServiceTest
     @Test
     public void thatCarAreNotSelectedAgainIfTheyAreAlreadyTakenByThisDriver() throws EntityNotFoundException, ConstraintsViolationException, CarAlreadyInUseException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(TestUtils.VALID_ONLINE_DRIVER));
 
         DriverDO driverPossessingCar = new DriverDO();
         driverPossessingCar.setId(1L);
@@ -147,7 +209,7 @@ public class DriverServiceTest
     {
         driverService.find("username", null);
 
-        verify(driverRepository, times(1)).findByUsername("username");
+        verify(driverRepository, times(1)).findByUsernameAndDeletedFalse("username");
     }
 
 
@@ -156,7 +218,7 @@ public class DriverServiceTest
     {
         driverService.find(null, OnlineStatus.ONLINE);
 
-        verify(driverRepository, times(1)).findByOnlineStatus(OnlineStatus.ONLINE);
+        verify(driverRepository, times(1)).findByOnlineStatusAndDeletedFalse(OnlineStatus.ONLINE);
     }
 
 
@@ -165,7 +227,7 @@ public class DriverServiceTest
     {
         driverService.find("username", OnlineStatus.OFFLINE);
 
-        verify(driverRepository, times(1)).findByUsernameAndOnlineStatus("username", OnlineStatus.OFFLINE);
+        verify(driverRepository, times(1)).findByUsernameAndOnlineStatusAndDeletedFalse("username", OnlineStatus.OFFLINE);
     }
 
 
@@ -174,14 +236,32 @@ public class DriverServiceTest
     {
         driverService.find(null, null);
 
-        verify(driverRepository, times(1)).findAll();
+        verify(driverRepository, times(1)).findByDeletedFalse();
+    }
+
+
+    @Test
+    public void thatDriversArePagedByIdAfterTheGivenOne()
+    {
+        driverService.findAll(7L, 20);
+
+        verify(driverRepository, times(1)).findByIdGreaterThanAndDeletedFalseOrderByIdAsc(7L, PageRequest.of(0, 20));
+    }
+
+
+    @Test
+    public void thatFirstPageStartsAtTheLowestId()
+    {
+        driverService.findAll(null, 20);
+
+        verify(driverRepository, times(1)).findByIdGreaterThanAndDeletedFalseOrderByIdAsc(Long.MIN_VALUE, PageRequest.of(0, 20));
     }
 
 
     @Test(expected = EntityNotFoundException.class)
     public void thatDeleteDriverThrowsEntityNotFoundWhenDriverWithProvidedIdDoesntExist() throws EntityNotFoundException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.empty());
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.empty());
 
         driverService.delete(1L);
     }
@@ -190,12 +270,33 @@ public class DriverServiceTest
     @Test(expected = EntityNotFoundException.class)
     public void thatUpdateDriverPartiallyThrowsEntityNotFoundWhenDriverWithProvidedIdDoesntExist() throws EntityNotFoundException
     {
-        when(driverRepository.findById(1L)).thenReturn(Optional.empty());
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.empty());
 
         driverService.updatePartially(1L, null);
     }
 
 
+    @Test
+    public void thatSearchingByCarRatingIsDoneInTheDatabase()
+    {
+        driverService.findByCarRating(3);
+
+        verify(driverRepository, times(1)).findByCarRatingAndDeletedFalse(3);
+        verify(carService, never()).findByRating(3);
+    }
+
+
+    @Test
+    public void thatDriverIsFoundByLicensePlateOfItsCar() throws EntityNotFoundException
+    {
+        DriverDO driver = TestUtils.newOnlineDriver();
+        when(driverRepository.findByCarLicensePlateAndDeletedFalse("123")).thenReturn(Optional.of(driver));
+
+        assert driverService.findByLicensePlate("123") == driver;
+        verify(carService, never()).findByLicensePlate("123");
+    }
+
+
     @Test(expected = EntityNotFoundException.class)
     public void thatSearchingDriverByLicensePlateOfUnexistingCarThrowsException() throws EntityNotFoundException
     {
@@ -213,4 +314,74 @@ public class DriverServiceTest
         driverService.findByLicensePlate("123");
 
     }
+
+
+    @Test
+    public void thatBulkCreateRejectsTakenUsernames() throws ConstraintsViolationException
+    {
+        List<DriverDO> drivers = Arrays.asList(new DriverDO("new", "pw", null), new DriverDO("taken", "pw", null));
+        when(driverRepository.findUsernamesIn(Arrays.asList("new", "taken"))).thenReturn(Collections.singletonList("taken"));
+        doAnswer(invocation -> {
+            List<DriverDO> inserted = invocation.getArgument(0);
+            inserted.forEach(driver -> driver.setId(10L));
+            return null;
+        }).when(bulkInsertRepository).insertAll(anyList());
+
+        List<BulkResultDTO> results = driverService.createAll(drivers);
+
+        verify(bulkInsertRepository, times(1)).insertAll(Collections.singletonList(drivers.get(0)));
+        assert results.get(0).getId() == 10L;
+        assert results.get(1).getId() == null && results.get(1).getError() != null;
+    }
+
+
+    @Test
+    public void thatChangesAreJournaledInsteadOfSavedIfTheJournalIsEnabled() throws EntityNotFoundException
+    {
+        DriverDO driver = TestUtils.newOnlineDriver();
+        driver.setId(1L);
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(driver));
+        when(driverJournal.isEnabled()).thenReturn(true);
+
+        DriverDO newDriverData = new DriverDO();
+        newDriverData.setOnlineStatus(OnlineStatus.OFFLINE);
+        driverService.updatePartially(1L, newDriverData);
+
+        verify(driverJournal).append(DriverState.of(driver));
+        verify(driverRepository, never()).save(any(DriverDO.class));
+    }
+
+
+    @Test
+    public void thatJournaledStateIsReadBeforeItIsWritten() throws EntityNotFoundException
+    {
+        DriverDO journaledDriver = TestUtils.newOnlineDriver();
+        journaledDriver.setId(1L);
+        journaledDriver.setCoordinate(new GeoCoordinate(52.52, 13.405));
+        journaledDriver.setDateCoordinateUpdated(ZonedDateTime.now());
+        when(driverJournal.pendingState(1L)).thenReturn(Optional.of(DriverState.of(journaledDriver)));
+
+        DriverDO storedDriver = TestUtils.newOnlineDriver();
+        storedDriver.setId(1L);
+        storedDriver.setOnlineStatus(OnlineStatus.OFFLINE);
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(storedDriver));
+
+        DriverDO driver = driverService.find(1L);
+
+        assert driver.getOnlineStatus() == OnlineStatus.ONLINE;
+        assert driver.getCoordinate().equals(journaledDriver.getCoordinate());
+    }
+
+
+    @Test(expected = EntityNotFoundException.class)
+    public void thatJournaledDeleteHidesTheDriver() throws EntityNotFoundException
+    {
+        DriverDO deletedDriver = TestUtils.newOnlineDriver();
+        deletedDriver.setId(1L);
+        deletedDriver.setDeleted(true);
+        when(driverJournal.pendingState(1L)).thenReturn(Optional.of(DriverState.of(deletedDriver)));
+        when(driverRepository.findByIdAndDeletedFalse(1L)).thenReturn(Optional.of(TestUtils.newOnlineDriver()));
+
+        driverService.find(1L);
+    }
 }
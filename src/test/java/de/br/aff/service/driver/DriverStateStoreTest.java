@@ -0,0 +1,232 @@
+package de.br.aff.service.driver;
+
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class DriverStateStoreTest
+{
+    private final DriverStateStore store = new DriverStateStore(2);
+
+
+    @Test
+    public void thatDriverIsFoundWithItsCar()
+    {
+        DriverDO driver = driver(1L, OnlineStatus.ONLINE, car(10L, 4, 5));
+        driver.setCoordinate(new GeoCoordinate(52.5, 13.4));
+        driver.setDateCoordinateUpdated(ZonedDateTime.ofInstant(Instant.ofEpochMilli(1000), ZoneOffset.UTC));
+        store.put(driver);
+
+        DriverStateStore.Entry entry = store.find(1L).get();
+
+        assert entry.equals(new DriverStateStore.Entry(1L, OnlineStatus.ONLINE, 52.5, 13.4, 1000, 10L, 4, 5));
+        assert !store.find(2L).isPresent();
+    }
+
+
+    @Test
+    public void thatDriverWithoutCoordinateAndCarIsKept()
+    {
+        store.put(driver(1L, OnlineStatus.OFFLINE, null));
+
+        DriverStateStore.Entry entry = store.find(1L).get();
+
+        assert Double.isNaN(entry.getLatitude());
+        assert entry.getCarId() == null;
+        assert entry.getPositionUpdatedAt() == 0;
+    }
+
+
+    @Test
+    public void thatRemovedDriverIsReplacedByLastRow()
+    {
+        for (long id = 1; id <= 5; id++)
+        {
+            store.put(driver(id, OnlineStatus.ONLINE, car(id * 10, (int) id, 4)));
+        }
+
+        store.remove(2L);
+        store.remove(42L);
+
+        assert store.size() == 4;
+        assert !store.find(2L).isPresent();
+        for (long id : new long[] {1, 3, 4, 5})
+        {
+            assert store.find(id).get().getCarId() == id * 10;
+            assert store.find(id).get().getCarRating() == id;
+        }
+    }
+
+
+    @Test
+    public void thatDeletedDriverIsRemoved()
+    {
+        DriverDO driver = driver(1L, OnlineStatus.ONLINE, null);
+        store.put(driver);
+
+        driver.setDeleted(true);
+        store.put(driver);
+
+        assert store.size() == 0;
+    }
+
+
+    @Test
+    public void thatOlderPositionIsIgnored()
+    {
+        store.put(driver(1L, OnlineStatus.ONLINE, null));
+
+        assert store.updatePosition(1L, 1, 2, 200) == OnlineStatus.ONLINE;
+        store.updatePosition(1L, 3, 4, 100);
+        assert store.updatePosition(2L, 5, 6, 300) == null;
+
+        DriverStateStore.Entry entry = store.find(1L).get();
+        assert entry.getLatitude() == 1 && entry.getLongitude() == 2 && entry.getPositionUpdatedAt() == 200;
+        assert !store.find(2L).isPresent();
+    }
+
+
+    @Test
+    public void thatNewerPositionIsKeptWhenStateIsPut()
+    {
+        DriverDO driver = driver(1L, OnlineStatus.ONLINE, null);
+        driver.setCoordinate(new GeoCoordinate(52.5, 13.4));
+        driver.setDateCoordinateUpdated(ZonedDateTime.ofInstant(Instant.ofEpochMilli(1000), ZoneOffset.UTC));
+        store.put(driver);
+
+        store.updatePosition(1L, 48.1, 11.5, 2000);
+        driver.setOnlineStatus(OnlineStatus.OFFLINE);
+        store.put(driver);
+
+        DriverStateStore.Entry entry = store.find(1L).get();
+        assert entry.getOnlineStatus() == OnlineStatus.OFFLINE;
+        assert entry.getLatitude() == 48.1 && entry.getLongitude() == 11.5 && entry.getPositionUpdatedAt() == 2000;
+    }
+
+
+    @Test
+    public void thatReadersNeverSeeHalfWrittenPositions() throws InterruptedException
+    {
+        store.put(driver(1L, OnlineStatus.ONLINE, null));
+        store.updatePosition(1L, 0, 0, 0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            for (long timestamp = 1; running.get(); timestamp++)
+            {
+                store.updatePosition(1L, timestamp % 90, -(timestamp % 90), timestamp);
+            }
+        });
+        writer.start();
+        try
+        {
+            for (int i = 0; i < 200_000; i++)
+            {
+                DriverStateStore.Entry entry = store.find(1L).get();
+                if (entry.getLatitude() != -entry.getLongitude() || entry.getLatitude() != entry.getPositionUpdatedAt() % 90)
+                {
+                    torn.set(entry.toString());
+                }
+            }
+        }
+        finally
+        {
+            running.set(false);
+            writer.join();
+        }
+
+        assert torn.get() == null : torn.get();
+    }
+
+
+    @Test
+    public void thatCarChangesReachItsDriver()
+    {
+        CarDO car = car(10L, 3, 4);
+        store.put(driver(1L, OnlineStatus.ONLINE, car));
+        store.put(driver(2L, OnlineStatus.ONLINE, car(20L, 1, 2)));
+
+        car.setRating(5);
+        car.setSeatCount(7);
+        store.updateCar(car);
+        store.removeCar(20L);
+
+        assert store.find(1L).get().getCarRating() == 5;
+        assert store.find(1L).get().getSeatCount() == 7;
+        assert store.find(2L).get().getCarId() == null;
+    }
+
+
+    @Test
+    public void thatCarChangesFollowMovedRowsAndHandedOverCars()
+    {
+        CarDO car = car(30L, 3, 4);
+        store.put(driver(1L, OnlineStatus.ONLINE, car(10L, 1, 2)));
+        store.put(driver(2L, OnlineStatus.ONLINE, null));
+        store.put(driver(3L, OnlineStatus.ONLINE, car));
+        store.remove(1L);
+
+        car.setRating(5);
+        store.updateCar(car);
+        assert store.find(3L).get().getCarRating() == 5;
+
+        store.put(driver(2L, OnlineStatus.ONLINE, car));
+        store.put(driver(3L, OnlineStatus.ONLINE, null));
+        car.setRating(2);
+        store.updateCar(car);
+        store.updateCar(car(10L, 4, 4));
+        assert store.find(2L).get().getCarRating() == 2;
+        assert store.find(3L).get().getCarId() == null && store.find(3L).get().getCarRating() == 0;
+
+        store.removeCar(30L);
+        assert store.find(2L).get().getCarId() == null;
+    }
+
+
+    @Test(expected = NullPointerException.class)
+    public void thatDriverWithoutOnlineStatusIsRejected()
+    {
+        store.put(driver(1L, null, null));
+    }
+
+
+    @Test
+    public void thatDriversAreCountedByOnlineStatus()
+    {
+        store.put(driver(1L, OnlineStatus.ONLINE, null));
+        store.put(driver(2L, OnlineStatus.OFFLINE, null));
+        store.put(driver(3L, OnlineStatus.ONLINE, null));
+        store.put(driver(3L, OnlineStatus.OFFLINE, null));
+
+        assert store.count(OnlineStatus.ONLINE) == 1;
+        assert store.count(OnlineStatus.OFFLINE) == 2;
+        assert store.footprintBytes() > 0;
+    }
+
+
+    private static DriverDO driver(long id, OnlineStatus onlineStatus, CarDO car)
+    {
+        DriverDO driver = new DriverDO("driver" + id, "pw", null);
+        driver.setId(id);
+        driver.setOnlineStatus(onlineStatus);
+        driver.setCar(car);
+        return driver;
+    }
+
+
+    private static CarDO car(long id, int rating, int seatCount)
+    {
+        CarDO car = new CarDO("PLATE-" + id, seatCount, false, rating, EngineType.ELECTRIC, "Tesla", "3");
+        car.setId(id);
+        return car;
+    }
+}
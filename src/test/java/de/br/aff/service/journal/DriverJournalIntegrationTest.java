@@ -0,0 +1,103 @@
+package de.br.aff.service.journal;
+
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.exception.CarAlreadyInUseException;
+import de.br.aff.service.car.CarService;
+import de.br.aff.service.driver.DriverService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "dispatch.driver-journal.enabled=true",
+    "dispatch.driver-journal.directory=${java.io.tmpdir}/driver-journal-${random.uuid}",
+    "dispatch.driver-journal.apply-interval-ms=3600000"})
+public class DriverJournalIntegrationTest
+{
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DriverJournal driverJournal;
+
+    @Autowired
+    private DriverJournalApplier driverJournalApplier;
+
+
+    @Test
+    public void thatJournaledChangesAreReadBeforeAndWrittenByTheApplier() throws Exception
+    {
+        DriverDO first = createOnlineDriver("journal-first");
+        DriverDO second = createOnlineDriver("journal-second");
+        CarDO car = carService.create(new CarDO("JOURNAL-1", 4, false, 3, EngineType.ELECTRIC, "Tesla", "3"));
+
+        driverService.selectCar(first.getId(), car.getId());
+        assert driverRepository.findById(first.getId()).get().getCar() == null;
+        assert driverService.find(first.getId()).getCar().getId().equals(car.getId());
+        try
+        {
+            driverService.selectCar(second.getId(), car.getId());
+            assert false : "the journaled car selection has to be seen";
+        }
+        catch (CarAlreadyInUseException e)
+        {
+            // expected
+        }
+
+        // the car goes from one driver to the other within the same batch
+        driverService.deselectCar(first.getId());
+        driverService.selectCar(second.getId(), car.getId());
+        driverService.delete(first.getId());
+
+        assert driverJournalApplier.apply() == 2;
+        assert !driverJournal.pendingState(first.getId()).isPresent() && !driverJournal.pendingState(second.getId()).isPresent();
+        assert driverRepository.findById(first.getId()).get().getDeleted();
+        assert driverRepository.findById(second.getId()).get().getCar().getId().equals(car.getId());
+    }
+
+
+    @Test
+    public void thatStateConflictingWithTheDatabaseIsDroppedAndTheOthersAreWritten() throws Exception
+    {
+        DriverDO journaled = createOnlineDriver("journal-conflicting");
+        DriverDO other = createOnlineDriver("journal-other");
+        DriverDO behindTheJournal = createOnlineDriver("journal-behind");
+        CarDO car = carService.create(new CarDO("JOURNAL-2", 4, false, 3, EngineType.ELECTRIC, "Tesla", "3"));
+
+        driverService.selectCar(journaled.getId(), car.getId());
+        driverService.updatePartially(other.getId(), new DriverDO(null, null, new GeoCoordinate(48.137, 11.575)));
+        // the car is given to another driver right in the database, the journaled selection can never be written
+        DriverDO stored = driverRepository.findById(behindTheJournal.getId()).get();
+        stored.setCar(car);
+        driverRepository.save(stored);
+
+        assert driverJournalApplier.apply() == 1;
+        assert !driverJournal.pendingState(journaled.getId()).isPresent();
+        assert !driverJournal.pendingDriverOf(car.getId()).isPresent();
+        assert driverRepository.findById(journaled.getId()).get().getCar() == null;
+        assert driverRepository.findById(other.getId()).get().getCoordinate().getLatitude() == 48.137;
+        assert driverJournalApplier.apply() == 0;
+    }
+
+
+    private DriverDO createOnlineDriver(String username) throws Exception
+    {
+        DriverDO driver = new DriverDO(username, "pw", new GeoCoordinate(52.52, 13.405));
+        driver.setOnlineStatus(OnlineStatus.ONLINE);
+        return driverService.create(driver);
+    }
+}
@@ -0,0 +1,188 @@
+package de.br.aff.service.journal;
+
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DriverJournalTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DriverJournal journal;
+
+
+    @After
+    public void close() throws InterruptedException
+    {
+        if (journal != null)
+        {
+            journal.close();
+        }
+    }
+
+
+    @Test
+    public void thatLatestStatePerDriverIsPendingAfterReopening() throws Exception
+    {
+        journal = open();
+        journal.append(state(1, OnlineStatus.ONLINE, 10L));
+        journal.append(state(2, OnlineStatus.ONLINE, null));
+        journal.append(state(1, OnlineStatus.OFFLINE, null));
+        reopen();
+
+        assert journal.getDurableSequence() == 3;
+        assert journal.pendingStates(3).size() == 2;
+        DriverState driver = journal.pendingState(1).get();
+        assert driver.getOnlineStatus() == OnlineStatus.OFFLINE && driver.getCarId() == null && driver.getSequence() == 3;
+        assert journal.pendingState(2).get().getCoordinate().equals(new GeoCoordinate(52.52, 13.405));
+    }
+
+
+    @Test
+    public void thatAppliedStatesAreNotReplayed() throws Exception
+    {
+        journal = open();
+        journal.append(state(1, OnlineStatus.ONLINE, 10L));
+        journal.append(state(2, OnlineStatus.ONLINE, 11L));
+        journal.applied(journal.pendingStates(2), 2);
+        journal.append(state(3, OnlineStatus.ONLINE, 12L));
+        reopen();
+
+        assert !journal.pendingState(1).isPresent() && !journal.pendingState(2).isPresent();
+        assert journal.pendingState(3).get().getCarId() == 12L;
+        assert journal.pendingDriverOf(12L).get() == 3L;
+    }
+
+
+    @Test
+    public void thatNewerStateStaysPendingWhenAnOlderOneIsApplied() throws Exception
+    {
+        journal = open();
+        journal.append(state(1, OnlineStatus.ONLINE, 10L));
+        List<DriverState> toApply = journal.pendingStates(1);
+        journal.append(state(1, OnlineStatus.OFFLINE, null));
+        journal.applied(toApply, 1);
+
+        assert journal.pendingState(1).get().getOnlineStatus() == OnlineStatus.OFFLINE;
+    }
+
+
+    @Test
+    public void thatCarsOfPendingStatesFollowTheirDrivers() throws Exception
+    {
+        journal = open();
+        journal.append(state(1, OnlineStatus.ONLINE, 10L));
+        journal.append(state(1, OnlineStatus.ONLINE, 11L));
+        journal.append(state(2, OnlineStatus.ONLINE, 10L));
+        assert journal.pendingDriverOf(10L).get() == 2L;
+        assert journal.pendingDriverOf(11L).get() == 1L;
+
+        journal.append(state(1, OnlineStatus.ONLINE, 11L));
+        journal.applied(journal.pendingStates(3), 3);
+        assert journal.pendingDriverOf(11L).get() == 1L;
+        assert !journal.pendingDriverOf(10L).isPresent();
+
+        journal.append(state(1, OnlineStatus.ONLINE, null));
+        assert !journal.pendingDriverOf(11L).isPresent();
+    }
+
+
+    @Test
+    public void thatTornRecordEndsTheJournal() throws Exception
+    {
+        journal = open();
+        journal.append(state(1, OnlineStatus.ONLINE, 10L));
+        journal.append(state(2, OnlineStatus.ONLINE, 11L));
+        journal.close();
+
+        try (FileChannel segment = FileChannel.open(segments().get(0), StandardOpenOption.WRITE))
+        {
+            segment.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), DriverJournal.RECORD_SIZE + 20);
+        }
+        journal = open();
+
+        assert journal.pendingState(1).isPresent() && !journal.pendingState(2).isPresent();
+        journal.append(state(2, OnlineStatus.OFFLINE, null));
+        reopen();
+        assert journal.pendingState(2).get().getSequence() == 2;
+    }
+
+
+    @Test
+    public void thatConcurrentAppendsAreAllDurableAndSegmentsAreRolled() throws Exception
+    {
+        int records = 1024 * 1024 / DriverJournal.RECORD_SIZE + 100;
+        journal = open();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < records; i++)
+        {
+            long driverId = i % 1000 + 1;
+            executor.execute(() -> journal.append(state(driverId, OnlineStatus.ONLINE, null)));
+        }
+        executor.shutdown();
+        assert executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assert journal.getDurableSequence() == records;
+        assert segments().size() == 2;
+        journal.applied(journal.pendingStates(records - 50), records - 50);
+        assert segments().size() == 1;
+        List<DriverState> pending = journal.pendingStates(records);
+
+        reopen();
+        assert journal.getDurableSequence() == records;
+        assert !pending.isEmpty() && journal.pendingStates(records).containsAll(pending);
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void thatDisabledJournalRejectsAppends()
+    {
+        new DriverJournal(false, folder.getRoot().getPath(), 1).append(state(1, OnlineStatus.ONLINE, null));
+    }
+
+
+    private DriverJournal open() throws IOException
+    {
+        DriverJournal driverJournal = new DriverJournal(true, folder.getRoot().getPath(), 1);
+        driverJournal.open();
+        return driverJournal;
+    }
+
+
+    private void reopen() throws Exception
+    {
+        journal.close();
+        journal = open();
+    }
+
+
+    private List<Path> segments() throws IOException
+    {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath()))
+        {
+            return files.filter(path -> path.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+
+    private static DriverState state(long driverId, OnlineStatus onlineStatus, Long carId)
+    {
+        return new DriverState(0, driverId, onlineStatus, new GeoCoordinate(52.52, 13.405), System.currentTimeMillis(), carId, false);
+    }
+}
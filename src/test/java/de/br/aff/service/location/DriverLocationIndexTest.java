@@ -0,0 +1,89 @@
+package de.br.aff.service.location;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class DriverLocationIndexTest
+{
+    private final DriverLocationIndex index = new DriverLocationIndex(0.01);
+
+
+    @Test
+    public void thatNearestDriversAreReturnedOrderedByDistance()
+    {
+        index.update(1L, 52.5200, 13.4050);
+        index.update(2L, 52.5300, 13.4050);
+        index.update(3L, 52.5210, 13.4050);
+        index.update(4L, 48.1351, 11.5820);
+
+        List<Long> nearest = index.findNearest(52.5200, 13.4050, 5, 10);
+
+        assert nearest.equals(Arrays.asList(1L, 3L, 2L));
+    }
+
+
+    @Test
+    public void thatResultIsLimited()
+    {
+        index.update(1L, 52.5200, 13.4050);
+        index.update(2L, 52.5300, 13.4050);
+        index.update(3L, 52.5210, 13.4050);
+
+        List<Long> nearest = index.findNearest(52.5200, 13.4050, 5, 2);
+
+        assert nearest.equals(Arrays.asList(1L, 3L));
+    }
+
+
+    @Test
+    public void thatMovedDriverIsFoundOnlyAtNewPosition()
+    {
+        index.update(1L, 52.5200, 13.4050);
+        index.update(1L, 48.1351, 11.5820);
+
+        assert index.findNearest(52.5200, 13.4050, 5, 10).isEmpty();
+        assert index.findNearest(48.1351, 11.5820, 5, 10).equals(Arrays.asList(1L));
+        assert index.size() == 1;
+    }
+
+
+    @Test
+    public void thatRemovedDriverIsNotFound()
+    {
+        index.update(1L, 52.5200, 13.4050);
+        index.remove(1L);
+
+        assert !index.contains(1L);
+        assert index.findNearest(52.5200, 13.4050, 5, 10).isEmpty();
+    }
+
+
+    @Test
+    public void thatDriversAcrossTheAntimeridianAreFound()
+    {
+        index.update(1L, 0, 179.999);
+        index.update(2L, 0, -179.999);
+
+        assert index.findNearest(0, 180, 1, 10).containsAll(Arrays.asList(1L, 2L));
+    }
+
+
+    @Test
+    public void thatLargeRadiusFindsDistantDrivers()
+    {
+        index.update(1L, 52.5200, 13.4050);
+        index.update(2L, 48.1351, 11.5820);
+
+        assert index.findNearest(52.5200, 13.4050, 1000, 10).equals(Arrays.asList(1L, 2L));
+    }
+
+
+    @Test
+    public void thatDistanceIsCalculatedOnGreatCircle()
+    {
+        double berlinMunich = DriverLocationIndex.distanceKm(52.5200, 13.4050, 48.1351, 11.5820);
+
+        assert berlinMunich > 500 && berlinMunich < 510;
+    }
+}
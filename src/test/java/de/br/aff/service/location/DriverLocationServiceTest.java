@@ -0,0 +1,167 @@
+package de.br.aff.service.location;
+
+import de.br.aff.dataaccessobject.DriverRepository;
+import de.br.aff.domainobject.DriverDO;
+import de.br.aff.domainvalue.DriverPosition;
+import de.br.aff.domainvalue.GeoCoordinate;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.service.cache.FleetCache;
+import de.br.aff.service.driver.DriverChangeBroadcaster;
+import de.br.aff.service.driver.DriverStateStore;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {DefaultDriverLocationService.class, LatestPositionStore.class})
+public class DriverLocationServiceTest
+{
+    @MockBean
+    private DriverRepository driverRepository;
+
+    @MockBean
+    private DriverLocationIndex driverLocationIndex;
+
+    @MockBean
+    private FleetCache fleetCache;
+
+    @MockBean
+    private DriverChangeBroadcaster driverChangeBroadcaster;
+
+    @MockBean
+    private DriverStateStore driverStateStore;
+
+    @Autowired
+    private DriverLocationService driverLocationService;
+
+    @Autowired
+    private LatestPositionStore latestPositionStore;
+
+
+    @Test
+    public void thatIngestDoesNotTouchTheDatabase()
+    {
+        when(driverStateStore.updatePosition(4L, 1, 1, 100)).thenReturn(OnlineStatus.ONLINE);
+        int accepted = driverLocationService.ingest(Arrays.asList(
+            new DriverPosition(4L, 1, 1, 100),
+            new DriverPosition(4L, 2, 2, 50)));
+
+        assert accepted == 1;
+        verify(driverLocationIndex, times(1)).updateIfPresent(4L, 1, 1);
+        verify(driverChangeBroadcaster, times(1)).publishPosition(new DriverPosition(4L, 1, 1, 100), OnlineStatus.ONLINE);
+        verify(driverRepository, never()).findAllById(any());
+        verify(driverRepository, never()).save(any(DriverDO.class));
+    }
+
+
+    @Test
+    public void thatFlushWritesLatestPositions()
+    {
+        DriverDO driver = new DriverDO("xyz", "zyx", null);
+        driver.setId(1L);
+        when(driverRepository.findAllById(Collections.singleton(1L))).thenReturn(Collections.singletonList(driver));
+
+        driverLocationService.ingest(Arrays.asList(
+            new DriverPosition(1L, 1, 1, 100),
+            new DriverPosition(1L, 2, 3, 200)));
+
+        assert driverLocationService.flush() == 1;
+        assert driver.getCoordinate().equals(new GeoCoordinate(2, 3));
+        assert driver.getDateCoordinateUpdated().toInstant().toEpochMilli() == 200;
+        assert driverLocationService.flush() == 0;
+    }
+
+
+    @Test
+    public void thatTimestampAheadOfReceivingIsClamped()
+    {
+        DriverDO driver = new DriverDO("xyz", "zyx", null);
+        driver.setId(6L);
+        when(driverRepository.findAllById(Collections.singleton(6L))).thenReturn(Collections.singletonList(driver));
+        latestPositionStore.drainChanged(Integer.MAX_VALUE);
+
+        long now = System.currentTimeMillis();
+        driverLocationService.ingest(Collections.singletonList(new DriverPosition(6L, 1, 1, now + 365L * 24 * 60 * 60 * 1000)));
+        assert latestPositionStore.find(6L).get().getTimestamp() <= System.currentTimeMillis();
+        assert driverLocationService.flush() == 1;
+        assert driver.getDateCoordinateUpdated().toInstant().toEpochMilli() <= System.currentTimeMillis();
+
+        assert driverLocationService.ingest(Collections.singletonList(new DriverPosition(6L, 2, 2, System.currentTimeMillis() + 1))) == 1;
+        assert latestPositionStore.find(6L).get().getLatitude() == 2;
+    }
+
+
+    @Test
+    public void thatFlushDoesNotOverwriteNewerCoordinate()
+    {
+        DriverDO driver = new DriverDO("xyz", "zyx", new GeoCoordinate(5, 5));
+        driver.setId(2L);
+        driver.setDateCoordinateUpdated(ZonedDateTime.now());
+        when(driverRepository.findAllById(Collections.singleton(2L))).thenReturn(Collections.singletonList(driver));
+
+        driverLocationService.ingest(Collections.singletonList(new DriverPosition(2L, 1, 1, 100)));
+
+        assert driverLocationService.flush() == 0;
+        assert driver.getCoordinate().equals(new GeoCoordinate(5, 5));
+    }
+
+
+    @Test
+    public void thatPositionsAreFlushedAgainAfterRollback()
+    {
+        DriverDO driver = new DriverDO("xyz", "zyx", null);
+        driver.setId(5L);
+        when(driverRepository.findAllById(Collections.singleton(5L)))
+            .thenThrow(new QueryTimeoutException("lock timeout"))
+            .thenReturn(Collections.singletonList(driver));
+        latestPositionStore.drainChanged(Integer.MAX_VALUE);
+        driverLocationService.ingest(Collections.singletonList(new DriverPosition(5L, 1, 1, 100)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            driverLocationService.flush();
+            assert false;
+        }
+        catch (QueryTimeoutException e)
+        {
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assert latestPositionStore.pendingCount() == 1;
+        assert driverLocationService.flush() == 1;
+        assert driver.getCoordinate().equals(new GeoCoordinate(1, 1));
+    }
+
+
+    @Test
+    public void thatPositionsOfUnknownDriversAreDiscarded()
+    {
+        when(driverRepository.findAllById(Collections.singleton(3L))).thenReturn(Collections.emptyList());
+
+        driverLocationService.ingest(Collections.singletonList(new DriverPosition(3L, 1, 1, 100)));
+
+        assert driverLocationService.flush() == 0;
+        assert !latestPositionStore.find(3L).isPresent();
+    }
+}
@@ -0,0 +1,136 @@
+package de.br.aff.service.location;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class DriverPositionTableTest
+{
+    private final DriverPositionTable table = new DriverPositionTable(16);
+
+
+    @Test
+    public void thatPositionIsReadBack()
+    {
+        assert table.offer(1L, 52.5, 13.4, 100);
+
+        List<String> read = new ArrayList<>();
+        assert table.read(1L, (driverId, latitude, longitude, timestamp) -> read.add(driverId + ":" + latitude + ":" + longitude + ":" + timestamp));
+        assert !table.read(2L, (driverId, latitude, longitude, timestamp) -> read.add("unexpected"));
+
+        assert read.equals(Collections.singletonList("1:52.5:13.4:100"));
+    }
+
+
+    @Test
+    public void thatOlderPositionIsIgnored()
+    {
+        assert table.offer(1L, 1, 1, 200);
+        assert !table.offer(1L, 2, 2, 100);
+        assert table.offer(1L, 3, 3, 200);
+
+        table.read(1L, (driverId, latitude, longitude, timestamp) -> {
+            assert latitude == 3 && timestamp == 200;
+        });
+    }
+
+
+    @Test
+    public void thatPreviousTagIsReturned()
+    {
+        assert table.putIfPresent(1L, 1, 1, 7) == DriverPositionTable.ABSENT;
+        assert table.put(1L, 1, 1, 7) == DriverPositionTable.ABSENT;
+        assert table.put(1L, 2, 2, 8) == 7;
+        assert table.putIfPresent(1L, 3, 3, 9) == 8;
+        assert table.remove(1L) == 9;
+        assert table.remove(1L) == DriverPositionTable.ABSENT;
+        assert !table.contains(1L);
+    }
+
+
+    @Test
+    public void thatSlotsOfRemovedDriversAreReusedAndTableGrows()
+    {
+        for (long id = 1; id <= 10_000; id++)
+        {
+            table.put(id, id % 90, 0, 0);
+        }
+        for (long id = 1; id <= 10_000; id += 2)
+        {
+            table.remove(id);
+        }
+        long bytes = table.offHeapBytes();
+        for (long id = 10_001; id <= 15_000; id++)
+        {
+            table.put(id, id % 90, 0, 0);
+        }
+
+        assert table.size() == 10_000;
+        assert table.offHeapBytes() == bytes;
+        Set<Long> seen = new HashSet<>();
+        table.forEach((driverId, latitude, longitude, timestamp) -> {
+            assert latitude == driverId % 90;
+            seen.add(driverId);
+        });
+        assert seen.size() == 10_000;
+        assert !seen.contains(1L) && seen.contains(2L) && seen.contains(15_000L);
+    }
+
+
+    @Test
+    public void thatChangedPositionsAreDrainedOnce()
+    {
+        table.offer(1L, 1, 1, 100);
+        table.offer(1L, 2, 2, 200);
+        table.offer(2L, 3, 3, 100);
+        table.put(3L, 4, 4, 0);
+
+        assert table.changedCount() == 2;
+        Set<Long> drained = new HashSet<>();
+        assert table.drainChanged(1, (driverId, latitude, longitude, timestamp) -> drained.add(driverId)) == 1;
+        assert table.drainChanged(10, (driverId, latitude, longitude, timestamp) -> drained.add(driverId)) == 1;
+        assert table.drainChanged(10, (driverId, latitude, longitude, timestamp) -> drained.add(driverId)) == 0;
+        assert drained.size() == 2 && drained.contains(1L) && drained.contains(2L);
+    }
+
+
+    @Test
+    public void thatReadersNeverSeeHalfWrittenPositions() throws InterruptedException
+    {
+        table.offer(1L, 0, 0, 0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            for (long timestamp = 1; running.get(); timestamp++)
+            {
+                table.offer(1L, timestamp % 90, -(timestamp % 90), timestamp);
+            }
+        });
+        writer.start();
+        try
+        {
+            for (int i = 0; i < 200_000; i++)
+            {
+                table.read(1L, (driverId, latitude, longitude, timestamp) -> {
+                    if (latitude != -longitude || latitude != timestamp % 90)
+                    {
+                        torn.set(latitude + "/" + longitude + "/" + timestamp);
+                    }
+                });
+            }
+        }
+        finally
+        {
+            running.set(false);
+            writer.join();
+        }
+
+        assert torn.get() == null : torn.get();
+    }
+}
@@ -0,0 +1,68 @@
+package de.br.aff.service.location;
+
+import de.br.aff.domainvalue.DriverPosition;
+import java.util.List;
+import org.junit.Test;
+
+public class LatestPositionStoreTest
+{
+    private final LatestPositionStore store = new LatestPositionStore();
+
+
+    @Test
+    public void thatPingsOfOneDriverAreCoalesced()
+    {
+        store.offer(new DriverPosition(1L, 1, 1, 100));
+        store.offer(new DriverPosition(1L, 2, 2, 200));
+        store.offer(new DriverPosition(2L, 3, 3, 100));
+
+        List<DriverPosition> changed = store.drainChanged(10);
+
+        assert changed.size() == 2;
+        assert changed.contains(new DriverPosition(1L, 2, 2, 200));
+        assert changed.contains(new DriverPosition(2L, 3, 3, 100));
+        assert store.drainChanged(10).isEmpty();
+    }
+
+
+    @Test
+    public void thatOlderPingDoesNotOverwriteNewerOne()
+    {
+        assert store.offer(new DriverPosition(1L, 2, 2, 200));
+        assert !store.offer(new DriverPosition(1L, 1, 1, 100));
+
+        assert store.find(1L).get().getTimestamp() == 200;
+    }
+
+
+    @Test
+    public void thatDrainIsBounded()
+    {
+        store.offer(new DriverPosition(1L, 1, 1, 100));
+        store.offer(new DriverPosition(2L, 1, 1, 100));
+        store.offer(new DriverPosition(3L, 1, 1, 100));
+
+        assert store.drainChanged(2).size() == 2;
+        assert store.pendingCount() == 1;
+        assert store.drainChanged(2).size() == 1;
+    }
+
+
+    @Test
+    public void thatDriverIsDrainedAgainAfterNewPing()
+    {
+        store.offer(new DriverPosition(1L, 1, 1, 100));
+        store.drainChanged(10);
+
+        store.offer(new DriverPosition(1L, 2, 2, 200));
+
+        assert store.drainChanged(10).get(0).getLatitude() == 2;
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatInvalidPositionIsRejected()
+    {
+        store.offer(new DriverPosition(1L, 91, 1, 100));
+    }
+}
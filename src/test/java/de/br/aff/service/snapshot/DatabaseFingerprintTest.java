@@ -0,0 +1,57 @@
+package de.br.aff.service.snapshot;
+
+import de.br.aff.dataaccessobject.CarRepository;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.service.car.CarService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class DatabaseFingerprintTest
+{
+    @Autowired
+    private DatabaseFingerprint databaseFingerprint;
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private CarRepository carRepository;
+
+
+    @Test
+    public void thatEveryIndexedCarColumnChangesTheFingerprint() throws Exception
+    {
+        CarDO car = carService.create(new CarDO("FINGERPRINT-1", 4, false, 3, EngineType.ELECTRIC, "Tesla", "3"));
+        String before = databaseFingerprint.compute();
+        assert databaseFingerprint.compute().equals(before);
+
+        String manufacturer = changeCar(car.getId(), new CarDO("FINGERPRINT-1", 4, false, 3, EngineType.ELECTRIC, "Polestar", "3"));
+        String model = changeCar(car.getId(), new CarDO("FINGERPRINT-1", 4, false, 3, EngineType.ELECTRIC, "Polestar", "2"));
+        String engineType = changeCar(car.getId(), new CarDO("FINGERPRINT-1", 4, false, 3, EngineType.GAS, "Polestar", "2"));
+        String convertible = changeCar(car.getId(), new CarDO("FINGERPRINT-1", 4, true, 3, EngineType.GAS, "Polestar", "2"));
+        String licensePlate = changeCar(car.getId(), new CarDO("FINGERPRINT-2", 4, true, 3, EngineType.GAS, "Polestar", "2"));
+
+        assert !manufacturer.equals(before);
+        assert !model.equals(manufacturer);
+        assert !engineType.equals(model);
+        assert !convertible.equals(engineType);
+        assert !licensePlate.equals(convertible);
+    }
+
+
+    /**
+     * Changes the row as it could be changed while the application is down, bypassing the service and the indexes.
+     */
+    private String changeCar(long carId, CarDO car)
+    {
+        car.setId(carId);
+        carRepository.save(car);
+        return databaseFingerprint.compute();
+    }
+}
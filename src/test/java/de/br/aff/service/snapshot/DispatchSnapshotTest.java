@@ -0,0 +1,186 @@
+package de.br.aff.service.snapshot;
+
+import de.br.aff.datatransferobject.CarDTO;
+import de.br.aff.domainobject.CarDO;
+import de.br.aff.domainvalue.CarSearchCriteria;
+import de.br.aff.domainvalue.EngineType;
+import de.br.aff.domainvalue.OnlineStatus;
+import de.br.aff.service.car.CarSearchIndex;
+import de.br.aff.service.dispatch.DispatchCandidateIndex;
+import de.br.aff.service.driver.DriverStateStore;
+import de.br.aff.service.location.DriverLocationIndex;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DispatchSnapshotTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final CarSearchIndex carSearchIndex = new CarSearchIndex();
+    private final DriverLocationIndex driverLocationIndex = new DriverLocationIndex(0.01);
+    private final DispatchCandidateIndex dispatchCandidateIndex = new DispatchCandidateIndex();
+    private final DriverStateStore driverStateStore = new DriverStateStore(16);
+    private final DatabaseFingerprint databaseFingerprint = fingerprint("drivers=[2] cars=[2]");
+
+
+    @Test
+    public void thatShutdownSnapshotRestoresAllIndexes() throws IOException
+    {
+        Path file = writeSnapshot(true);
+        Restored restored = new Restored(file);
+        restored.snapshot.restore();
+
+        assert restored.snapshot.isRestoredFromShutdown();
+        assert !Files.exists(file);
+
+        List<CarDTO> cars = restored.carSearchIndex.search(CarSearchCriteria.builder().build(), Long.MIN_VALUE, 10);
+        assert cars.equals(Arrays.asList(car(-1, null), car(2, "Tesla")));
+        assert restored.carSearchIndex.search(CarSearchCriteria.builder().withDriver(true).build(), Long.MIN_VALUE, 10)
+            .equals(Collections.singletonList(car(2, "Tesla")));
+
+        assert restored.driverLocationIndex.size() == 2;
+        assert restored.driverLocationIndex.findNearest(52.52, 13.405, 1, 10).equals(Collections.singletonList(7L));
+        assert restored.dispatchCandidateIndex.carId(7L).getAsLong() == 2;
+        assert !restored.dispatchCandidateIndex.carId(8L).isPresent();
+
+        assert restored.driverStateStore.size() == 2;
+        assert restored.driverStateStore.find(7L).get().equals(state(7L, OnlineStatus.ONLINE, 2L));
+        assert restored.driverStateStore.find(9L).get().equals(state(9L, OnlineStatus.OFFLINE, null));
+    }
+
+
+    @Test
+    public void thatPeriodicSnapshotIsRestoredButNotTakenAsItIs() throws IOException
+    {
+        Restored restored = new Restored(writeSnapshot(false));
+        restored.snapshot.restore();
+
+        assert !restored.snapshot.isRestoredFromShutdown();
+        assert restored.driverLocationIndex.size() == 2;
+        assert restored.driverStateStore.size() == 0;
+    }
+
+
+    @Test
+    public void thatShutdownSnapshotOfAChangedDatabaseIsNotTakenAsItIs() throws IOException
+    {
+        Restored restored = new Restored(writeSnapshot(true), fingerprint("drivers=[3] cars=[2]"));
+        restored.snapshot.restore();
+
+        assert !restored.snapshot.isRestoredFromShutdown();
+        assert restored.driverLocationIndex.size() == 2;
+        assert restored.driverStateStore.size() == 0;
+    }
+
+
+    @Test
+    public void thatShutdownSnapshotIsSkippedIfTheFingerprintFails() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("dispatch.snapshot");
+        DatabaseFingerprint failing = mock(DatabaseFingerprint.class);
+        when(failing.compute()).thenThrow(new IllegalStateException("EntityManagerFactory is closed"));
+
+        new DispatchSnapshot(carSearchIndex, driverLocationIndex, dispatchCandidateIndex, driverStateStore, failing, true, file.toString())
+            .writeOnShutdown();
+
+        assert !Files.exists(file);
+    }
+
+
+    @Test
+    public void thatDamagedSnapshotLeavesTheIndexesEmpty() throws IOException
+    {
+        Path file = writeSnapshot(true);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(file, bytes);
+
+        Restored restored = new Restored(file);
+        try (InputStream in = Files.newInputStream(file))
+        {
+            restored.snapshot.read(in);
+            assert false : "the damaged snapshot has to be rejected";
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        restored.snapshot.restore();
+
+        assert !restored.snapshot.isRestoredFromShutdown();
+        assert restored.carSearchIndex.size() == 0 && restored.driverLocationIndex.size() == 0;
+    }
+
+
+    private Path writeSnapshot(boolean shutdown) throws IOException
+    {
+        CarDO tesla = new CarDO("B-2", 4, false, 5, EngineType.ELECTRIC, "Tesla", "3");
+        tesla.setId(2L);
+        carSearchIndex.rebuild(Arrays.asList(car(-1, null), car(2, "Tesla")), Collections.singletonList(2L));
+        driverLocationIndex.update(7, 52.52, 13.405);
+        driverLocationIndex.update(8, 48.137, 11.575);
+        dispatchCandidateIndex.update(7, tesla);
+        driverStateStore.put(state(7L, OnlineStatus.ONLINE, 2L));
+        driverStateStore.put(state(9L, OnlineStatus.OFFLINE, null));
+
+        Path file = folder.getRoot().toPath().resolve("dispatch.snapshot");
+        new DispatchSnapshot(carSearchIndex, driverLocationIndex, dispatchCandidateIndex, driverStateStore, databaseFingerprint, true, file.toString())
+            .writeTo(file, shutdown);
+        return file;
+    }
+
+
+    private static CarDTO car(long id, String manufacturer)
+    {
+        return new CarDTO(id, "B-" + id, 4, false, 5, "ELECTRIC", manufacturer, manufacturer != null ? "3" : null);
+    }
+
+
+    private static DatabaseFingerprint fingerprint(String value)
+    {
+        DatabaseFingerprint fingerprint = mock(DatabaseFingerprint.class);
+        when(fingerprint.compute()).thenReturn(value);
+        return fingerprint;
+    }
+
+
+    private static DriverStateStore.Entry state(long driverId, OnlineStatus onlineStatus, Long carId)
+    {
+        return new DriverStateStore.Entry(driverId, onlineStatus, 52.52, 13.405, 1000, carId, carId != null ? 5 : 0, carId != null ? 4 : 0);
+    }
+
+
+    private static final class Restored
+    {
+        private final CarSearchIndex carSearchIndex = new CarSearchIndex();
+        private final DriverLocationIndex driverLocationIndex = new DriverLocationIndex(0.01);
+        private final DispatchCandidateIndex dispatchCandidateIndex = new DispatchCandidateIndex();
+        private final DriverStateStore driverStateStore = new DriverStateStore(16);
+        private final DispatchSnapshot snapshot;
+
+
+        private Restored(Path file)
+        {
+            this(file, fingerprint("drivers=[2] cars=[2]"));
+        }
+
+
+        private Restored(Path file, DatabaseFingerprint databaseFingerprint)
+        {
+            snapshot = new DispatchSnapshot(carSearchIndex, driverLocationIndex, dispatchCandidateIndex, driverStateStore, databaseFingerprint,
+                true, file.toString());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package de.br.aff.util;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncLogTest
+{
+    private final Logger logger = enabledLogger();
+
+
+    @Test
+    public void thatNewestEventsAreDroppedWhenBufferIsFull() throws Exception
+    {
+        AsyncLog asyncLog = new AsyncLog(true, 2, AsyncLog.DropPolicy.DROP_NEWEST);
+        asyncLog.info(logger, "first");
+        asyncLog.info(logger, "second");
+        asyncLog.info(logger, "third");
+
+        assert asyncLog.pending() == 2;
+        assert asyncLog.dropped() == 1;
+
+        asyncLog.start();
+        asyncLog.close();
+
+        InOrder inOrder = Mockito.inOrder(logger);
+        inOrder.verify(logger).info("first", new Object[0]);
+        inOrder.verify(logger).info("second", new Object[0]);
+        verify(logger, never()).info("third", new Object[0]);
+    }
+
+
+    @Test
+    public void thatOldestEventsAreDroppedWhenBufferIsFull() throws Exception
+    {
+        AsyncLog asyncLog = new AsyncLog(true, 2, AsyncLog.DropPolicy.DROP_OLDEST);
+        asyncLog.info(logger, "first");
+        asyncLog.info(logger, "second");
+        asyncLog.info(logger, "third");
+
+        assert asyncLog.pending() == 2;
+        assert asyncLog.dropped() == 1;
+
+        asyncLog.start();
+        asyncLog.close();
+
+        verify(logger, never()).info("first", new Object[0]);
+        InOrder inOrder = Mockito.inOrder(logger);
+        inOrder.verify(logger).info("second", new Object[0]);
+        inOrder.verify(logger).info("third", new Object[0]);
+    }
+
+
+    @Test
+    public void thatBlockingPolicyDoesNotDropEvents() throws Exception
+    {
+        AsyncLog asyncLog = new AsyncLog(true, 1, AsyncLog.DropPolicy.BLOCK);
+        asyncLog.start();
+        for (int i = 0; i < 100; i++)
+        {
+            asyncLog.warn(logger, "event {}", i);
+        }
+        asyncLog.close();
+
+        assert asyncLog.dropped() == 0;
+        verify(logger, times(100)).warn(anyString(), Mockito.<Object[]>any());
+    }
+
+
+    @Test
+    public void thatThrowableIsPassedToLogger() throws Exception
+    {
+        IllegalStateException error = new IllegalStateException("broken");
+        AsyncLog asyncLog = new AsyncLog(false, 1, AsyncLog.DropPolicy.DROP_NEWEST);
+        asyncLog.error(logger, error, "request {} failed", "/v1/cars");
+
+        verify(logger).error("request {} failed", new Object[] {"/v1/cars", error});
+    }
+
+
+    @Test
+    public void thatDisabledLevelIsNotBuffered()
+    {
+        Mockito.when(logger.isInfoEnabled()).thenReturn(false);
+        AsyncLog asyncLog = new AsyncLog(true, 1, AsyncLog.DropPolicy.DROP_NEWEST);
+        asyncLog.info(logger, "first");
+
+        assert asyncLog.pending() == 0;
+    }
+
+
+    @Test
+    public void thatInterruptedCloseKeepsTheInterrupt()
+    {
+        AsyncLog asyncLog = new AsyncLog(true, 1, AsyncLog.DropPolicy.DROP_NEWEST);
+        asyncLog.start();
+
+        Thread.currentThread().interrupt();
+        asyncLog.close();
+
+        assert Thread.interrupted();
+    }
+
+
+    private static Logger enabledLogger()
+    {
+        Logger logger = Mockito.mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(true);
+        when(logger.isWarnEnabled()).thenReturn(true);
+        when(logger.isErrorEnabled()).thenReturn(true);
+        return logger;
+    }
+}
@@ -0,0 +1,117 @@
+package de.br.aff.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GatedDataSourceTest
+{
+    private final DataSource target = mock(DataSource.class);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+
+    @Before
+    public void setUp() throws SQLException
+    {
+        when(target.getConnection()).then(invocation -> mock(Connection.class));
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+
+    @Test
+    public void thatClosingAConnectionLetsTheNextThreadIn() throws Exception
+    {
+        GatedDataSource dataSource = new GatedDataSource(target, 1, 1, 5000);
+        Connection first = dataSource.getConnection();
+
+        Future<Connection> second = executor.submit(() -> dataSource.getConnection());
+        while (dataSource.getWaiting() == 0)
+        {
+            Thread.sleep(1);
+        }
+        assert !second.isDone();
+
+        first.close();
+        assert second.get(5, TimeUnit.SECONDS) != null;
+    }
+
+
+    @Test
+    public void thatClosingTwiceReturnsThePermitOnce() throws Exception
+    {
+        GatedDataSource dataSource = new GatedDataSource(target, 1, 0, 0);
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        dataSource.getConnection();
+        try
+        {
+            dataSource.getConnection();
+            assert false;
+        }
+        catch (SQLTransientConnectionException e)
+        {
+            assert e.getMessage().contains("waiting");
+        }
+    }
+
+
+    @Test
+    public void thatWaitingEndsAfterTheAcquireTimeout() throws Exception
+    {
+        GatedDataSource dataSource = new GatedDataSource(target, 1, 1, 10);
+        dataSource.getConnection();
+
+        try
+        {
+            dataSource.getConnection();
+            assert false;
+        }
+        catch (SQLTransientConnectionException e)
+        {
+            assert e.getMessage().contains("10 ms");
+        }
+        assert dataSource.getWaiting() == 0;
+    }
+
+
+    @Test
+    public void thatPermitIsReturnedIfTheTargetFails() throws Exception
+    {
+        when(target.getConnection()).thenThrow(new SQLException("database down")).then(invocation -> mock(Connection.class));
+        GatedDataSource dataSource = new GatedDataSource(target, 1, 0, 0);
+
+        try
+        {
+            dataSource.getConnection();
+            assert false;
+        }
+        catch (SQLException e)
+        {
+            assert e.getMessage().equals("database down");
+        }
+
+        assert dataSource.getConnection() != null;
+        verify(target, times(2)).getConnection();
+    }
+}
@@ -0,0 +1,105 @@
+package de.br.aff.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class LongIntHashMapTest
+{
+    private static final int MISSING = -1;
+
+
+    @Test
+    public void thatValuesArePutAndRemoved()
+    {
+        LongIntHashMap map = new LongIntHashMap(4, MISSING);
+
+        assert map.put(7L, 1) == MISSING;
+        assert map.put(7L, 2) == 1;
+        assert map.put(-3L, 3) == MISSING;
+
+        assert map.get(7L) == 2;
+        assert map.get(-3L) == 3;
+        assert map.get(8L) == MISSING;
+        assert map.size() == 2;
+
+        assert map.remove(7L) == 2;
+        assert map.remove(7L) == MISSING;
+        assert !map.containsKey(7L);
+        assert map.containsKey(-3L);
+        assert map.size() == 1;
+    }
+
+
+    @Test
+    public void thatKeysBehindRemovedKeyAreStillFound()
+    {
+        LongIntHashMap map = new LongIntHashMap(16, MISSING);
+        for (long key = 0; key < 12; key++)
+        {
+            map.put(key << 32, (int) key);
+        }
+
+        for (long key = 0; key < 12; key += 2)
+        {
+            map.remove(key << 32);
+        }
+
+        for (long key = 0; key < 12; key++)
+        {
+            assert map.get(key << 32) == (key % 2 == 0 ? MISSING : (int) key);
+        }
+    }
+
+
+    @Test
+    public void thatMapGrowsBeyondExpectedSize()
+    {
+        LongIntHashMap map = new LongIntHashMap(2, MISSING);
+        for (int i = 0; i < 10_000; i++)
+        {
+            map.put(i * 31L, i);
+        }
+
+        assert map.size() == 10_000;
+        for (int i = 0; i < 10_000; i++)
+        {
+            assert map.get(i * 31L) == i;
+        }
+
+        map.clear();
+        assert map.size() == 0;
+        assert map.get(31L) == MISSING;
+    }
+
+
+    @Test
+    public void thatMapMatchesHashMap()
+    {
+        Random random = new Random(42);
+        LongIntHashMap map = new LongIntHashMap(16, MISSING);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++)
+        {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0)
+            {
+                Integer removed = expected.remove(key);
+                assert map.remove(key) == (removed != null ? removed : MISSING);
+            }
+            else
+            {
+                Integer old = expected.put(key, i);
+                assert map.put(key, i) == (old != null ? old : MISSING);
+            }
+        }
+
+        assert map.size() == expected.size();
+        for (long key = 0; key < 5_000; key++)
+        {
+            assert map.get(key) == expected.getOrDefault(key, MISSING);
+        }
+    }
+}
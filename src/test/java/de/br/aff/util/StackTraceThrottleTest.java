@@ -0,0 +1,40 @@
+package de.br.aff.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class StackTraceThrottleTest
+{
+    private final AtomicLong now = new AtomicLong();
+
+    private final StackTraceThrottle throttle = new StackTraceThrottle(1, 60, 100, now::get);
+
+
+    @Test
+    public void thatRepeatedErrorsAreSuppressedWithinWindow()
+    {
+        assert throttle.admit(failure("first")) == 0;
+        assert throttle.admit(failure("second")) == StackTraceThrottle.SUPPRESSED;
+        assert throttle.admit(failure("third")) == StackTraceThrottle.SUPPRESSED;
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        assert throttle.admit(failure("fourth")) == 2;
+    }
+
+
+    @Test
+    public void thatErrorsFromDifferentCallSitesAreNotGrouped()
+    {
+        assert throttle.admit(failure("first")) == 0;
+        assert throttle.admit(new IllegalStateException("elsewhere")) == 0;
+        assert throttle.admit(new IllegalArgumentException("other type")) == 0;
+    }
+
+
+    private static RuntimeException failure(String message)
+    {
+        return new IllegalStateException(message);
+    }
+}
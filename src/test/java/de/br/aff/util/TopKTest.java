@@ -0,0 +1,47 @@
+package de.br.aff.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class TopKTest
+{
+    @Test
+    public void thatGreatestElementsAreKeptGreatestFirst()
+    {
+        TopK<Integer> topK = new TopK<>(3, Comparator.naturalOrder());
+        for (int value : new int[] {5, 1, 9, 7, 3, 9, 2})
+        {
+            topK.offer(value);
+        }
+
+        assert topK.toList().equals(Arrays.asList(9, 9, 7));
+    }
+
+
+    @Test
+    public void thatResultMatchesSortingEverything()
+    {
+        Random random = new Random(42);
+        int[] values = random.ints(10_000, 0, 1_000_000).toArray();
+        TopK<Integer> topK = new TopK<>(25, Comparator.naturalOrder());
+        IntStream.of(values).forEach(topK::offer);
+
+        assert topK.toList().equals(IntStream.of(values).boxed().sorted(Comparator.reverseOrder()).limit(25).collect(Collectors.toList()));
+    }
+
+
+    @Test
+    public void thatFewerElementsThanKAreAllKept()
+    {
+        TopK<Integer> topK = new TopK<>(10, Comparator.naturalOrder());
+        topK.offer(1);
+        topK.offer(2);
+
+        assert topK.toList().equals(Arrays.asList(2, 1));
+        assert new TopK<Integer>(0, Comparator.naturalOrder()).toList().isEmpty();
+    }
+}
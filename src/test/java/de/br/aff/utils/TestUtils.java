@@ -36,10 +36,19 @@ public class TestUtils
 
 
     static
+    {
+        VALID_ONLINE_DRIVER = newOnlineDriver();
+    }
+
+
+    /**
+     * Fresh driver for tests that modify it, VALID_ONLINE_DRIVER is shared between test classes.
+     */
+    public static DriverDO newOnlineDriver()
     {
         DriverDO driver = new DriverDO("xyz", "zyx", null);
         driver.setOnlineStatus(OnlineStatus.ONLINE);
-        VALID_ONLINE_DRIVER = driver;
+        return driver;
     }
 
 